@@ -27,13 +27,23 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -135,43 +145,136 @@ public class DefaultProjectDependencyAnalyzer
     private Map<Artifact, Set<String>> buildArtifactClassMap( MavenProject project )
         throws IOException
     {
-        Map<Artifact, Set<String>> artifactClassMap = new LinkedHashMap<Artifact, Set<String>>();
-
         @SuppressWarnings( "unchecked" ) Set<Artifact> dependencyArtifacts = project.getArtifacts();
 
+        return buildArtifactClassMap( dependencyArtifacts, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Lists the classes of the jars of the artifacts, reading up to <code>threads</code> jars at once.
+     *
+     * @param dependencyArtifacts the artifacts
+     * @param threads             the maximum number of jars to read at once
+     * @return the classes of each artifact, in the order of the artifacts.
+     * @throws IOException if a jar can't be read
+     */
+    static Map<Artifact, Set<String>> buildArtifactClassMap( Collection<Artifact> dependencyArtifacts, int threads )
+        throws IOException
+    {
+        List<Artifact> artifacts = new ArrayList<Artifact>( dependencyArtifacts.size() );
+
         for ( Artifact artifact : dependencyArtifacts )
         {
             File file = artifact.getFile();
 
             if ( file != null && ( file.getName().endsWith( ".jar" ) || file.isDirectory() ) )
             {
-                //URL url = file.toURI().toURL();
+                artifacts.add( artifact );
+            }
+        }
 
-                JarFile jarFile = new JarFile( file );
+        Map<Artifact, Set<String>> artifactClassMap = new LinkedHashMap<Artifact, Set<String>>();
 
-                Enumeration<JarEntry> jarEntries = jarFile.entries();
+        if ( threads < 2 || artifacts.size() < 2 )
+        {
+            for ( Artifact artifact : artifacts )
+            {
+                artifactClassMap.put( artifact, buildClasses( artifact.getFile() ) );
+            }
 
-                Set<String> classes = new HashSet<String>();
+            return artifactClassMap;
+        }
 
-                while ( jarEntries.hasMoreElements() )
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( threads, artifacts.size() ), new DaemonThreadFactory() );
+        try
+        {
+            List<Future<Set<String>>> futures = new ArrayList<Future<Set<String>>>( artifacts.size() );
+
+            for ( final Artifact artifact : artifacts )
+            {
+                futures.add( executor.submit( new Callable<Set<String>>()
                 {
-                    String entry = jarEntries.nextElement().getName();
-                    if ( entry.endsWith( ".class" ) )
+                    public Set<String> call()
+                        throws IOException
                     {
-                        String className =  entry.replace( '/', '.' );
-                        className = className.substring( 0, className.length() - ".class".length() );
-                        classes.add( className );
-
+                        return buildClasses( artifact.getFile() );
                     }
-                }
-                // to slow
-                //Set<String> classes = classAnalyzer.analyze( url );
+                } ) );
+            }
+
+            // keep the order of the artifacts, the first artifact containing a class is the one using it
+            for ( int i = 0; i < artifacts.size(); i++ )
+            {
+                artifactClassMap.put( artifacts.get( i ), futures.get( i ).get() );
+            }
 
-                artifactClassMap.put( artifact, classes );
+            return artifactClassMap;
+        }
+        catch ( InterruptedException exception )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while reading the dependency jars" );
+        }
+        catch ( ExecutionException exception )
+        {
+            if ( exception.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) exception.getCause();
+            }
+            if ( exception.getCause() instanceof Error )
+            {
+                throw (Error) exception.getCause();
             }
+            // reading a jar only throws IOExceptions
+            throw (IOException) exception.getCause();
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
+    }
 
-        return artifactClassMap;
+    private static Set<String> buildClasses( File file )
+        throws IOException
+    {
+        //URL url = file.toURI().toURL();
+
+        JarFile jarFile = new JarFile( file );
+
+        try
+        {
+            Enumeration<JarEntry> jarEntries = jarFile.entries();
+
+            Set<String> classes = new HashSet<String>();
+
+            while ( jarEntries.hasMoreElements() )
+            {
+                String entry = jarEntries.nextElement().getName();
+                if ( entry.endsWith( ".class" ) )
+                {
+                    String className =  entry.replace( '/', '.' );
+                    className = className.substring( 0, className.length() - ".class".length() );
+                    classes.add( className );
+
+                }
+            }
+            // to slow
+            //Set<String> classes = classAnalyzer.analyze( url );
+
+            return classes;
+        }
+        finally
+        {
+            try
+            {
+                jarFile.close();
+            }
+            catch ( IOException exception )
+            {
+                // ignore
+            }
+        }
     }
 
     protected Set<String> buildDependencyClasses( MavenProject project )
@@ -238,4 +341,21 @@ public class DefaultProjectDependencyAnalyzer
 
         return null;
     }
+
+    private static final class DaemonThreadFactory
+        implements ThreadFactory
+    {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final String prefix = "DependencyAnalyzer-" + POOL_NUMBER.incrementAndGet() + "-thread-";
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, prefix + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
 }
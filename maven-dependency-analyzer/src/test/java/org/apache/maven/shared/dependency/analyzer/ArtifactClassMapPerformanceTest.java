@@ -0,0 +1,135 @@
+package org.apache.maven.shared.dependency.analyzer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares reading the dependency jars one after another with reading them in parallel, on a classpath of up to
+ * 400 jars taken from the local repository.
+ *
+ * @see DefaultProjectDependencyAnalyzer
+ */
+public class ArtifactClassMapPerformanceTest
+{
+    // constants --------------------------------------------------------------
+
+    private static final int MAX_JARS = 400;
+
+    private static final int ROUNDS = 5;
+
+    // tests ------------------------------------------------------------------
+
+    @Ignore("Enable this test to run performance checks")
+    @Test
+    public void testBuildArtifactClassMap()
+        throws Exception
+    {
+        List<Artifact> artifacts = createArtifacts( getLocalRepository() );
+        int threads = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+
+        // warm up the file system cache and the JIT
+        Map<Artifact, Set<String>> expected = DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, 1 );
+        assertEquals( expected, DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, threads ) );
+
+        long sequential = Long.MAX_VALUE;
+        long parallel = Long.MAX_VALUE;
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            long start = System.nanoTime();
+            DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, 1 );
+            sequential = Math.min( sequential, System.nanoTime() - start );
+
+            start = System.nanoTime();
+            DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, threads );
+            parallel = Math.min( parallel, System.nanoTime() - start );
+        }
+
+        System.out.println( artifacts.size() + " jars: sequential " + sequential / 1000000 + " ms, " + threads
+            + " threads " + parallel / 1000000 + " ms, speedup " + (float) sequential / parallel );
+    }
+
+    // private methods --------------------------------------------------------
+
+    private static File getLocalRepository()
+    {
+        String localRepository = System.getProperty( "maven.repo.local" );
+
+        if ( localRepository == null )
+        {
+            localRepository = System.getProperty( "user.home" ) + "/.m2/repository";
+        }
+
+        return new File( localRepository );
+    }
+
+    private static List<Artifact> createArtifacts( File localRepository )
+    {
+        List<File> jars = new ArrayList<File>();
+        findJars( localRepository, jars );
+
+        List<Artifact> artifacts = new ArrayList<Artifact>( jars.size() );
+        for ( File jar : jars )
+        {
+            Artifact artifact =
+                new DefaultArtifact( "test", "artifact" + artifacts.size(), VersionRange.createFromVersion( "1.0" ),
+                                     Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler() );
+            artifact.setFile( jar );
+            artifacts.add( artifact );
+        }
+
+        return artifacts;
+    }
+
+    private static void findJars( File directory, List<File> jars )
+    {
+        File[] files = directory.listFiles();
+
+        if ( files == null )
+        {
+            return;
+        }
+
+        for ( int i = 0; i < files.length && jars.size() < MAX_JARS; i++ )
+        {
+            if ( files[i].isDirectory() )
+            {
+                findJars( files[i], jars );
+            }
+            else if ( files[i].getName().endsWith( ".jar" ) && !files[i].getName().endsWith( "-sources.jar" ) )
+            {
+                jars.add( files[i] );
+            }
+        }
+    }
+}
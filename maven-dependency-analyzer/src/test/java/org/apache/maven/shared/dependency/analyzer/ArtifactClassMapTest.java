@@ -0,0 +1,107 @@
+package org.apache.maven.shared.dependency.analyzer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/**
+ * Tests that the artifact class map is the same whether the jars are read one after another or in parallel.
+ *
+ * @see DefaultProjectDependencyAnalyzer
+ */
+public class ArtifactClassMapTest
+    extends AbstractFileTest
+{
+    // tests ------------------------------------------------------------------
+
+    public void testSameClassInTwoArtifacts()
+        throws IOException
+    {
+        Artifact first = createArtifact( "first", "a/b/Shared.class", "a/b/First.class" );
+        Artifact second = createArtifact( "second", "a/b/Shared.class", "x/y/Second.class" );
+        List<Artifact> artifacts = Arrays.asList( first, second );
+
+        Map<Artifact, Set<String>> sequential = DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, 1 );
+        Map<Artifact, Set<String>> parallel = DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, 2 );
+
+        assertEquals( artifacts, new ArrayList<Artifact>( sequential.keySet() ) );
+        assertEquals( artifacts, new ArrayList<Artifact>( parallel.keySet() ) );
+        assertEquals( new HashSet<String>( Arrays.asList( "a.b.Shared", "a.b.First" ) ), parallel.get( first ) );
+        assertEquals( new HashSet<String>( Arrays.asList( "a.b.Shared", "x.y.Second" ) ), parallel.get( second ) );
+        assertEquals( sequential, parallel );
+
+        // the first artifact containing a class is the one using it
+        DefaultProjectDependencyAnalyzer analyzer = new DefaultProjectDependencyAnalyzer();
+        assertSame( first, analyzer.findArtifactForClassName( sequential, "a.b.Shared" ) );
+        assertSame( first, analyzer.findArtifactForClassName( parallel, "a.b.Shared" ) );
+    }
+
+    public void testKeepsArtifactOrder()
+        throws IOException
+    {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            artifacts.add( createArtifact( "artifact" + i, "a/b/Shared.class", "a/b/Class" + i + ".class" ) );
+        }
+
+        Map<Artifact, Set<String>> sequential = DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, 1 );
+        Map<Artifact, Set<String>> parallel = DefaultProjectDependencyAnalyzer.buildArtifactClassMap( artifacts, 2 );
+
+        assertEquals( artifacts, new ArrayList<Artifact>( sequential.keySet() ) );
+        assertEquals( artifacts, new ArrayList<Artifact>( parallel.keySet() ) );
+        assertEquals( sequential, parallel );
+    }
+
+    // private methods --------------------------------------------------------
+
+    private Artifact createArtifact( String artifactId, String... classes )
+        throws IOException
+    {
+        File file = createJar();
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( file ) );
+        for ( String path : classes )
+        {
+            writeEntry( out, path, "class " + path );
+        }
+        out.close();
+
+        Artifact artifact =
+            new DefaultArtifact( "test", artifactId, VersionRange.createFromVersion( "1.0" ), Artifact.SCOPE_COMPILE,
+                                 "jar", null, new DefaultArtifactHandler() );
+        artifact.setFile( file );
+
+        return artifact;
+    }
+}
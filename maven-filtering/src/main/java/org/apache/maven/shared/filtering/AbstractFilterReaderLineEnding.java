@@ -0,0 +1,208 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
+
+/**
+ * Base class of the line ending preserving filter readers, which copies the text between tokens in bulk.
+ * <p/>
+ * Subclasses implement the token handling in {@link #read()}. Bulk reads scan the underlying reader for the first
+ * character of a token or an escape string and pass everything before it on unchanged, only the characters from such
+ * a candidate position on are handed to {@link #read()}.
+ *
+ * @since 1.3
+ */
+abstract class AbstractFilterReaderLineEnding
+    extends FilterReader
+{
+    /**
+     * The largest number of characters scanned ahead at once, kept within the buffer of the {@link BufferedReader}.
+     */
+    private static final int MAX_SCAN_LENGTH = 8192;
+
+    /**
+     * The smallest number of characters scanned ahead at once.
+     */
+    private static final int MIN_SCAN_LENGTH = 64;
+
+    /**
+     * replacement text from a token
+     */
+    protected String replaceData = null;
+
+    /**
+     * Index into replacement data
+     */
+    protected int replaceIndex = 0;
+
+    protected boolean eof = false;
+
+    /**
+     * The characters a token or an escape string can start with, <code>null</code> if they need to be recomputed.
+     */
+    private char[] tokenStarts;
+
+    /**
+     * The number of characters to scan ahead next, adapted to the distance between the tokens seen so far.
+     */
+    private int scanLength = MAX_SCAN_LENGTH;
+
+    protected AbstractFilterReaderLineEnding( BufferedReader in )
+    {
+        super( in );
+    }
+
+    /**
+     * @return the first characters of all tokens and of the escape string.
+     */
+    protected abstract char[] getTokenStarts();
+
+    /**
+     * Has to be called whenever the tokens or the escape string change.
+     */
+    protected void resetTokenStarts()
+    {
+        tokenStarts = null;
+    }
+
+    /**
+     * Skips characters. This method will block until some characters are available, an I/O error occurs, or the end of
+     * the stream is reached.
+     *
+     * @param n The number of characters to skip
+     * @return the number of characters actually skipped
+     * @throws IllegalArgumentException If <code>n</code> is negative.
+     * @throws IOException              If an I/O error occurs
+     */
+    public long skip( long n )
+        throws IOException
+    {
+        if ( n < 0L )
+        {
+            throw new IllegalArgumentException( "skip value is negative" );
+        }
+
+        for ( long i = 0; i < n; i++ )
+        {
+            if ( read() == -1 )
+            {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reads characters into a portion of an array. This method will block until some input is available, an I/O error
+     * occurs, or the end of the stream is reached.
+     *
+     * @param cbuf Destination buffer to write characters to. Must not be <code>null</code>.
+     * @param off  Offset at which to start storing characters.
+     * @param len  Maximum number of characters to read.
+     * @return the number of characters read, or -1 if the end of the stream has been reached
+     * @throws IOException If an I/O error occurs
+     */
+    public int read( char cbuf[], int off, int len )
+        throws IOException
+    {
+        int count = 0;
+        while ( count < len )
+        {
+            if ( replaceIndex > 0 )
+            {
+                // pending replacement text
+                final int start = replaceData.length() - replaceIndex;
+                final int n = Math.min( replaceIndex, len - count );
+                replaceData.getChars( start, start + n, cbuf, off + count );
+                replaceIndex -= n;
+                count += n;
+                continue;
+            }
+            if ( eof )
+            {
+                break;
+            }
+
+            final int n = readPlainText( cbuf, off + count, len - count );
+            if ( n > 0 )
+            {
+                count += n;
+                continue;
+            }
+
+            // a possible token or escape string starts here
+            final int ch = read();
+            if ( ch == -1 )
+            {
+                break;
+            }
+            cbuf[off + count++] = (char) ch;
+        }
+
+        return ( count == 0 && len > 0 ) ? -1 : count;
+    }
+
+    /**
+     * Copies the characters up to the next possible token or escape string unchanged.
+     *
+     * @return the number of characters copied, 0 if a candidate starts right away or the end of the stream is reached.
+     */
+    private int readPlainText( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( tokenStarts == null )
+        {
+            tokenStarts = getTokenStarts();
+        }
+
+        final int max = Math.min( len, scanLength );
+        in.mark( max );
+        final int n = in.read( cbuf, off, max );
+        if ( n <= 0 )
+        {
+            in.reset();
+            return 0;
+        }
+
+        final int end = off + n;
+        for ( int i = off; i < end; i++ )
+        {
+            final char c = cbuf[i];
+            for ( char start : tokenStarts )
+            {
+                if ( c == start )
+                {
+                    // give back everything from the candidate on
+                    final int plain = i - off;
+                    in.reset();
+                    in.skip( plain );
+                    scanLength = Math.max( MIN_SCAN_LENGTH, plain * 2 );
+                    return plain;
+                }
+            }
+        }
+
+        scanLength = Math.min( MAX_SCAN_LENGTH, scanLength * 2 );
+        return n;
+    }
+}
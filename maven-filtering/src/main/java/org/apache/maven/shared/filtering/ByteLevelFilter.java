@@ -0,0 +1,276 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.apache.maven.shared.utils.io.IOUtil;
+
+/**
+ * Filters files on the byte level, only decoding the parts which may contain expressions.
+ * <p/>
+ * Without multi line filtering, tokens and escape strings never span lines, and the filter readers start over at the
+ * beginning of every line and at every character which isn't the first one of a delimiter or escape string. So
+ * everything before the first such character of a line can be copied as is, and only the remainder of the line needs
+ * to be filtered. With encodings which represent ASCII characters as single bytes, which never occur within the
+ * encoding of other characters, these parts can be told apart on the byte level. Filtered parts separated by a few
+ * plain bytes are filtered together, so the filter readers don't need to be set up for every single line. Once
+ * there is hardly any plain text in between, the rest of the file is filtered as a whole.
+ * <p/>
+ * This requires ASCII delimiters and escape strings, see {@link FilterTokenScanner#isAsciiCompatible(String)}
+ * for the encodings.
+ *
+ * @since 1.3
+ */
+final class ByteLevelFilter
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Plain bytes between two filtered parts up to this length are filtered along with them.
+     */
+    static final int MAX_FILTERED_GAP = 4096;
+
+    private final List<FileUtils.FilterWrapper> filterWrappers;
+
+    private final Charset charset;
+
+    private final boolean[] tokenStarts = new boolean[128];
+
+    private final OutputStream out;
+
+    /**
+     * Encodes the filtered parts into {@link #out}, without flushing it.
+     */
+    private final Writer writer;
+
+    private final char[] chars = new char[BUFFER_SIZE / 4];
+
+    /**
+     * The bytes to filter, starting with the first token start of a line, followed by plain bytes.
+     */
+    private final Region region = new Region();
+
+    /**
+     * The number of bytes of the region to filter, the remaining ones are plain.
+     */
+    private int filterLength;
+
+    private ByteLevelFilter( List<FileUtils.FilterWrapper> filterWrappers, Charset charset, String tokenStarts,
+                             final OutputStream out )
+    {
+        this.filterWrappers = filterWrappers;
+        this.charset = charset;
+        for ( int i = 0; i < tokenStarts.length(); i++ )
+        {
+            this.tokenStarts[tokenStarts.charAt( i )] = true;
+        }
+        this.out = out;
+        this.writer = new OutputStreamWriter( new FilterOutputStream( out )
+        {
+            public void write( byte[] b, int off, int len )
+                throws IOException
+            {
+                out.write( b, off, len );
+            }
+
+            public void flush()
+            {
+                // written out along with the plain bytes
+            }
+        }, charset );
+    }
+
+    /**
+     * Filters a file like {@link FileUtils#copyFile(File, File, String, FileUtils.FilterWrapper[])} does.
+     *
+     * @param from           the file to filter
+     * @param to             the destination file
+     * @param encoding       the encoding of the file, <code>null</code> or empty for the platform encoding, must be
+     *                       ASCII compatible
+     * @param filterWrappers the filter wrappers, which must not support multi line filtering
+     * @param tokenStarts    the ASCII characters the delimiters and escape strings of the wrappers start with
+     * @throws IOException if the file can't be read or written
+     */
+    static void copyFile( File from, File to, String encoding, List<FileUtils.FilterWrapper> filterWrappers,
+                          String tokenStarts )
+        throws IOException
+    {
+        final Charset charset =
+            encoding == null || encoding.length() < 1 ? Charset.defaultCharset() : Charset.forName( encoding );
+
+        InputStream in = null;
+        OutputStream out = null;
+        try
+        {
+            in = new FileInputStream( from );
+            out = new BufferedOutputStream( new FileOutputStream( to ), BUFFER_SIZE );
+            new ByteLevelFilter( filterWrappers, charset, tokenStarts, out ).copy( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+            IOUtil.close( out );
+        }
+    }
+
+    private void copy( InputStream in )
+        throws IOException
+    {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        boolean inToken = false;
+        for ( int n = in.read( buffer ); n != -1; n = in.read( buffer ) )
+        {
+            // start of the bytes not written yet
+            int start = 0;
+            for ( int i = 0; i < n; i++ )
+            {
+                final byte b = buffer[i];
+                if ( inToken )
+                {
+                    if ( b == '\n' )
+                    {
+                        region.write( buffer, start, i + 1 - start );
+                        start = i + 1;
+                        filterLength = region.size();
+                        inToken = false;
+                        if ( filterLength > BUFFER_SIZE )
+                        {
+                            // hardly any plain text in between, filter the rest as a whole
+                            flush();
+                            filter( new SequenceInputStream( new ByteArrayInputStream( buffer, start, n - start ),
+                                                             in ) );
+                            return;
+                        }
+                    }
+                }
+                // bytes of non ASCII characters are negative
+                else if ( b >= 0 && tokenStarts[b] )
+                {
+                    writePlain( buffer, start, i - start );
+                    start = i;
+                    inToken = true;
+                }
+            }
+
+            if ( inToken )
+            {
+                region.write( buffer, start, n - start );
+            }
+            else
+            {
+                writePlain( buffer, start, n - start );
+            }
+        }
+
+        if ( inToken )
+        {
+            filterLength = region.size();
+        }
+        flush();
+    }
+
+    /**
+     * Filters the remaining input, which starts at the beginning of a line.
+     */
+    private void filter( InputStream in )
+        throws IOException
+    {
+        filter( new InputStreamReader( in, charset ) );
+    }
+
+    private void writePlain( byte[] buffer, int offset, int length )
+        throws IOException
+    {
+        if ( region.size() == 0 )
+        {
+            out.write( buffer, offset, length );
+        }
+        else
+        {
+            region.write( buffer, offset, length );
+            if ( region.size() - filterLength > MAX_FILTERED_GAP )
+            {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes the filtered part of the region, followed by its plain bytes.
+     */
+    private void flush()
+        throws IOException
+    {
+        if ( filterLength > 0 )
+        {
+            filter( new StringReader( new String( region.buffer(), 0, filterLength, charset.name() ) ) );
+        }
+        out.write( region.buffer(), filterLength, region.size() - filterLength );
+
+        region.reset();
+        filterLength = 0;
+    }
+
+    private void filter( Reader reader )
+        throws IOException
+    {
+        for ( FileUtils.FilterWrapper wrapper : filterWrappers )
+        {
+            reader = wrapper.getReader( reader );
+        }
+
+        for ( int n = reader.read( chars ); n != -1; n = reader.read( chars ) )
+        {
+            writer.write( chars, 0, n );
+        }
+        writer.flush();
+    }
+
+    /**
+     * Gives access to the buffered bytes without copying them.
+     */
+    private static final class Region
+        extends ByteArrayOutputStream
+    {
+        byte[] buffer()
+        {
+            return buf;
+        }
+    }
+}
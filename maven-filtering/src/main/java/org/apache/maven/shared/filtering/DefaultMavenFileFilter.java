@@ -26,7 +26,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
@@ -42,6 +44,7 @@ import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
 import org.codehaus.plexus.interpolation.SingleResponseValueSource;
 import org.codehaus.plexus.interpolation.ValueSource;
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
 import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.sonatype.plexus.build.incremental.BuildContext;
@@ -100,10 +103,40 @@ public class DefaultMavenFileFilter
     public void copyFile( File from, File to, boolean filtering, List<FileUtils.FilterWrapper> filterWrappers,
                           String encoding, boolean overwrite )
         throws MavenFilteringException
+    {
+        copyFileContent( from, to, filtering, filterWrappers, encoding, overwrite );
+
+        buildContext.refresh( to );
+    }
+
+    /**
+     * Same as {@link #copyFile(File, File, boolean, List, String, boolean)}, but leaves the refresh of the
+     * {@link BuildContext} to the caller. Can be called concurrently if the filter wrappers are thread safe.
+     */
+    void copyFileContent( File from, File to, boolean filtering, List<FileUtils.FilterWrapper> filterWrappers,
+                          String encoding, boolean overwrite )
+        throws MavenFilteringException
     {
         try
         {
-            if ( filtering )
+            if ( filtering && !mayContainTokens( from, filterWrappers, encoding ) )
+            {
+                if ( getLogger().isDebugEnabled() )
+                {
+                    getLogger().debug( "copy " + from.getPath() + " to " + to.getPath() + ", nothing to filter" );
+                }
+                // same as filtering, the destination gets rewritten in any case
+                FileUtils.copyFile( from, to );
+            }
+            else if ( filtering && isByteLevelFilterable( filterWrappers, encoding ) )
+            {
+                if ( getLogger().isDebugEnabled() )
+                {
+                    getLogger().debug( "filtering " + from.getPath() + " to " + to.getPath() + " on the byte level" );
+                }
+                ByteLevelFilter.copyFile( from, to, encoding, filterWrappers, getTokenStarts( filterWrappers ) );
+            }
+            else if ( filtering )
             {
                 if ( getLogger().isDebugEnabled() )
                 {
@@ -121,8 +154,6 @@ public class DefaultMavenFileFilter
                 }
                 FileUtils.copyFile( from, to, encoding, new FileUtils.FilterWrapper[0], overwrite );
             }
-
-            buildContext.refresh( to );
         }
         catch ( IOException e )
         {
@@ -131,6 +162,69 @@ public class DefaultMavenFileFilter
 
     }
 
+    /**
+     * @return <code>false</code> if the file contains nothing the filter wrappers would replace, this can only be
+     *         told for the default filter wrappers.
+     */
+    private boolean mayContainTokens( File from, List<FileUtils.FilterWrapper> filterWrappers, String encoding )
+        throws IOException
+    {
+        if ( filterWrappers.isEmpty() )
+        {
+            return true;
+        }
+
+        String tokenStarts = getTokenStarts( filterWrappers );
+        return tokenStarts == null || FilterTokenScanner.mayContainTokens( from, encoding, tokenStarts );
+    }
+
+    /**
+     * @return whether files can be filtered with {@link ByteLevelFilter}.
+     */
+    private boolean isByteLevelFilterable( List<FileUtils.FilterWrapper> filterWrappers, String encoding )
+    {
+        if ( filterWrappers.isEmpty() || !FilterTokenScanner.isAsciiCompatible( encoding ) )
+        {
+            return false;
+        }
+
+        for ( FileUtils.FilterWrapper filterWrapper : filterWrappers )
+        {
+            if ( !( filterWrapper instanceof Wrapper ) || ( (Wrapper) filterWrapper ).supportMultiLineFiltering )
+            {
+                return false;
+            }
+        }
+
+        String tokenStarts = getTokenStarts( filterWrappers );
+        for ( int i = 0; i < tokenStarts.length(); i++ )
+        {
+            if ( tokenStarts.charAt( i ) >= 128 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the first characters of all delimiters and escape strings of the filter wrappers, <code>null</code> if
+     *         they can't be told because there are other filter wrappers than the default ones.
+     */
+    static String getTokenStarts( List<FileUtils.FilterWrapper> filterWrappers )
+    {
+        StringBuilder tokenStarts = new StringBuilder();
+        for ( FileUtils.FilterWrapper filterWrapper : filterWrappers )
+        {
+            if ( !( filterWrapper instanceof Wrapper ) )
+            {
+                return null;
+            }
+            tokenStarts.append( ( (Wrapper) filterWrapper ).getTokenStarts() );
+        }
+        return tokenStarts.toString();
+    }
+
     /**
      * @see org.apache.maven.shared.filtering.MavenFileFilter#getDefaultFilterWrappers(org.apache.maven.project.MavenProject, java.util.List, boolean, org.apache.maven.execution.MavenSession)
      * @deprecated
@@ -300,39 +394,254 @@ public class DefaultMavenFileFilter
         }
     }
 
+    /**
+     * @return whether the expressions used by the filter wrappers can be recorded.
+     */
+    static boolean isRecordable( List<FileUtils.FilterWrapper> filterWrappers )
+    {
+        for ( FileUtils.FilterWrapper filterWrapper : filterWrappers )
+        {
+            if ( !( filterWrapper instanceof Wrapper ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param filterWrappers recordable filter wrappers
+     * @param expressions    receives every expression looked up with the value it resolved to
+     * @return filter wrappers which filter like the given ones, recording the expressions they use.
+     */
+    static List<FileUtils.FilterWrapper> recordExpressions( List<FileUtils.FilterWrapper> filterWrappers,
+                                                            Map<String, String> expressions )
+    {
+        List<FileUtils.FilterWrapper> recording = new ArrayList<FileUtils.FilterWrapper>( filterWrappers.size() );
+        for ( FileUtils.FilterWrapper filterWrapper : filterWrappers )
+        {
+            Wrapper wrapper = (Wrapper) filterWrapper;
+            recording.add( new Wrapper( wrapper, new RecordingValueSource( wrapper.valueSource, expressions ) ) );
+        }
+        return recording;
+    }
+
+    /**
+     * @param filterWrappers recordable filter wrappers
+     * @return the value an expression currently resolves to, as recorded by
+     *         {@link #recordExpressions(List, Map)}.
+     */
+    static String resolve( List<FileUtils.FilterWrapper> filterWrappers, String expression )
+    {
+        for ( FileUtils.FilterWrapper filterWrapper : filterWrappers )
+        {
+            Object value = ( (Wrapper) filterWrapper ).valueSource.getValue( expression );
+            if ( value != null )
+            {
+                return String.valueOf( value );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param filterWrappers the filter wrappers of an execution, which must not record expressions yet
+     * @param listener       gets notified about every expression looked up
+     * @param expressions    counts the expressions looked up
+     * @return filter wrappers which filter like the given ones, notifying the listener, or the given ones if they
+     *         are not the default filter wrappers.
+     */
+    static List<FileUtils.FilterWrapper> instrument( List<FileUtils.FilterWrapper> filterWrappers,
+                                                     FilteringListener listener, AtomicInteger expressions )
+    {
+        if ( !isRecordable( filterWrappers ) )
+        {
+            expressions.set( -1 );
+            return filterWrappers;
+        }
+
+        List<FileUtils.FilterWrapper> instrumented =
+            new ArrayList<FileUtils.FilterWrapper>( filterWrappers.size() );
+        for ( FileUtils.FilterWrapper filterWrapper : filterWrappers )
+        {
+            Wrapper wrapper = (Wrapper) filterWrapper;
+            instrumented.add( new Wrapper( wrapper, new InstrumentedValueSource(
+                (MemoizingValueSource) wrapper.valueSource, listener, expressions ) ) );
+        }
+        return instrumented;
+    }
+
+    /**
+     * Counts the expressions looked up, and tells the listener about them.
+     */
+    private static final class InstrumentedValueSource
+        implements ValueSource
+    {
+
+        private final MemoizingValueSource valueSource;
+
+        private final FilteringListener listener;
+
+        private final AtomicInteger expressions;
+
+        InstrumentedValueSource( MemoizingValueSource valueSource, FilteringListener listener,
+                                 AtomicInteger expressions )
+        {
+            this.valueSource = valueSource;
+            this.listener = listener;
+            this.expressions = expressions;
+        }
+
+        public Object getValue( String expression )
+        {
+            expressions.incrementAndGet();
+            return valueSource.getValue( expression, listener );
+        }
+
+        public List getFeedback()
+        {
+            return valueSource.getFeedback();
+        }
+
+        public void clearFeedback()
+        {
+            valueSource.clearFeedback();
+        }
+
+    }
+
+    /**
+     * Records the value of every expression looked up, as the first wrapper resolving it would see it.
+     */
+    private static final class RecordingValueSource
+        implements ValueSource
+    {
+
+        private final ValueSource valueSource;
+
+        private final Map<String, String> expressions;
+
+        RecordingValueSource( ValueSource valueSource, Map<String, String> expressions )
+        {
+            this.valueSource = valueSource;
+            this.expressions = expressions;
+        }
+
+        public Object getValue( String expression )
+        {
+            Object value = valueSource.getValue( expression );
+            if ( !expressions.containsKey( expression ) || expressions.get( expression ) == null )
+            {
+                expressions.put( expression, value == null ? null : String.valueOf( value ) );
+            }
+            return value;
+        }
+
+        public List getFeedback()
+        {
+            return valueSource.getFeedback();
+        }
+
+        public void clearFeedback()
+        {
+            valueSource.clearFeedback();
+        }
+
+    }
+
     private static final class Wrapper
         extends FileUtils.FilterWrapper
     {
 
         private LinkedHashSet<String> delimiters;
 
-        private MavenProject project;
-
-        private ValueSource propertiesValueSource;
-
         private List<String> projectStartExpressions;
 
         private String escapeString;
 
         private boolean escapeWindowsPaths;
 
-        private final MavenSession mavenSession;
-
         private boolean supportMultiLineFiltering;
 
+        /**
+         * Shared by all readers, so every expression is only looked up once.
+         */
+        private final ValueSource valueSource;
+
         Wrapper( LinkedHashSet<String> delimiters, MavenProject project, MavenSession mavenSession,
                  ValueSource propertiesValueSource, List<String> projectStartExpressions, String escapeString,
                  boolean escapeWindowsPaths, boolean supportMultiLineFiltering )
         {
             super();
             this.delimiters = delimiters;
-            this.project = project;
-            this.mavenSession = mavenSession;
-            this.propertiesValueSource = propertiesValueSource;
             this.projectStartExpressions = projectStartExpressions;
             this.escapeString = escapeString;
             this.escapeWindowsPaths = escapeWindowsPaths;
             this.supportMultiLineFiltering = supportMultiLineFiltering;
+
+            List<ValueSource> valueSources = new ArrayList<ValueSource>();
+            List<String> names = new ArrayList<String>();
+            valueSources.add( propertiesValueSource );
+            names.add( "properties" );
+
+            if ( project != null )
+            {
+                valueSources.add( new PrefixedObjectValueSource( projectStartExpressions, project, true ) );
+                names.add( "project" );
+            }
+
+            if ( mavenSession != null )
+            {
+                valueSources.add( new PrefixedObjectValueSource( "session", mavenSession ) );
+                names.add( "session" );
+
+                final Settings settings = mavenSession.getSettings();
+                if ( settings != null )
+                {
+                    valueSources.add( new PrefixedObjectValueSource( "settings", settings ) );
+                    names.add( "settings" );
+                    valueSources.add(
+                        new SingleResponseValueSource( "localRepository", settings.getLocalRepository() ) );
+                    names.add( "localRepository" );
+                }
+            }
+
+            this.valueSource = new MemoizingValueSource( valueSources, names );
+        }
+
+        /**
+         * Filters like the given wrapper, but looks expressions up in another value source.
+         */
+        Wrapper( Wrapper wrapper, ValueSource valueSource )
+        {
+            super();
+            this.delimiters = wrapper.delimiters;
+            this.projectStartExpressions = wrapper.projectStartExpressions;
+            this.escapeString = wrapper.escapeString;
+            this.escapeWindowsPaths = wrapper.escapeWindowsPaths;
+            this.supportMultiLineFiltering = wrapper.supportMultiLineFiltering;
+            this.valueSource = valueSource;
+        }
+
+        /**
+         * @return the first characters of all delimiters and of the escape string.
+         */
+        String getTokenStarts()
+        {
+            StringBuilder tokenStarts = new StringBuilder();
+            for ( String delimiter : delimiters )
+            {
+                String begin = DelimiterSpecification.parse( delimiter ).getBegin();
+                if ( begin.length() > 0 )
+                {
+                    tokenStarts.append( begin.charAt( 0 ) );
+                }
+            }
+            if ( StringUtils.isNotEmpty( escapeString ) )
+            {
+                tokenStarts.append( escapeString.charAt( 0 ) );
+            }
+            return tokenStarts.toString();
         }
 
         public Reader getReader( Reader reader )
@@ -350,25 +659,7 @@ public class DefaultMavenFileFilter
                 ri = new SimpleRecursionInterceptor();
             }
 
-            interpolator.addValueSource( propertiesValueSource );
-
-            if ( project != null )
-            {
-                interpolator.addValueSource( new PrefixedObjectValueSource( projectStartExpressions, project, true ) );
-            }
-
-            if ( mavenSession != null )
-            {
-                interpolator.addValueSource( new PrefixedObjectValueSource( "session", mavenSession ) );
-
-                final Settings settings = mavenSession.getSettings();
-                if ( settings != null )
-                {
-                    interpolator.addValueSource( new PrefixedObjectValueSource( "settings", settings ) );
-                    interpolator.addValueSource(
-                        new SingleResponseValueSource( "localRepository", settings.getLocalRepository() ) );
-                }
-            }
+            interpolator.addValueSource( valueSource );
 
             interpolator.setEscapeString( escapeString );
 
@@ -21,12 +21,10 @@ package org.apache.maven.shared.filtering;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Resource;
@@ -35,8 +33,6 @@ import org.apache.maven.shared.utils.PathTool;
 import org.apache.maven.shared.utils.ReaderFactory;
 import org.apache.maven.shared.utils.StringUtils;
 import org.apache.maven.shared.utils.io.FileUtils;
-import org.apache.maven.shared.utils.io.FileUtils.FilterWrapper;
-import org.apache.maven.shared.utils.io.IOUtil;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Initializable;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.InitializationException;
@@ -178,6 +174,66 @@ public class DefaultMavenResourcesFiltering
                 "Using '" + mavenResourcesExecution.getEncoding() + "' encoding to copy filtered resources." );
         }
 
+        ParallelResourceCopier copier = null;
+        if ( mavenResourcesExecution.getParallelism() > 1 )
+        {
+            if ( mavenFileFilter instanceof DefaultMavenFileFilter )
+            {
+                copier = new ParallelResourceCopier( (DefaultMavenFileFilter) mavenFileFilter, buildContext,
+                                                     mavenResourcesExecution.getParallelism() );
+            }
+            else
+            {
+                getLogger().debug( "copying resources sequentially, " + mavenFileFilter.getClass().getName()
+                                       + " doesn't support parallel copies" );
+            }
+        }
+
+        try
+        {
+            copyResources( mavenResourcesExecution, copier );
+        }
+        finally
+        {
+            if ( copier != null )
+            {
+                copier.close();
+            }
+        }
+
+        if ( mavenResourcesExecution.getFilteringListener() instanceof FilteringStatistics )
+        {
+            getLogger().info( ( (FilteringStatistics) mavenResourcesExecution.getFilteringListener() ).getSummary() );
+        }
+    }
+
+    /**
+     * @param copier copies the files in parallel, <code>null</code> to copy them on the calling thread.
+     */
+    private void copyResources( MavenResourcesExecution mavenResourcesExecution, ParallelResourceCopier copier )
+        throws MavenFilteringException
+    {
+        FilteringListener listener = mavenResourcesExecution.getFilteringListener();
+
+        FileNameInterpolator fileNameInterpolator = null;
+        if ( mavenResourcesExecution.isFilterFilenames() && mavenResourcesExecution.getFilterWrappers().size() > 0 )
+        {
+            fileNameInterpolator = new FileNameInterpolator( mavenResourcesExecution.getFilterWrappers() );
+        }
+
+        FilteringManifest manifest = null;
+        File manifestFile = mavenResourcesExecution.getFilteringManifest();
+        if ( manifestFile != null && !mavenResourcesExecution.isOverwrite()
+            && mavenResourcesExecution.getFilterWrappers() != null )
+        {
+            manifest = FilteringManifest.start( manifestFile, getFilteringConfiguration( mavenResourcesExecution ),
+                                                mavenResourcesExecution.getFilterWrappers() );
+            if ( manifest == null )
+            {
+                getLogger().debug( "not using the filtering manifest, custom filter wrappers are not supported" );
+            }
+        }
+
         for ( Resource resource : mavenResourcesExecution.getResources() )
         {
 
@@ -256,15 +312,63 @@ public class DefaultMavenResourcesFiltering
                 File source = new File( resourceDirectory, name );
 
                 File destinationFile =
-                    getDestinationFile( outputDirectory, targetPath, name, mavenResourcesExecution );
+                    getDestinationFile( outputDirectory, targetPath, name, fileNameInterpolator );
 
                 boolean filteredExt =
                     filteredFileExtension( source.getName(), mavenResourcesExecution.getNonFilteredFileExtensions() );
 
-                mavenFileFilter.copyFile( source, destinationFile, resource.isFiltering() && filteredExt,
-                                          mavenResourcesExecution.getFilterWrappers(),
-                                          mavenResourcesExecution.getEncoding(),
-                                          mavenResourcesExecution.isOverwrite() );
+                boolean filtering = resource.isFiltering() && filteredExt;
+
+                List<FileUtils.FilterWrapper> filterWrappers = mavenResourcesExecution.getFilterWrappers();
+                AtomicInteger expressions = null;
+                if ( listener != null && filtering )
+                {
+                    expressions = new AtomicInteger();
+                    filterWrappers = DefaultMavenFileFilter.instrument( filterWrappers, listener, expressions );
+                }
+
+                if ( manifest != null )
+                {
+                    try
+                    {
+                        if ( manifest.isUpToDate( source, destinationFile, filtering ) )
+                        {
+                            getLogger().debug( "skip " + source.getPath() + ", " + destinationFile.getPath()
+                                                   + " is up to date" );
+                            continue;
+                        }
+                        filterWrappers = manifest.record( source, destinationFile, filtering, filterWrappers );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new MavenFilteringException( e.getMessage(), e );
+                    }
+                }
+
+                if ( copier != null )
+                {
+                    copier.copyFile( source, destinationFile, filtering, filterWrappers,
+                                     mavenResourcesExecution.getEncoding(),
+                                     mavenResourcesExecution.isOverwrite(), listener, expressions );
+                }
+                else
+                {
+                    final long start = System.nanoTime();
+                    mavenFileFilter.copyFile( source, destinationFile, filtering, filterWrappers,
+                                              mavenResourcesExecution.getEncoding(),
+                                              mavenResourcesExecution.isOverwrite() );
+                    if ( listener != null )
+                    {
+                        listener.fileCopied( source, destinationFile, filtering, source.length(),
+                                             System.nanoTime() - start, expressions == null ? 0 : expressions.get() );
+                    }
+                }
+            }
+
+            if ( copier != null )
+            {
+                // stale files get deleted below, don't race with the copies
+                copier.finish();
             }
 
             // deal with deleted source files
@@ -280,7 +384,7 @@ public class DefaultMavenResourcesFiltering
             for ( String name : deletedFiles )
             {
                 File destinationFile =
-                    getDestinationFile( outputDirectory, targetPath, name, mavenResourcesExecution );
+                    getDestinationFile( outputDirectory, targetPath, name, fileNameInterpolator );
 
                 destinationFile.delete();
 
@@ -289,16 +393,47 @@ public class DefaultMavenResourcesFiltering
 
         }
 
+        if ( manifest != null )
+        {
+            try
+            {
+                manifest.write( manifestFile );
+            }
+            catch ( IOException e )
+            {
+                // the next execution just copies everything again
+                getLogger().warn(
+                    "Cannot write filtering manifest " + manifestFile.getPath() + ": " + e.getMessage() );
+                manifestFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return describes everything besides the expression values which affects how the resources get filtered.
+     */
+    private String getFilteringConfiguration( MavenResourcesExecution mavenResourcesExecution )
+    {
+        StringBuilder configuration = new StringBuilder();
+        configuration.append( "encoding=" ).append( mavenResourcesExecution.getEncoding() );
+        configuration.append( ",delimiters=" ).append( mavenResourcesExecution.getDelimiters() );
+        configuration.append( ",escapeString=" ).append( mavenResourcesExecution.getEscapeString() );
+        configuration.append( ",escapeWindowsPaths=" ).append( mavenResourcesExecution.isEscapeWindowsPaths() );
+        configuration.append( ",supportMultiLineFiltering=" ).append(
+            mavenResourcesExecution.isSupportMultiLineFiltering() );
+        configuration.append( ",filterWrappers=" ).append( mavenResourcesExecution.getFilterWrappers().size() );
+        return configuration.toString();
     }
 
-    private File getDestinationFile( File outputDirectory, String targetPath, String name, MavenResourcesExecution mavenResourcesExecution )
+    private File getDestinationFile( File outputDirectory, String targetPath, String name,
+                                     FileNameInterpolator fileNameInterpolator )
         throws MavenFilteringException
     {
         String destination = name;
-        
-        if ( mavenResourcesExecution.isFilterFilenames() && mavenResourcesExecution.getFilterWrappers().size() > 0 )
+
+        if ( fileNameInterpolator != null )
         {
-            destination = filterFileName( destination, mavenResourcesExecution.getFilterWrappers() );
+            destination = filterFileName( destination, fileNameInterpolator );
         }
 
         if ( targetPath != null )
@@ -406,30 +541,20 @@ public class DefaultMavenResourcesFiltering
     /*
      * Filter the name of a file using the same mechanism for filtering the content of the file.
      */
-    private String filterFileName( String name, List<FilterWrapper> wrappers )
+    private String filterFileName( String name, FileNameInterpolator fileNameInterpolator )
         throws MavenFilteringException
     {
-
-        Reader reader = new StringReader( name );
-        for ( FilterWrapper wrapper : wrappers )
-        {
-            reader = wrapper.getReader( reader );
-        }
-
-        StringWriter writer = new StringWriter();
-
+        String filteredFilename;
         try
         {
-            IOUtil.copy( reader, writer );
+            filteredFilename = fileNameInterpolator.interpolate( name );
         }
         catch ( IOException e )
         {
             throw new MavenFilteringException( "Failed filtering filename" + name, e );
         }
 
-        String filteredFilename = writer.toString();
-
-        if ( getLogger().isDebugEnabled() )
+        if ( getLogger().isDebugEnabled() && !filteredFilename.equals( name ) )
         {
             getLogger().debug( "renaming filename " + name + " to " + filteredFilename );
         }
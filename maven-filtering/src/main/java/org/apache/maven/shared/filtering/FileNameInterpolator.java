@@ -0,0 +1,95 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+
+/**
+ * Filters file names through a list of filter wrappers.
+ * <p/>
+ * Most file names don't contain any expressions. The characters tokens and escape strings of the default filter
+ * wrappers start with are determined once, and names containing none of them are returned as they are, without
+ * setting up any readers. All other names are filtered through the wrappers, which resolve their expressions through
+ * the value source shared by all files of the execution.
+ *
+ * @since 1.3
+ */
+final class FileNameInterpolator
+{
+    private final List<FileUtils.FilterWrapper> filterWrappers;
+
+    /**
+     * The characters tokens and escape strings start with, <code>null</code> if every name has to be filtered.
+     */
+    private final String tokenStarts;
+
+    FileNameInterpolator( List<FileUtils.FilterWrapper> filterWrappers )
+    {
+        this.filterWrappers = filterWrappers;
+        this.tokenStarts = DefaultMavenFileFilter.getTokenStarts( filterWrappers );
+    }
+
+    /**
+     * @return the filtered name, the very same instance if there was nothing to filter.
+     */
+    String interpolate( String name )
+        throws IOException
+    {
+        if ( !mayContainTokens( name ) )
+        {
+            return name;
+        }
+
+        Reader reader = new StringReader( name );
+        for ( FileUtils.FilterWrapper wrapper : filterWrappers )
+        {
+            reader = wrapper.getReader( reader );
+        }
+
+        final StringBuilder filtered = new StringBuilder( name.length() + 16 );
+        final char[] buffer = new char[Math.max( name.length(), 64 )];
+        for ( int n = reader.read( buffer ); n != -1; n = reader.read( buffer ) )
+        {
+            filtered.append( buffer, 0, n );
+        }
+        return filtered.toString();
+    }
+
+    private boolean mayContainTokens( String name )
+    {
+        if ( tokenStarts == null )
+        {
+            return true;
+        }
+        for ( int i = 0; i < tokenStarts.length(); i++ )
+        {
+            if ( name.indexOf( tokenStarts.charAt( i ) ) >= 0 )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+import org.apache.maven.shared.utils.io.IOUtil;
+
+/**
+ * Checks on the byte level whether a file may contain anything to filter.
+ * <p/>
+ * Filtering a file without any expressions or escape strings in it decodes and encodes its content just to write
+ * the same bytes again. If none of the characters a token or an escape string starts with occurs in the file, it can
+ * simply be copied instead. This can only be decided for encodings which represent ASCII characters as single bytes
+ * which never occur within the encoding of other characters, for all other encodings a file is assumed to contain
+ * tokens.
+ *
+ * @since 1.3
+ */
+final class FilterTokenScanner
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FilterTokenScanner()
+    {
+    }
+
+    /**
+     * @param file        the file to check
+     * @param encoding    the encoding of the file, <code>null</code> or empty for the platform encoding
+     * @param tokenStarts the characters tokens and escape strings start with
+     * @return <code>false</code> if the file contains none of the characters, <code>true</code> if it does or if
+     *         this can't be told for the encoding.
+     * @throws IOException if the file can't be read
+     */
+    static boolean mayContainTokens( File file, String encoding, String tokenStarts )
+        throws IOException
+    {
+        if ( !isAsciiCompatible( encoding ) )
+        {
+            return true;
+        }
+
+        final boolean[] candidates = new boolean[128];
+        for ( int i = 0; i < tokenStarts.length(); i++ )
+        {
+            final char c = tokenStarts.charAt( i );
+            if ( c >= candidates.length )
+            {
+                return true;
+            }
+            candidates[c] = true;
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            final byte[] buffer = new byte[(int) Math.min( BUFFER_SIZE, Math.max( file.length(), 1 ) )];
+            for ( int n = in.read( buffer ); n != -1; n = in.read( buffer ) )
+            {
+                for ( int i = 0; i < n; i++ )
+                {
+                    final byte b = buffer[i];
+                    // bytes of non ASCII characters are negative
+                    if ( b >= 0 && candidates[b] )
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * @param encoding the encoding, <code>null</code> or empty for the platform encoding
+     * @return whether the encoding represents ASCII characters as single bytes, which never occur within the encoding
+     *         of other characters.
+     */
+    static boolean isAsciiCompatible( String encoding )
+    {
+        final Charset charset;
+        try
+        {
+            charset =
+                encoding == null || encoding.length() < 1 ? Charset.defaultCharset() : Charset.forName( encoding );
+        }
+        catch ( IllegalCharsetNameException e )
+        {
+            return false;
+        }
+        catch ( UnsupportedCharsetException e )
+        {
+            return false;
+        }
+
+        final String name = charset.name();
+        return "UTF-8".equals( name ) || "US-ASCII".equals( name ) || name.startsWith( "ISO-8859-" )
+            || name.startsWith( "windows-125" );
+    }
+}
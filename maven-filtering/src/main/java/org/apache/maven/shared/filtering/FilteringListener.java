@@ -0,0 +1,58 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+/**
+ * Gets notified about the files copied and the expressions resolved while filtering resources, to find out where the
+ * time goes. See {@link MavenResourcesExecution#setFilteringListener(FilteringListener)}, and
+ * {@link FilteringStatistics} for an implementation summing everything up.
+ * <p/>
+ * With a parallelism above 1 the methods are called from several threads at once.
+ *
+ * @since 1.3
+ */
+public interface FilteringListener
+{
+    /**
+     * A file has been copied.
+     *
+     * @param source      the source file
+     * @param destination the destination file
+     * @param filtered    whether the file was filtered, or just copied
+     * @param bytes       the size of the source file
+     * @param nanos       the time copying took
+     * @param expressions the number of expressions looked up while filtering the file, <code>-1</code> if they can't
+     *                    be counted for the filter wrappers used
+     */
+    void fileCopied( File source, File destination, boolean filtered, long bytes, long nanos, int expressions );
+
+    /**
+     * An expression has been looked up.
+     *
+     * @param expression  the expression, without delimiters
+     * @param valueSource describes the value source which resolved the expression, like <code>project</code> or
+     *                    <code>properties</code>, <code>null</code> if none could
+     * @param cached      whether the value was known from an earlier lookup of the same execution
+     * @param nanos       the time the lookup took
+     */
+    void expressionResolved( String expression, String valueSource, boolean cached, long nanos );
+}
@@ -0,0 +1,375 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.apache.maven.shared.utils.io.IOUtil;
+
+/**
+ * Records what every file copied by a resources execution has been created from, so that the next execution can
+ * skip the files which would come out the same.
+ * <p/>
+ * For every destination file the manifest holds the source file with its size, modification date and MD5 hash,
+ * whether it was filtered, and all expressions filtering looked up together with the values they resolved to. A
+ * destination is up to date if it has not been touched since, if its source still has the same content, and if all
+ * expressions it used still resolve to the same values. Changes to the filtering configuration itself, like the
+ * encoding or the delimiters, invalidate the whole manifest.
+ * <p/>
+ * Expressions can only be recorded for the default filter wrappers.
+ *
+ * @since 1.3
+ */
+class FilteringManifest
+{
+    private static final int MAGIC = 0x4D46524D;
+
+    private static final int VERSION = 2;
+
+    /**
+     * The resolution of file modification dates, coarse enough for all common file systems. A source modified less
+     * than this ago might change again without its modification date changing.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private static final String UTF_8 = "UTF-8";
+
+    private final String configuration;
+
+    private final List<FileUtils.FilterWrapper> filterWrappers;
+
+    /**
+     * The entries of the previous execution, keyed by the destination path.
+     */
+    private final Map<String, Entry> previous;
+
+    /**
+     * The entries of this execution, keyed by the destination path.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    private FilteringManifest( String configuration, List<FileUtils.FilterWrapper> filterWrappers,
+                               Map<String, Entry> previous )
+    {
+        this.configuration = configuration;
+        this.filterWrappers = filterWrappers;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts a manifest for an execution, based on the manifest of the previous one. The previous manifest gets
+     * removed, so it never describes files an execution failed to copy.
+     *
+     * @param manifestFile   the file of the previous manifest, which does not need to exist
+     * @param configuration  describes the filtering configuration, which needs to be the same as before to reuse
+     *                       anything
+     * @param filterWrappers the filter wrappers of the execution
+     * @return the manifest, or <code>null</code> if the filter wrappers don't support recording their expressions.
+     */
+    static FilteringManifest start( File manifestFile, String configuration,
+                                    List<FileUtils.FilterWrapper> filterWrappers )
+    {
+        if ( !DefaultMavenFileFilter.isRecordable( filterWrappers ) )
+        {
+            return null;
+        }
+
+        Map<String, Entry> previous = read( manifestFile, configuration );
+        manifestFile.delete();
+        return new FilteringManifest( configuration, filterWrappers,
+                                      previous == null ? new HashMap<String, Entry>() : previous );
+    }
+
+    /**
+     * Checks whether a destination is up to date, and keeps its entry if it is.
+     */
+    boolean isUpToDate( File source, File destination, boolean filtering )
+        throws IOException
+    {
+        final Entry entry = previous.get( destination.getPath() );
+        if ( entry == null || entry.filtered != filtering || !entry.source.equals( source.getPath() ) )
+        {
+            return false;
+        }
+
+        if ( destination.length() != entry.destinationLength
+            || destination.lastModified() != entry.destinationLastModified || !destination.isFile() )
+        {
+            return false;
+        }
+
+        if ( source.length() != entry.sourceLength )
+        {
+            return false;
+        }
+        final long sourceLastModified = source.lastModified();
+        if ( sourceLastModified != entry.sourceLastModified )
+        {
+            if ( !Arrays.equals( hash( source ), entry.sourceHash ) )
+            {
+                return false;
+            }
+            entry.sourceLastModified = sourceLastModified;
+        }
+
+        for ( Map.Entry<String, String> expression : entry.expressions.entrySet() )
+        {
+            final String value = DefaultMavenFileFilter.resolve( filterWrappers, expression.getKey() );
+            if ( value == null ? expression.getValue() != null : !value.equals( expression.getValue() ) )
+            {
+                return false;
+            }
+        }
+
+        entries.put( destination.getPath(), entry );
+        return true;
+    }
+
+    /**
+     * Records a destination which is about to be copied.
+     *
+     * @param filterWrappers the filter wrappers of the execution, possibly instrumented
+     * @return the filter wrappers to copy the file with, which record the expressions used.
+     */
+    List<FileUtils.FilterWrapper> record( File source, File destination, boolean filtering,
+                                          List<FileUtils.FilterWrapper> filterWrappers )
+        throws IOException
+    {
+        final Entry entry = new Entry( source.getPath(), filtering );
+        entry.sourceLength = source.length();
+        entry.sourceLastModified = source.lastModified();
+        entry.sourceHash = hash( source );
+        if ( System.currentTimeMillis() - entry.sourceLastModified < TIMESTAMP_RESOLUTION )
+        {
+            // the source might change again without its modification date changing, compare the hash next time
+            entry.sourceLastModified = 0;
+        }
+        entries.put( destination.getPath(), entry );
+
+        return DefaultMavenFileFilter.recordExpressions( filterWrappers, entry.expressions );
+    }
+
+    /**
+     * Writes the manifest, once all recorded destinations have been copied.
+     */
+    void write( File manifestFile )
+        throws IOException
+    {
+        manifestFile.getParentFile().mkdirs();
+        final DataOutputStream out =
+            new DataOutputStream( new BufferedOutputStream( new FileOutputStream( manifestFile ) ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            writeString( out, configuration );
+            out.writeInt( entries.size() );
+            for ( Map.Entry<String, Entry> mapEntry : entries.entrySet() )
+            {
+                final File destination = new File( mapEntry.getKey() );
+                final Entry entry = mapEntry.getValue();
+                writeString( out, mapEntry.getKey() );
+                out.writeLong( destination.length() );
+                out.writeLong( destination.lastModified() );
+                writeString( out, entry.source );
+                out.writeBoolean( entry.filtered );
+                out.writeLong( entry.sourceLength );
+                out.writeLong( entry.sourceLastModified );
+                out.writeShort( entry.sourceHash.length );
+                out.write( entry.sourceHash );
+                out.writeInt( entry.expressions.size() );
+                for ( Map.Entry<String, String> expression : entry.expressions.entrySet() )
+                {
+                    writeString( out, expression.getKey() );
+                    out.writeBoolean( expression.getValue() != null );
+                    if ( expression.getValue() != null )
+                    {
+                        writeString( out, expression.getValue() );
+                    }
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * @return the entries of the manifest, <code>null</code> if it doesn't exist, can't be read, or has been written
+     *         for another configuration.
+     */
+    private static Map<String, Entry> read( File manifestFile, String configuration )
+    {
+        if ( !manifestFile.isFile() )
+        {
+            return null;
+        }
+
+        final long limit = manifestFile.length();
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream( new BufferedInputStream( new FileInputStream( manifestFile ) ) );
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION
+                || !configuration.equals( readString( in, limit ) ) )
+            {
+                return null;
+            }
+
+            final int count = in.readInt();
+            final Map<String, Entry> entries = new HashMap<String, Entry>( count * 2 );
+            for ( int i = 0; i < count; i++ )
+            {
+                final String destination = readString( in, limit );
+                final long destinationLength = in.readLong();
+                final long destinationLastModified = in.readLong();
+                final Entry entry = new Entry( readString( in, limit ), in.readBoolean() );
+                entry.destinationLength = destinationLength;
+                entry.destinationLastModified = destinationLastModified;
+                entry.sourceLength = in.readLong();
+                entry.sourceLastModified = in.readLong();
+                entry.sourceHash = new byte[in.readShort()];
+                in.readFully( entry.sourceHash );
+                final int expressions = in.readInt();
+                for ( int j = 0; j < expressions; j++ )
+                {
+                    final String expression = readString( in, limit );
+                    entry.expressions.put( expression, in.readBoolean() ? readString( in, limit ) : null );
+                }
+                entries.put( destination, entry );
+            }
+            return entries;
+        }
+        catch ( IOException e )
+        {
+            // start over
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes, as {@link DataOutputStream#writeUTF(String)} is
+     * limited to 64KB, which expression values and paths might exceed.
+     */
+    private static void writeString( DataOutputStream out, String value )
+        throws IOException
+    {
+        final byte[] bytes = value.getBytes( UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param limit the size of the manifest, which no valid string can exceed
+     */
+    private static String readString( DataInputStream in, long limit )
+        throws IOException
+    {
+        final int length = in.readInt();
+        if ( length < 0 || length > limit )
+        {
+            throw new IOException( "Invalid string length " + length );
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return new String( bytes, UTF_8 );
+    }
+
+    private static byte[] hash( File file )
+        throws IOException
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "MD5" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "MD5 is not supported: " + e.getMessage() );
+        }
+
+        final InputStream in = new FileInputStream( file );
+        try
+        {
+            final byte[] buffer = new byte[16 * 1024];
+            for ( int n = in.read( buffer ); n != -1; n = in.read( buffer ) )
+            {
+                digest.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return digest.digest();
+    }
+
+    private static final class Entry
+    {
+        private final String source;
+
+        private final boolean filtered;
+
+        private long sourceLength;
+
+        private long sourceLastModified;
+
+        private byte[] sourceHash;
+
+        private long destinationLength;
+
+        private long destinationLastModified;
+
+        /**
+         * The expressions looked up while filtering, with the values they resolved to, <code>null</code> if none.
+         * Filled in while the file gets copied, possibly by another thread, and read once the copy has completed.
+         */
+        private final Map<String, String> expressions = new LinkedHashMap<String, String>();
+
+        Entry( String source, boolean filtered )
+        {
+            this.source = source;
+            this.filtered = filtered;
+        }
+    }
+}
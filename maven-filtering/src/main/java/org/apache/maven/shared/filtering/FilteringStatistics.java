@@ -0,0 +1,213 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sums up the files copied and the expressions resolved by resources executions. Once an execution has finished,
+ * {@link DefaultMavenResourcesFiltering} logs the {@link #getSummary() summary}.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @since 1.3
+ */
+public class FilteringStatistics
+    implements FilteringListener
+{
+    /**
+     * The number of files and expressions listed in the summary.
+     */
+    private static final int SUMMARY_SIZE = 10;
+
+    private final List<FileStatistics> files = new ArrayList<FileStatistics>();
+
+    private final Map<String, ExpressionStatistics> expressions = new HashMap<String, ExpressionStatistics>();
+
+    public synchronized void fileCopied( File source, File destination, boolean filtered, long bytes, long nanos,
+                                         int expressions )
+    {
+        files.add( new FileStatistics( source, filtered, bytes, nanos, expressions ) );
+    }
+
+    public synchronized void expressionResolved( String expression, String valueSource, boolean cached, long nanos )
+    {
+        ExpressionStatistics statistics = expressions.get( expression );
+        if ( statistics == null )
+        {
+            statistics = new ExpressionStatistics( expression );
+            expressions.put( expression, statistics );
+        }
+        statistics.valueSource = valueSource;
+        statistics.lookups++;
+        if ( cached )
+        {
+            statistics.cachedLookups++;
+        }
+        statistics.nanos += nanos;
+    }
+
+    /**
+     * @return the number of files copied.
+     */
+    public synchronized int getFileCount()
+    {
+        return files.size();
+    }
+
+    /**
+     * @return how often an expression has been looked up.
+     */
+    public synchronized int getLookupCount( String expression )
+    {
+        ExpressionStatistics statistics = expressions.get( expression );
+        return statistics == null ? 0 : statistics.lookups;
+    }
+
+    /**
+     * @return how often an expression has been answered from the values already known.
+     */
+    public synchronized int getCachedLookupCount( String expression )
+    {
+        ExpressionStatistics statistics = expressions.get( expression );
+        return statistics == null ? 0 : statistics.cachedLookups;
+    }
+
+    /**
+     * @return the totals, followed by the files which took longest to copy and the expressions which took longest
+     *         to look up.
+     */
+    public synchronized String getSummary()
+    {
+        int filtered = 0;
+        long bytes = 0;
+        long nanos = 0;
+        for ( FileStatistics file : files )
+        {
+            filtered += file.filtered ? 1 : 0;
+            bytes += file.bytes;
+            nanos += file.nanos;
+        }
+        int lookups = 0;
+        for ( ExpressionStatistics expression : expressions.values() )
+        {
+            lookups += expression.lookups;
+        }
+
+        String ls = System.getProperty( "line.separator" );
+        StringBuilder summary = new StringBuilder();
+        summary.append( "Copied " ).append( files.size() ).append( " files, " ).append( filtered );
+        summary.append( " filtered, " ).append( bytes ).append( " bytes in " ).append( millis( nanos ) );
+        summary.append( " ms, " ).append( lookups ).append( " lookups of " ).append( expressions.size() );
+        summary.append( " expressions" );
+
+        List<FileStatistics> slowestFiles = new ArrayList<FileStatistics>( files );
+        Collections.sort( slowestFiles, new Comparator<FileStatistics>()
+        {
+            public int compare( FileStatistics a, FileStatistics b )
+            {
+                return a.nanos > b.nanos ? -1 : ( a.nanos < b.nanos ? 1 : 0 );
+            }
+        } );
+        for ( FileStatistics file : slowestFiles.subList( 0, Math.min( SUMMARY_SIZE, slowestFiles.size() ) ) )
+        {
+            summary.append( ls ).append( "  " ).append( millis( file.nanos ) ).append( " ms " );
+            summary.append( file.source.getPath() ).append( ": " ).append( file.bytes ).append( " bytes" );
+            if ( file.filtered )
+            {
+                summary.append( ", " ).append( file.expressions ).append( " expressions" );
+            }
+        }
+
+        List<ExpressionStatistics> slowestExpressions = new ArrayList<ExpressionStatistics>( expressions.values() );
+        Collections.sort( slowestExpressions, new Comparator<ExpressionStatistics>()
+        {
+            public int compare( ExpressionStatistics a, ExpressionStatistics b )
+            {
+                return a.nanos > b.nanos ? -1 : ( a.nanos < b.nanos ? 1 : 0 );
+            }
+        } );
+        for ( ExpressionStatistics expression : slowestExpressions.subList( 0, Math.min( SUMMARY_SIZE,
+                                                                                         slowestExpressions.size() ) ) )
+        {
+            summary.append( ls ).append( "  " ).append( millis( expression.nanos ) ).append( " ms " );
+            summary.append( expression.expression ).append( ": " ).append( expression.lookups );
+            summary.append( " lookups, " ).append( expression.cachedLookups ).append( " cached, " );
+            summary.append( expression.valueSource == null ? "unresolved" : "from " + expression.valueSource );
+        }
+        return summary.toString();
+    }
+
+    public String toString()
+    {
+        return getSummary();
+    }
+
+    private static String millis( long nanos )
+    {
+        return String.valueOf( nanos / 100000 / 10.0 );
+    }
+
+    private static final class FileStatistics
+    {
+        private final File source;
+
+        private final boolean filtered;
+
+        private final long bytes;
+
+        private final long nanos;
+
+        private final int expressions;
+
+        FileStatistics( File source, boolean filtered, long bytes, long nanos, int expressions )
+        {
+            this.source = source;
+            this.filtered = filtered;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.expressions = expressions;
+        }
+    }
+
+    private static final class ExpressionStatistics
+    {
+        private final String expression;
+
+        private String valueSource;
+
+        private int lookups;
+
+        private int cachedLookups;
+
+        private long nanos;
+
+        ExpressionStatistics( String expression )
+        {
+            this.expression = expression;
+        }
+    }
+}
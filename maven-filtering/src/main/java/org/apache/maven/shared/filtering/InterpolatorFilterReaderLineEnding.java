@@ -25,7 +25,6 @@ import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
 
 import java.io.BufferedReader;
-import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 
@@ -39,7 +38,7 @@ import java.io.Reader;
  * @since 1.0
  */
 public class InterpolatorFilterReaderLineEnding
-    extends FilterReader
+    extends AbstractFilterReaderLineEnding
 {
 
     /**
@@ -49,16 +48,6 @@ public class InterpolatorFilterReaderLineEnding
 
     private RecursionInterceptor recursionInterceptor;
 
-    /**
-     * replacement text from a token
-     */
-    private String replaceData = null;
-
-    /**
-     * Index into replacement data
-     */
-    private int replaceIndex = 0;
-
     /**
      * Default begin token.
      */
@@ -94,8 +83,6 @@ public class InterpolatorFilterReaderLineEnding
      */
     private int markLength = 16;
 
-    private boolean eof = false;
-
     /**
      * @param in                        reader to use
      * @param interpolator              interpolator instance to use
@@ -138,65 +125,6 @@ public class InterpolatorFilterReaderLineEnding
 
     }
 
-    /**
-     * Skips characters. This method will block until some characters are available, an I/O error occurs, or the end of
-     * the stream is reached.
-     *
-     * @param n The number of characters to skip
-     * @return the number of characters actually skipped
-     * @throws IllegalArgumentException If <code>n</code> is negative.
-     * @throws IOException              If an I/O error occurs
-     */
-    public long skip( long n )
-        throws IOException
-    {
-        if ( n < 0L )
-        {
-            throw new IllegalArgumentException( "skip value is negative" );
-        }
-
-        for ( long i = 0; i < n; i++ )
-        {
-            if ( read() == -1 )
-            {
-                return i;
-            }
-        }
-        return n;
-    }
-
-    /**
-     * Reads characters into a portion of an array. This method will block until some input is available, an I/O error
-     * occurs, or the end of the stream is reached.
-     *
-     * @param cbuf Destination buffer to write characters to. Must not be <code>null</code>.
-     * @param off  Offset at which to start storing characters.
-     * @param len  Maximum number of characters to read.
-     * @return the number of characters read, or -1 if the end of the stream has been reached
-     * @throws IOException If an I/O error occurs
-     */
-    public int read( char cbuf[], int off, int len )
-        throws IOException
-    {
-        for ( int i = 0; i < len; i++ )
-        {
-            int ch = read();
-            if ( ch == -1 )
-            {
-                if ( i == 0 )
-                {
-                    return -1;
-                }
-                else
-                {
-                    return i;
-                }
-            }
-            cbuf[off + i] = (char) ch;
-        }
-        return len;
-    }
-
     /**
      * Returns the next character in the filtered stream, replacing tokens from the original stream.
      *
@@ -412,6 +340,7 @@ public class InterpolatorFilterReaderLineEnding
             this.escapeString = escapeString;
             this.useEscape = escapeString != null && escapeString.length() >= 1;
             calculateMarkLength();
+            resetTokenStarts();
         }
     }
 
@@ -436,6 +365,20 @@ public class InterpolatorFilterReaderLineEnding
         return this;
     }
 
+    protected char[] getTokenStarts()
+    {
+        StringBuilder starts = new StringBuilder( 2 );
+        if ( beginToken != null && beginToken.length() > 0 )
+        {
+            starts.append( beginToken.charAt( 0 ) );
+        }
+        if ( useEscape )
+        {
+            starts.append( escapeString.charAt( 0 ) );
+        }
+        return starts.toString().toCharArray();
+    }
+
     private void calculateMarkLength()
     {
         markLength = 16;
@@ -80,6 +80,27 @@ public class MavenResourcesExecution
      */
     private boolean supportMultiLineFiltering;
 
+    /**
+     * The number of threads to copy and filter the resources with.
+     *
+     * @since 1.3
+     */
+    private int parallelism = 1;
+
+    /**
+     * The file recording what the resources have been copied from, <code>null</code> to always copy all resources.
+     *
+     * @since 1.3
+     */
+    private File filteringManifest;
+
+    /**
+     * Gets notified about the files copied and expressions resolved, <code>null</code> if none.
+     *
+     * @since 1.3
+     */
+    private FilteringListener filteringListener;
+
     public MavenResourcesExecution()
     {
         // no op
@@ -421,4 +442,77 @@ public class MavenResourcesExecution
     {
         this.supportMultiLineFiltering = supportMultiLineFiltering;
     }
+
+    /**
+     * The number of threads to copy and filter the resources with, 1 by default.
+     *
+     * @since 1.3
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Copies and filters the resources on the given number of threads. All filter wrappers must be thread safe to
+     * use more than one thread.
+     *
+     * @param parallelism the number of threads, at least 1
+     * @since 1.3
+     */
+    public void setParallelism( int parallelism )
+    {
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "parallelism must be at least 1: " + parallelism );
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the file recording what the resources have been copied from, <code>null</code> if not used.
+     * @since 1.3
+     */
+    public File getFilteringManifest()
+    {
+        return filteringManifest;
+    }
+
+    /**
+     * Records per output file what it has been copied from in the given file: the content of the source, and the
+     * values of all expressions filtering used. The next execution with the same manifest file only copies the
+     * resources again whose source or expression values changed, or whose output file has been modified since.
+     * Has no effect if {@link #isOverwrite()} is set, or if filter wrappers other than the default ones are used.
+     *
+     * @param filteringManifest the manifest file, typically located below the build directory, or <code>null</code>
+     *                          to always copy all resources.
+     * @since 1.3
+     */
+    public void setFilteringManifest( File filteringManifest )
+    {
+        this.filteringManifest = filteringManifest;
+    }
+
+    /**
+     * @return the listener notified about the files copied and expressions resolved, <code>null</code> if none.
+     * @since 1.3
+     */
+    public FilteringListener getFilteringListener()
+    {
+        return filteringListener;
+    }
+
+    /**
+     * Notifies a listener about every file copied and every expression resolved. Expressions can only be reported
+     * for the default filter wrappers. If the listener is a {@link FilteringStatistics}, its summary is logged at the
+     * end of the execution.
+     *
+     * @param filteringListener the listener, which needs to be thread safe with a parallelism above 1,
+     *                          <code>null</code> for none
+     * @since 1.3
+     */
+    public void setFilteringListener( FilteringListener filteringListener )
+    {
+        this.filteringListener = filteringListener;
+    }
 }
@@ -0,0 +1,153 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.plexus.interpolation.ValueSource;
+
+/**
+ * A value source which asks a list of value sources for an expression, in order, and remembers the first answer.
+ * <p/>
+ * Lets all files filtered by one execution share the lookups of their expressions, so that for example reflective
+ * lookups like <code>${project.build.directory}</code> are done once instead of once per file. Unresolvable
+ * expressions are remembered as well. Lookups of unknown expressions are serialized, as the wrapped value sources
+ * are not thread safe, answers already known are served without locking.
+ *
+ * @since 1.3
+ */
+class MemoizingValueSource
+    implements ValueSource
+{
+    private static final Object NULL = new Object();
+
+    private final List<ValueSource> valueSources;
+
+    /**
+     * Describes the value sources, for {@link FilteringListener#expressionResolved(String, String, boolean, long)}.
+     */
+    private final List<String> names;
+
+    private final ConcurrentMap<String, Object> answers = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * The names of the value sources which resolved the expressions.
+     */
+    private final ConcurrentMap<String, String> answeredBy = new ConcurrentHashMap<String, String>();
+
+    /**
+     * @param names describe the value sources
+     */
+    MemoizingValueSource( List<ValueSource> valueSources, List<String> names )
+    {
+        this.valueSources = new ArrayList<ValueSource>( valueSources );
+        this.names = new ArrayList<String>( names );
+    }
+
+    public Object getValue( String expression )
+    {
+        Object value = answers.get( expression );
+        if ( value == null )
+        {
+            value = lookupOnce( expression );
+            if ( value == null )
+            {
+                value = answers.get( expression );
+            }
+        }
+        return value == NULL ? null : value;
+    }
+
+    /**
+     * Looks an expression up like {@link #getValue(String)}, and tells the listener how it went.
+     */
+    Object getValue( String expression, FilteringListener listener )
+    {
+        final long start = System.nanoTime();
+        Object value = answers.get( expression );
+        boolean cached = true;
+        if ( value == null )
+        {
+            value = lookupOnce( expression );
+            cached = value == null;
+            if ( cached )
+            {
+                value = answers.get( expression );
+            }
+        }
+        listener.expressionResolved( expression, answeredBy.get( expression ), cached, System.nanoTime() - start );
+        return value == NULL ? null : value;
+    }
+
+    public synchronized List getFeedback()
+    {
+        List<Object> feedback = new ArrayList<Object>();
+        for ( ValueSource valueSource : valueSources )
+        {
+            List sourceFeedback = valueSource.getFeedback();
+            if ( sourceFeedback != null )
+            {
+                feedback.addAll( sourceFeedback );
+            }
+        }
+        return feedback;
+    }
+
+    public synchronized void clearFeedback()
+    {
+        for ( ValueSource valueSource : valueSources )
+        {
+            valueSource.clearFeedback();
+        }
+    }
+
+    /**
+     * Looks an expression up, unless another thread has done so meanwhile.
+     *
+     * @return the answer, <code>null</code> if the expression had already been looked up.
+     */
+    private synchronized Object lookupOnce( String expression )
+    {
+        if ( answers.containsKey( expression ) )
+        {
+            return null;
+        }
+        final Object value = lookup( expression );
+        answers.put( expression, value );
+        return value;
+    }
+
+    private Object lookup( String expression )
+    {
+        for ( int i = 0; i < valueSources.size(); i++ )
+        {
+            Object value = valueSources.get( i ).getValue( expression );
+            if ( value != null )
+            {
+                answeredBy.put( expression, names.get( i ) );
+                return value;
+            }
+        }
+        return NULL;
+    }
+}
@@ -20,7 +20,6 @@ package org.apache.maven.shared.filtering;
  */
 
 import java.io.BufferedReader;
-import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.LinkedHashSet;
@@ -42,7 +41,7 @@ import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
  * @since 1.0
  */
 public class MultiDelimiterInterpolatorFilterReaderLineEnding
-    extends FilterReader
+    extends AbstractFilterReaderLineEnding
 {
 
     /**
@@ -52,16 +51,6 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
 
     private RecursionInterceptor recursionInterceptor;
 
-    /**
-     * replacement text from a token
-     */
-    private String replaceData = null;
-
-    /**
-     * Index into replacement data
-     */
-    private int replaceIndex = 0;
-
     /**
      * Default begin token.
      */
@@ -99,8 +88,6 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
      */
     private int markLength = 16;
 
-    private boolean eof = false;
-
     /**
      * This constructor uses default begin token ${ and default end token }.
      *
@@ -145,12 +132,14 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
 
     public boolean removeDelimiterSpec( String delimiterSpec )
     {
+        resetTokenStarts();
         return delimiters.remove( DelimiterSpecification.parse( delimiterSpec ) );
     }
 
     public MultiDelimiterInterpolatorFilterReaderLineEnding setDelimiterSpecs( Set<String> specs )
     {
         delimiters.clear();
+        resetTokenStarts();
         for ( String spec : specs )
         {
             delimiters.add( DelimiterSpecification.parse( spec ) );
@@ -160,65 +149,6 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
         return this;
     }
 
-    /**
-     * Skips characters. This method will block until some characters are available, an I/O error occurs, or the end of
-     * the stream is reached.
-     *
-     * @param n The number of characters to skip
-     * @return the number of characters actually skipped
-     * @throws IllegalArgumentException If <code>n</code> is negative.
-     * @throws IOException              If an I/O error occurs
-     */
-    public long skip( long n )
-        throws IOException
-    {
-        if ( n < 0L )
-        {
-            throw new IllegalArgumentException( "skip value is negative" );
-        }
-
-        for ( long i = 0; i < n; i++ )
-        {
-            if ( read() == -1 )
-            {
-                return i;
-            }
-        }
-        return n;
-    }
-
-    /**
-     * Reads characters into a portion of an array. This method will block until some input is available, an I/O error
-     * occurs, or the end of the stream is reached.
-     *
-     * @param cbuf Destination buffer to write characters to. Must not be <code>null</code>.
-     * @param off  Offset at which to start storing characters.
-     * @param len  Maximum number of characters to read.
-     * @return the number of characters read, or -1 if the end of the stream has been reached
-     * @throws IOException If an I/O error occurs
-     */
-    public int read( char cbuf[], int off, int len )
-        throws IOException
-    {
-        for ( int i = 0; i < len; i++ )
-        {
-            int ch = read();
-            if ( ch == -1 )
-            {
-                if ( i == 0 )
-                {
-                    return -1;
-                }
-                else
-                {
-                    return i;
-                }
-            }
-            cbuf[off + i] = (char) ch;
-        }
-        return len;
-    }
-
     /**
      * Returns the next character in the filtered stream, replacing tokens from the original stream.
      *
@@ -460,6 +390,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
             this.escapeString = escapeString;
             this.useEscape = escapeString != null && escapeString.length() >= 1;
             calculateMarkLength();
+            resetTokenStarts();
         }
     }
 
@@ -485,6 +416,23 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
         return this;
     }
 
+    protected char[] getTokenStarts()
+    {
+        StringBuilder starts = new StringBuilder( delimiters.size() + 1 );
+        for ( DelimiterSpecification spec : delimiters )
+        {
+            if ( spec.getBegin().length() > 0 )
+            {
+                starts.append( spec.getBegin().charAt( 0 ) );
+            }
+        }
+        if ( useEscape )
+        {
+            starts.append( escapeString.charAt( 0 ) );
+        }
+        return starts.toString().toCharArray();
+    }
+
     private void calculateMarkLength()
     {
         markLength = 16;
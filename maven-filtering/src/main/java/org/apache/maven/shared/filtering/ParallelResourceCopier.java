@@ -0,0 +1,188 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Copies and filters resources for {@link DefaultMavenResourcesFiltering} on a bounded thread pool.
+ * <p/>
+ * Only the copying itself runs on the pool. The destination directories are created by the calling thread, and the
+ * {@link BuildContext} is refreshed from the calling thread in the order the files were submitted, as build context
+ * implementations may be bound to the thread running the build. At most a few copies per thread are queued, and
+ * the first failure stops the submission of further files.
+ *
+ * @since 1.3
+ */
+class ParallelResourceCopier
+{
+
+    private final DefaultMavenFileFilter mavenFileFilter;
+
+    private final BuildContext buildContext;
+
+    private final ExecutorService executor;
+
+    private final int maxPending;
+
+    private final LinkedList<PendingCopy> pending = new LinkedList<PendingCopy>();
+
+    ParallelResourceCopier( DefaultMavenFileFilter mavenFileFilter, BuildContext buildContext, int threads )
+    {
+        this.mavenFileFilter = mavenFileFilter;
+        this.buildContext = buildContext;
+        this.executor = Executors.newFixedThreadPool( threads, new DaemonThreadFactory() );
+        this.maxPending = threads * 4;
+    }
+
+    /**
+     * Queues the copy of a file, waiting for earlier copies if too many are pending.
+     *
+     * @param listener    gets notified once the file has been copied, may be <code>null</code>
+     * @param expressions counts the expressions looked up by the filter wrappers, may be <code>null</code> if not
+     *                    filtering
+     * @throws MavenFilteringException if an earlier copy failed
+     */
+    void copyFile( final File from, final File to, final boolean filtering,
+                   final List<FileUtils.FilterWrapper> filterWrappers, final String encoding,
+                   final boolean overwrite, final FilteringListener listener, final AtomicInteger expressions )
+        throws MavenFilteringException
+    {
+        Future<?> future = executor.submit( new Callable<Void>()
+        {
+            public Void call()
+                throws MavenFilteringException
+            {
+                final long start = System.nanoTime();
+                mavenFileFilter.copyFileContent( from, to, filtering, filterWrappers, encoding, overwrite );
+                if ( listener != null )
+                {
+                    listener.fileCopied( from, to, filtering, from.length(), System.nanoTime() - start,
+                                         expressions == null ? 0 : expressions.get() );
+                }
+                return null;
+            }
+        } );
+        pending.add( new PendingCopy( to, future ) );
+
+        while ( pending.size() > maxPending )
+        {
+            complete( pending.removeFirst() );
+        }
+    }
+
+    /**
+     * Waits for all pending copies.
+     *
+     * @throws MavenFilteringException if a copy failed
+     */
+    void finish()
+        throws MavenFilteringException
+    {
+        while ( !pending.isEmpty() )
+        {
+            complete( pending.removeFirst() );
+        }
+    }
+
+    /**
+     * Stops all workers, cancelling pending copies if {@link #finish()} has not been called.
+     */
+    void close()
+    {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    private void complete( PendingCopy copy )
+        throws MavenFilteringException
+    {
+        try
+        {
+            copy.future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MavenFilteringException( "Interrupted while copying " + copy.to, e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof MavenFilteringException )
+            {
+                throw (MavenFilteringException) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new MavenFilteringException( cause.getMessage(), cause );
+        }
+
+        buildContext.refresh( copy.to );
+    }
+
+    private static final class PendingCopy
+    {
+        private final File to;
+
+        private final Future<?> future;
+
+        PendingCopy( File to, Future<?> future )
+        {
+            this.to = to;
+            this.future = future;
+        }
+    }
+
+    private static final class DaemonThreadFactory
+        implements ThreadFactory
+    {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final String prefix = "MavenResourcesFiltering-" + POOL_NUMBER.incrementAndGet() + "-thread-";
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, prefix + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
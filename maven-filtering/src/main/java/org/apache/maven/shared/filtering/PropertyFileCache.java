@@ -0,0 +1,148 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Remembers resolved property files for {@link PropertyUtils#loadPropertyFile(File, Properties)} across builds
+ * running in the same JVM, for example all modules of a reactor sharing the same filter files.
+ * <p/>
+ * An entry is only reused if the file has the same canonical path, last modification date and size, and if the base
+ * properties and the system properties, which are used to resolve the file, equal the ones it was resolved with.
+ * Files modified less than {@link #TIMESTAMP_RESOLUTION} ago are not cached, as a change right after they have been
+ * read might not change the modification date. The least recently used entries are dropped once there are more than
+ * {@link #MAX_ENTRIES}.
+ *
+ * @since 1.3
+ */
+final class PropertyFileCache
+{
+    /**
+     * The resolution of file modification dates, coarse enough for all common file systems.
+     */
+    static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+    {
+        protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private PropertyFileCache()
+    {
+    }
+
+    /**
+     * @return a copy of the resolved properties, <code>null</code> if the file is not cached.
+     */
+    static Properties get( File propFile, Properties baseProps )
+        throws IOException
+    {
+        final Entry entry;
+        synchronized ( ENTRIES )
+        {
+            entry = ENTRIES.get( getKey( propFile, baseProps ) );
+        }
+        if ( entry == null || !entry.matches( propFile, baseProps ) )
+        {
+            return null;
+        }
+        return copy( entry.resolvedProps );
+    }
+
+    /**
+     * @param lastModified the modification date of the file before it was read
+     * @param length       the size of the file before it was read
+     */
+    static void put( File propFile, long lastModified, long length, Properties baseProps, Properties resolvedProps )
+        throws IOException
+    {
+        if ( System.currentTimeMillis() - lastModified < TIMESTAMP_RESOLUTION )
+        {
+            return;
+        }
+
+        final Entry entry =
+            new Entry( lastModified, length, copy( baseProps ), copy( System.getProperties() ),
+                       copy( resolvedProps ) );
+        synchronized ( ENTRIES )
+        {
+            ENTRIES.put( getKey( propFile, baseProps ), entry );
+        }
+    }
+
+    /**
+     * Several entries for the same file may be cached, as different projects resolve it with different properties.
+     */
+    private static String getKey( File propFile, Properties baseProps )
+        throws IOException
+    {
+        return propFile.getCanonicalPath() + '\0' + ( baseProps == null ? 0 : baseProps.hashCode() );
+    }
+
+    private static Properties copy( Properties properties )
+    {
+        final Properties copy = new Properties();
+        if ( properties != null )
+        {
+            copy.putAll( properties );
+        }
+        return copy;
+    }
+
+    private static final class Entry
+    {
+        private final long lastModified;
+
+        private final long length;
+
+        private final Properties baseProps;
+
+        private final Properties systemProps;
+
+        private final Properties resolvedProps;
+
+        Entry( long lastModified, long length, Properties baseProps, Properties systemProps,
+               Properties resolvedProps )
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.baseProps = baseProps;
+            this.systemProps = systemProps;
+            this.resolvedProps = resolvedProps;
+        }
+
+        boolean matches( File propFile, Properties baseProps )
+        {
+            return propFile.lastModified() == lastModified && propFile.length() == length
+                && this.baseProps.equals( baseProps == null ? new Properties() : baseProps )
+                && systemProps.equals( System.getProperties() );
+        }
+    }
+}
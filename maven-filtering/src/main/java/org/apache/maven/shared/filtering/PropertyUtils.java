@@ -51,6 +51,10 @@ public final class PropertyUtils
      * The properties are resolved iteratively, so if the value of property A refers to property B, 
      * then after resolution the value of property B will contain the value of property B.
      * </p>
+     * <p>
+     * The resolved properties are cached as long as the file, the base properties and the system properties don't
+     * change, so files shared by several projects of a build are only read and resolved once.
+     * </p>
      * 
      * @param propFile The property file to load.
      * @param baseProps Properties containing the initial values to substitute into the properties file.
@@ -65,6 +69,15 @@ public final class PropertyUtils
             throw new FileNotFoundException( propFile.toString() );
         }
 
+        final Properties cachedProps = PropertyFileCache.get( propFile, baseProps );
+        if ( cachedProps != null )
+        {
+            return cachedProps;
+        }
+
+        final long lastModified = propFile.lastModified();
+        final long length = propFile.length();
+
         final Properties fileProps = new Properties();
         final FileInputStream inStream = new FileInputStream( propFile );
         try
@@ -96,6 +109,7 @@ public final class PropertyUtils
             fileProps.setProperty( k, propValue );
         }
 
+        PropertyFileCache.put( propFile, lastModified, length, baseProps, fileProps );
         return fileProps;
     }
 
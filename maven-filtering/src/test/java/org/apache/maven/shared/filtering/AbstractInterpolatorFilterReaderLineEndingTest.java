@@ -100,6 +100,45 @@ public abstract class AbstractInterpolatorFilterReaderLineEndingTest
         assertEquals( "DONE", IOUtil.toString( reader ) );
     }
     
+    @Test
+    public void testBulkReadMatchesSingleCharacterRead()
+        throws Exception
+    {
+        when( interpolator.interpolate( eq( "${a}" ), eq( "" ), isA( RecursionInterceptor.class ) ) )
+            .thenReturn( "DONE_A" );
+
+        StringBuilder text = new StringBuilder();
+        for ( int i = 0; i < 500; i++ )
+        {
+            text.append( "plain text " ).append( i ).append( " ${a} \\${a} $ {a} ${ unterminated\n" );
+            text.append( "${a}${a}\\\\${a}$${a}${" ).append( i % 7 == 0 ? "}" : "a}" ).append( '\n' );
+            for ( int j = 0; j < i % 13; j++ )
+            {
+                text.append( "a longer run without any expression at all\n" );
+            }
+        }
+        text.append( "${a" );
+
+        StringBuilder expected = new StringBuilder();
+        Reader reader = getDollarBracesReader( new StringReader( text.toString() ), interpolator, "\\" );
+        for ( int ch = reader.read(); ch != -1; ch = reader.read() )
+        {
+            expected.append( (char) ch );
+        }
+
+        for ( int size : new int[]{ 1, 3, 64, 4096, 100000 } )
+        {
+            reader = getDollarBracesReader( new StringReader( text.toString() ), interpolator, "\\" );
+            StringBuilder actual = new StringBuilder();
+            char[] buffer = new char[size];
+            for ( int n = reader.read( buffer, 0, size ); n != -1; n = reader.read( buffer, 0, size ) )
+            {
+                actual.append( buffer, 0, n );
+            }
+            assertEquals( "read with buffer size " + size, expected.toString(), actual.toString() );
+        }
+    }
+
     protected abstract Reader getAbc_AbcReader( Reader in, Interpolator interpolator );
     
     protected abstract Reader getAaa_AaaReader( Reader in, Interpolator interpolator );
@@ -0,0 +1,128 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.codehaus.plexus.PlexusTestCase;
+
+public class ByteLevelFilterTest
+    extends PlexusTestCase
+{
+    private static final String TOKEN_STARTS = "$@\\";
+
+    private File directory;
+
+    private List<FileUtils.FilterWrapper> filterWrappers;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        directory = new File( getBasedir(), "target/ByteLevelFilterTest" );
+        directory.mkdirs();
+
+        MavenFileFilter mavenFileFilter = (MavenFileFilter) lookup( MavenFileFilter.class.getName(), "default" );
+
+        Properties properties = new Properties();
+        properties.put( "name", "value" );
+        properties.put( "multi", "line one\nline two" );
+        properties.put( "accent", "\u00e9t\u00e9" );
+        LinkedHashSet<String> delimiters = new LinkedHashSet<String>();
+        delimiters.add( "${*}" );
+        delimiters.add( "@" );
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution();
+        mavenResourcesExecution.setAdditionalProperties( properties );
+        mavenResourcesExecution.setEscapeString( "\\" );
+        mavenResourcesExecution.setDelimiters( delimiters );
+        filterWrappers = mavenFileFilter.getDefaultFilterWrappers( mavenResourcesExecution );
+    }
+
+    public void testExpressions()
+        throws Exception
+    {
+        assertSameAsFilterReaders( "UTF-8", "key=${name}\nother=@name@\n" );
+        assertSameAsFilterReaders( "UTF-8", "plain\n${name}" );
+        assertSameAsFilterReaders( "UTF-8", "${multi} and ${accent}\n\u00e9 ${unknown} @unknown@ mail@example.com\n" );
+        assertSameAsFilterReaders( "UTF-8", "unterminated ${name\n${name}\n" );
+        assertSameAsFilterReaders( "UTF-8", "unterminated at the end ${name" );
+        assertSameAsFilterReaders( "ISO-8859-1", "\u00e9${name}\u00e8\n" );
+        assertSameAsFilterReaders( null, "${name}\n" );
+    }
+
+    public void testEscapes()
+        throws Exception
+    {
+        assertSameAsFilterReaders( "UTF-8", "\\${name} \\@name@ ${name}\n" );
+        assertSameAsFilterReaders( "UTF-8", "C:\\temp\\dir\n\\\n${name}\\" );
+        assertSameAsFilterReaders( "UTF-8", "escape at the end\\" );
+    }
+
+    public void testLargeFile()
+        throws Exception
+    {
+        // plenty of expressions
+        assertSameAsFilterReaders( "UTF-8", largeContent( 7 ) );
+        // few expressions, mostly copied on the byte level
+        assertSameAsFilterReaders( "UTF-8", largeContent( 500 ) );
+    }
+
+    private String largeContent( int expressionLines )
+    {
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; content.length() < 300 * 1024; i++ )
+        {
+            content.append( "line " ).append( i ).append( " \u00e9\u00e8" );
+            if ( i % expressionLines == 0 )
+            {
+                content.append( " ${name} @name@" );
+            }
+            if ( i % 1000 == 0 )
+            {
+                // plain gaps larger than what's filtered along
+                for ( int j = 0; j < ByteLevelFilter.MAX_FILTERED_GAP / 16; j++ )
+                {
+                    content.append( "\nplain plain pla" );
+                }
+            }
+            content.append( '\n' );
+        }
+        return content.toString();
+    }
+
+    private void assertSameAsFilterReaders( String encoding, String content )
+        throws Exception
+    {
+        File from = new File( directory, "from.txt" );
+        File expected = new File( directory, "expected.txt" );
+        File actual = new File( directory, "actual.txt" );
+        FileUtils.fileWrite( from, encoding, content );
+
+        FileUtils.copyFile( from, expected, encoding,
+                            filterWrappers.toArray( new FileUtils.FilterWrapper[filterWrappers.size()] ) );
+        ByteLevelFilter.copyFile( from, actual, encoding, filterWrappers, TOKEN_STARTS );
+
+        assertTrue( content, FileUtils.contentEquals( expected, actual ) );
+    }
+}
@@ -179,6 +179,116 @@ public class DefaultMavenResourcesFilteringTest
         assertFiltering( baseDir, initialImageFile, true, false );
     }
 
+    public void testFilteringStatistics()
+        throws Exception
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        mavenProject.setVersion( "1.0" );
+        Properties projectProperties = new Properties();
+        projectProperties.put( "foo", "bar" );
+        mavenProject.setProperties( projectProperties );
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        File generatedDir = new File( getBasedir(), "target/DefaultMavenResourcesFilteringTest-statistics" );
+        FileUtils.deleteDirectory( generatedDir );
+        generatedDir.mkdirs();
+        for ( int i = 0; i < 20; i++ )
+        {
+            FileUtils.fileWrite( new File( generatedDir, "file" + i + ".txt" ), "UTF-8",
+                                 "${pom.version} ${foo} ${unknown}" );
+        }
+
+        Resource resource = new Resource();
+        resource.setDirectory( generatedDir.getPath() );
+        resource.setFiltering( true );
+        List<Resource> resources = new ArrayList<Resource>();
+        resources.add( resource );
+
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", new ArrayList<String>(),
+                                         new ArrayList<String>(), new StubMavenSession() );
+        mavenResourcesExecution.setParallelism( 2 );
+        FilteringStatistics statistics = new FilteringStatistics();
+        mavenResourcesExecution.setFilteringListener( statistics );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        assertEquals( 20, statistics.getFileCount() );
+        // every expression is resolved once, all further lookups are served from the values known
+        for ( String expression : Arrays.asList( "pom.version", "foo", "unknown" ) )
+        {
+            assertTrue( expression, statistics.getLookupCount( expression ) >= 20 );
+            assertEquals( expression, statistics.getLookupCount( expression ) - 1,
+                          statistics.getCachedLookupCount( expression ) );
+        }
+        String summary = statistics.getSummary();
+        assertTrue( summary, summary.startsWith( "Copied 20 files, 20 filtered" ) );
+        assertTrue( summary, summary.contains( " cached, from project" ) );
+        assertTrue( summary, summary.contains( " cached, from properties" ) );
+        assertTrue( summary, summary.contains( " cached, unresolved" ) );
+    }
+
+    public void testParallelFiltering()
+        throws Exception
+    {
+        File baseDir = new File( "c:\\foo\\bar" );
+        StubMavenProject mavenProject = new StubMavenProject( baseDir );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        Properties projectProperties = new Properties();
+        projectProperties.put( "foo", "bar" );
+        projectProperties.put( "java.version", "zloug" );
+        mavenProject.setProperties( projectProperties );
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+        File initialImageFile = new File( unitFilesDir, "happy_duke.gif" );
+
+        File generatedDir = new File( getBasedir(), "target/DefaultMavenResourcesFilteringTest-generated" );
+        FileUtils.deleteDirectory( generatedDir );
+        for ( int i = 0; i < 100; i++ )
+        {
+            File file = new File( generatedDir, "dir" + ( i % 10 ) + "/file" + i + ".txt" );
+            file.getParentFile().mkdirs();
+            FileUtils.fileWrite( file, "UTF-8", "file " + i + " of ${pom.version} ${foo}" );
+        }
+
+        Resource resource = new Resource();
+        List<Resource> resources = new ArrayList<Resource>();
+        resources.add( resource );
+        resource.setDirectory( unitFilesDir );
+        resource.setFiltering( true );
+
+        Resource generated = new Resource();
+        resources.add( generated );
+        generated.setDirectory( generatedDir.getPath() );
+        generated.setTargetPath( "generated" );
+        generated.setFiltering( true );
+
+        List<String> filtersFile = new ArrayList<String>();
+        filtersFile.add(
+            getBasedir() + "/src/test/units-files/maven-resources-filtering/empty-maven-resources-filtering.txt" );
+
+        List<String> nonFilteredFileExtensions = Collections.singletonList( "gif" );
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", filtersFile,
+                                         nonFilteredFileExtensions, new StubMavenSession() );
+        mavenResourcesExecution.setEscapeString( "\\" );
+        mavenResourcesExecution.setParallelism( 4 );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            File file = new File( outputDirectory, "generated/dir" + ( i % 10 ) + "/file" + i + ".txt" );
+            assertEquals( "file " + i + " of 1.0 bar", FileUtils.fileRead( file, "UTF-8" ) );
+        }
+        FileUtils.deleteDirectory( new File( outputDirectory, "generated" ) );
+        assertFiltering( baseDir, initialImageFile, true, false );
+    }
+
     public void testWithMavenResourcesExecutionWithAdditionnalProperties()
         throws Exception
     {
@@ -0,0 +1,83 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.codehaus.plexus.PlexusTestCase;
+
+public class FileNameInterpolatorTest
+    extends PlexusTestCase
+{
+    private List<FileUtils.FilterWrapper> filterWrappers;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        MavenFileFilter mavenFileFilter = (MavenFileFilter) lookup( MavenFileFilter.class.getName(), "default" );
+
+        Properties properties = new Properties();
+        properties.put( "name", "value" );
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution();
+        mavenResourcesExecution.setAdditionalProperties( properties );
+        mavenResourcesExecution.setEscapeString( "\\" );
+        filterWrappers = mavenFileFilter.getDefaultFilterWrappers( mavenResourcesExecution );
+    }
+
+    public void testPlainName()
+        throws Exception
+    {
+        FileNameInterpolator interpolator = new FileNameInterpolator( filterWrappers );
+        String name = "dir/file.txt";
+        assertSame( name, interpolator.interpolate( name ) );
+    }
+
+    public void testExpressions()
+        throws Exception
+    {
+        FileNameInterpolator interpolator = new FileNameInterpolator( filterWrappers );
+        assertEquals( "dir/value.txt", interpolator.interpolate( "dir/${name}.txt" ) );
+        assertEquals( "value-value", interpolator.interpolate( "@name@-${name}" ) );
+        assertEquals( "${unknown}.txt", interpolator.interpolate( "${unknown}.txt" ) );
+        assertEquals( "${name}.txt", interpolator.interpolate( "\\${name}.txt" ) );
+    }
+
+    public void testCustomFilterWrappers()
+        throws Exception
+    {
+        List<FileUtils.FilterWrapper> custom = new ArrayList<FileUtils.FilterWrapper>( filterWrappers );
+        custom.add( new FileUtils.FilterWrapper()
+        {
+            public Reader getReader( Reader reader )
+            {
+                return new StringReader( "custom" );
+            }
+        } );
+
+        // nothing is known about what custom filter wrappers replace
+        assertEquals( "custom", new FileNameInterpolator( custom ).interpolate( "file.txt" ) );
+    }
+}
@@ -0,0 +1,69 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.codehaus.plexus.PlexusTestCase;
+
+public class FilterTokenScannerTest
+    extends PlexusTestCase
+{
+    private File file;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        file = new File( getBasedir(), "target/FilterTokenScannerTest/file.txt" );
+        file.getParentFile().mkdirs();
+    }
+
+    public void testPlainText()
+        throws Exception
+    {
+        FileUtils.fileWrite( file, "UTF-8", "plain text \u00e9\u00e8 without expressions\n" );
+        assertFalse( FilterTokenScanner.mayContainTokens( file, "UTF-8", "$@\\" ) );
+        assertFalse( FilterTokenScanner.mayContainTokens( file, "ISO-8859-1", "$@\\" ) );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "UTF-8", "$@t" ) );
+    }
+
+    public void testTokens()
+        throws Exception
+    {
+        FileUtils.fileWrite( file, "UTF-8", "text with ${expression}" );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "UTF-8", "$" ) );
+
+        FileUtils.fileWrite( file, "UTF-8", "text with @expression@" );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "UTF-8", "$@" ) );
+        assertFalse( FilterTokenScanner.mayContainTokens( file, "UTF-8", "$" ) );
+    }
+
+    public void testUnsupportedEncodings()
+        throws Exception
+    {
+        FileUtils.fileWrite( file, "UTF-8", "plain text" );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "UTF-16", "$" ) );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "Shift_JIS", "$" ) );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "unknown-encoding", "$" ) );
+        assertTrue( FilterTokenScanner.mayContainTokens( file, "UTF-8", "\u00e9" ) );
+    }
+}
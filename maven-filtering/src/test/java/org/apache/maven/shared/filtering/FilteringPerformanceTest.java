@@ -0,0 +1,306 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Measures the filtering throughput in MB/s, and the bytes allocated per MB filtered where the JVM can tell. Only
+ * allocations of the measuring thread are counted, so parallel copies show less than they allocate.
+ */
+public class FilteringPerformanceTest
+{
+    private static final int CONTENT_SIZE = 4 * 1024 * 1024;
+
+    private static final long MEASURE_NANOS = 2000L * 1000 * 1000;
+
+    /**
+     * Every how many lines an expression occurs, 0 for none.
+     */
+    private static final int[] TOKEN_DENSITIES = { 0, 100, 10, 1 };
+
+    private static final String[][] DELIMITERS = { { "${*}" }, { "${*}", "@" }, { "${*}", "@", "#{*}" } };
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void interpolatorFilterReaderPerformanceTest()
+        throws Exception
+    {
+        for ( int density : TOKEN_DENSITIES )
+        {
+            final String content = createContent( density );
+            for ( final String escapeString : new String[]{ null, "\\" } )
+            {
+                for ( final boolean multiLine : new boolean[]{ false, true } )
+                {
+                    measure( "InterpolatorFilterReaderLineEnding density " + density + ", escape " + escapeString
+                                 + ", multiLine " + multiLine, content.length(), new Filtering()
+                    {
+                        public void run()
+                            throws IOException
+                        {
+                            StringSearchInterpolator interpolator = new StringSearchInterpolator();
+                            interpolator.addValueSource( new PropertiesBasedValueSource( createProperties() ) );
+                            InterpolatorFilterReaderLineEnding reader =
+                                new InterpolatorFilterReaderLineEnding( new StringReader( content ), interpolator,
+                                                                        "${", "}", multiLine );
+                            reader.setInterpolateWithPrefixPattern( false );
+                            reader.setEscapeString( escapeString );
+                            consume( reader );
+                        }
+                    } );
+                }
+            }
+        }
+    }
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void multiDelimiterInterpolatorFilterReaderPerformanceTest()
+        throws Exception
+    {
+        for ( int density : TOKEN_DENSITIES )
+        {
+            final String content = createContent( density );
+            for ( String[] delimiters : DELIMITERS )
+            {
+                final LinkedHashSet<String> delimiterSpecs = new LinkedHashSet<String>( Arrays.asList( delimiters ) );
+                for ( final String escapeString : new String[]{ null, "\\" } )
+                {
+                    for ( final boolean multiLine : new boolean[]{ false, true } )
+                    {
+                        measure( "MultiDelimiterInterpolatorFilterReaderLineEnding density " + density
+                                     + ", delimiters " + delimiterSpecs + ", escape " + escapeString + ", multiLine "
+                                     + multiLine, content.length(), new Filtering()
+                        {
+                            public void run()
+                                throws IOException
+                            {
+                                MultiDelimiterStringSearchInterpolator interpolator =
+                                    new MultiDelimiterStringSearchInterpolator();
+                                interpolator.setDelimiterSpecs( delimiterSpecs );
+                                interpolator.addValueSource( new PropertiesBasedValueSource( createProperties() ) );
+                                interpolator.setEscapeString( escapeString );
+                                MultiDelimiterInterpolatorFilterReaderLineEnding reader =
+                                    new MultiDelimiterInterpolatorFilterReaderLineEnding( new StringReader( content ),
+                                                                                          interpolator, multiLine );
+                                reader.setDelimiterSpecs( delimiterSpecs );
+                                reader.setInterpolateWithPrefixPattern( false );
+                                reader.setEscapeString( escapeString );
+                                consume( reader );
+                            }
+                        } );
+                    }
+                }
+            }
+        }
+    }
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void filterResourcesPerformanceTest()
+        throws Exception
+    {
+        File basedir = new File( PlexusTestCase.getBasedir(), "target/FilteringPerformanceTest" );
+        FileUtils.deleteDirectory( basedir );
+        final File sources = new File( basedir, "sources" );
+        final File target = new File( basedir, "target" );
+
+        // 10 directories with 100 files of 10KB each
+        long size = 0;
+        String content = createContent( 10 ).substring( 0, 10 * 1024 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            File directory = new File( sources, "dir" + i );
+            directory.mkdirs();
+            for ( int j = 0; j < 100; j++ )
+            {
+                FileUtils.fileWrite( new File( directory, "file" + j + ".properties" ), "UTF-8", content );
+                size += content.length();
+            }
+        }
+
+        final Container container = new Container();
+        container.setUp();
+        try
+        {
+            final MavenResourcesFiltering mavenResourcesFiltering = container.lookupMavenResourcesFiltering();
+            for ( final int parallelism : new int[]{ 1, 4 } )
+            {
+                measure( "filterResources parallelism " + parallelism, size, new Filtering()
+                {
+                    public void run()
+                        throws Exception
+                    {
+                        Resource resource = new Resource();
+                        resource.setDirectory( sources.getPath() );
+                        resource.setFiltering( true );
+                        List<Resource> resources = new ArrayList<Resource>();
+                        resources.add( resource );
+
+                        StubMavenProject mavenProject = new StubMavenProject( sources );
+                        mavenProject.setProperties( createProperties() );
+                        MavenResourcesExecution mavenResourcesExecution =
+                            new MavenResourcesExecution( resources, target, mavenProject, "UTF-8",
+                                                         new ArrayList<String>(), new ArrayList<String>(),
+                                                         new StubMavenSession() );
+                        mavenResourcesExecution.setOverwrite( true );
+                        mavenResourcesExecution.setParallelism( parallelism );
+                        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+                    }
+                } );
+            }
+        }
+        finally
+        {
+            container.tearDown();
+        }
+    }
+
+    private static String createContent( int density )
+    {
+        StringBuilder content = new StringBuilder( CONTENT_SIZE + 128 );
+        for ( int line = 0; content.length() < CONTENT_SIZE; line++ )
+        {
+            content.append( "some.property.key" ).append( line ).append( "=a plain value of some property" );
+            if ( density > 0 && line % density == 0 )
+            {
+                content.append( " ${project.name} and ${unknown}" );
+            }
+            content.append( '\n' );
+        }
+        return content.toString();
+    }
+
+    private static Properties createProperties()
+    {
+        Properties properties = new Properties();
+        properties.put( "project.name", "performance test" );
+        return properties;
+    }
+
+    private static void consume( Reader reader )
+        throws IOException
+    {
+        char[] buffer = new char[8192];
+        while ( reader.read( buffer ) != -1 )
+        {
+            // discard
+        }
+        reader.close();
+    }
+
+    private static void measure( String name, long size, Filtering filtering )
+        throws Exception
+    {
+        // warmup
+        for ( int i = 0; i < 3; i++ )
+        {
+            filtering.run();
+        }
+
+        int runs = 0;
+        long allocated = getAllocatedBytes();
+        long startTime = System.nanoTime();
+        long duration;
+        do
+        {
+            filtering.run();
+            runs++;
+            duration = System.nanoTime() - startTime;
+        }
+        while ( duration < MEASURE_NANOS );
+        allocated = allocated < 0 ? -1 : getAllocatedBytes() - allocated;
+
+        double megabytes = (double) size * runs / ( 1024 * 1024 );
+        System.out.println( name + ": " + Math.round( megabytes * 1e9 / duration ) + " MB/s"
+                                + ( allocated < 0 ? "" : ", " + Math.round( allocated / megabytes / 1024 )
+                                    + " KB allocated per MB" ) );
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, -1 if the JVM doesn't tell.
+     */
+    private static long getAllocatedBytes()
+    {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        try
+        {
+            Method method = threadMXBean.getClass().getMethod( "getThreadAllocatedBytes", long.class );
+            method.setAccessible( true );
+            return (Long) method.invoke( threadMXBean, Thread.currentThread().getId() );
+        }
+        catch ( Exception e )
+        {
+            return -1;
+        }
+    }
+
+    private interface Filtering
+    {
+        void run()
+            throws Exception;
+    }
+
+    /**
+     * Sets up the Plexus container to look the components up with.
+     */
+    private static final class Container
+        extends PlexusTestCase
+    {
+        MavenResourcesFiltering lookupMavenResourcesFiltering()
+            throws Exception
+        {
+            return (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+        }
+
+        protected void setUp()
+            throws Exception
+        {
+            super.setUp();
+        }
+
+        protected void tearDown()
+            throws Exception
+        {
+            super.tearDown();
+        }
+    }
+}
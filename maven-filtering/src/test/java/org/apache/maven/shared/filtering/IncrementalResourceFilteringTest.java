@@ -34,6 +34,7 @@ import org.apache.maven.model.Resource;
 import org.apache.maven.shared.utils.io.FileUtils;
 import org.apache.maven.shared.utils.io.IOUtil;
 import org.codehaus.plexus.PlexusTestCase;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
 import org.sonatype.plexus.build.incremental.ThreadBuildContext;
 import org.sonatype.plexus.build.incremental.test.TestIncrementalBuildContext;
 
@@ -156,6 +157,123 @@ public class IncrementalResourceFilteringTest
         assertTrue( ctx.getRefreshFiles().contains( new File( outputDirectory, "file02.txt" ) ) );
     }
 
+    public void testFilteringManifest()
+        throws Exception
+    {
+        ThreadBuildContext.setThreadBuildContext( new DefaultBuildContext() );
+
+        File sourceDirectory = new File( outputDirectory, "manifest-sources" );
+        File targetDirectory = new File( outputDirectory, "manifest-target" );
+        File manifest = new File( outputDirectory, "manifest/filtering.manifest" );
+        sourceDirectory.mkdirs();
+        FileUtils.fileWrite( new File( sourceDirectory, "a.txt" ).getPath(), "UTF-8", "a=${time}" );
+        FileUtils.fileWrite( new File( sourceDirectory, "b.txt" ).getPath(), "UTF-8", "b=${other}" );
+
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "1" );
+        assertEquals( "a=1", FileUtils.fileRead( new File( targetDirectory, "a.txt" ), "UTF-8" ) );
+        assertEquals( "b=foo", FileUtils.fileRead( new File( targetDirectory, "b.txt" ), "UTF-8" ) );
+        assertTrue( manifest.isFile() );
+
+        // only the file using the changed property is copied again, the other one keeps its tampered content
+        tamper( new File( targetDirectory, "a.txt" ) );
+        tamper( new File( targetDirectory, "b.txt" ) );
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "2" );
+        assertEquals( "a=2", FileUtils.fileRead( new File( targetDirectory, "a.txt" ), "UTF-8" ) );
+        assertEquals( "b=###", FileUtils.fileRead( new File( targetDirectory, "b.txt" ), "UTF-8" ) );
+
+        // a touched source with the same content is still up to date
+        File source = new File( sourceDirectory, "b.txt" );
+        source.setLastModified( source.lastModified() + 10000 );
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "2" );
+        assertEquals( "b=###", FileUtils.fileRead( new File( targetDirectory, "b.txt" ), "UTF-8" ) );
+
+        // a changed source is copied again
+        FileUtils.fileWrite( source.getPath(), "UTF-8", "b=${time}" );
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "2" );
+        assertEquals( "b=2", FileUtils.fileRead( new File( targetDirectory, "b.txt" ), "UTF-8" ) );
+
+        // a deleted destination is copied again
+        new File( targetDirectory, "a.txt" ).delete();
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "2" );
+        assertEquals( "a=2", FileUtils.fileRead( new File( targetDirectory, "a.txt" ), "UTF-8" ) );
+    }
+
+    public void testFilteringManifestWithLongValue()
+        throws Exception
+    {
+        ThreadBuildContext.setThreadBuildContext( new DefaultBuildContext() );
+
+        File sourceDirectory = new File( outputDirectory, "manifest-long-sources" );
+        File targetDirectory = new File( outputDirectory, "manifest-long-target" );
+        File manifest = new File( outputDirectory, "manifest-long/filtering.manifest" );
+        sourceDirectory.mkdirs();
+        FileUtils.fileWrite( new File( sourceDirectory, "b.txt" ).getPath(), "UTF-8", "b=${other}" );
+
+        // longer than DataOutputStream.writeUTF can write
+        StringBuilder other = new StringBuilder();
+        while ( other.length() < 70000 )
+        {
+            other.append( "long value " );
+        }
+
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "1", other.toString() );
+        assertEquals( "b=" + other, FileUtils.fileRead( new File( targetDirectory, "b.txt" ), "UTF-8" ) );
+        assertTrue( manifest.isFile() );
+
+        // the manifest can be read again, so the destination is up to date
+        tamper( new File( targetDirectory, "b.txt" ) );
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, "1", other.toString() );
+        assertTrue( FileUtils.fileRead( new File( targetDirectory, "b.txt" ), "UTF-8" ).startsWith( "b=###" ) );
+    }
+
+    /**
+     * Replaces the content of a file without changing its length or modification date.
+     */
+    private void tamper( File file )
+        throws IOException
+    {
+        long lastModified = file.lastModified();
+        String content = FileUtils.fileRead( file, "UTF-8" );
+        FileUtils.fileWrite( file.getPath(), "UTF-8", content.substring( 0, 2 ) + content.substring( 2 ).replaceAll(
+            ".", "#" ) );
+        file.setLastModified( lastModified );
+    }
+
+    private void filterWithManifest( File sourceDirectory, File targetDirectory, File manifest, String time )
+        throws Exception
+    {
+        filterWithManifest( sourceDirectory, targetDirectory, manifest, time, "foo" );
+    }
+
+    private void filterWithManifest( File sourceDirectory, File targetDirectory, File manifest, String time,
+                                     String other )
+        throws Exception
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        Properties projectProperties = new Properties();
+        projectProperties.put( "time", time );
+        projectProperties.put( "other", other );
+        mavenProject.setProperties( projectProperties );
+
+        Resource resource = new Resource();
+        resource.setDirectory( sourceDirectory.getPath() );
+        resource.setFiltering( true );
+        List<Resource> resources = new ArrayList<Resource>();
+        resources.add( resource );
+
+        List<String> filtersFile = new ArrayList<String>();
+        filtersFile.add( new File( unitDirectory, "filters.txt" ).getPath() );
+
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, targetDirectory, mavenProject, "UTF-8", filtersFile,
+                                         new ArrayList<String>(), new StubMavenSession() );
+        mavenResourcesExecution.setFilteringManifest( manifest );
+
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+    }
+
     private void assertTime( String time, String relpath )
         throws IOException
     {
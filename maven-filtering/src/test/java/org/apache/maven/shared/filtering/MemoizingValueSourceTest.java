@@ -0,0 +1,99 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.codehaus.plexus.interpolation.ValueSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class MemoizingValueSourceTest
+{
+    @Mock
+    private ValueSource first;
+
+    @Mock
+    private ValueSource second;
+
+    @Before
+    public void onSetup()
+    {
+        MockitoAnnotations.initMocks( this );
+    }
+
+    @Test
+    public void testFirstAnswerIsLookedUpOnce()
+    {
+        when( first.getValue( "a" ) ).thenReturn( "first" );
+        when( second.getValue( "a" ) ).thenReturn( "second" );
+        when( second.getValue( "b" ) ).thenReturn( "b" );
+
+        ValueSource valueSource =
+            new MemoizingValueSource( Arrays.asList( first, second ), Arrays.asList( "first", "second" ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( "first", valueSource.getValue( "a" ) );
+            assertEquals( "b", valueSource.getValue( "b" ) );
+            assertNull( valueSource.getValue( "unknown" ) );
+        }
+
+        verify( first, times( 1 ) ).getValue( "a" );
+        verify( second, times( 0 ) ).getValue( "a" );
+        verify( first, times( 1 ) ).getValue( "b" );
+        verify( second, times( 1 ) ).getValue( "b" );
+        verify( first, times( 1 ) ).getValue( "unknown" );
+        verify( second, times( 1 ) ).getValue( "unknown" );
+    }
+
+    @Test
+    public void testListenerIsToldWhetherTheAnswerWasCached()
+    {
+        when( second.getValue( "a" ) ).thenReturn( "a" );
+        FilteringListener listener = mock( FilteringListener.class );
+
+        MemoizingValueSource valueSource =
+            new MemoizingValueSource( Arrays.asList( first, second ), Arrays.asList( "first", "second" ) );
+        assertEquals( "a", valueSource.getValue( "a", listener ) );
+        assertEquals( "a", valueSource.getValue( "a", listener ) );
+        assertNull( valueSource.getValue( "unknown", listener ) );
+        assertNull( valueSource.getValue( "unknown", listener ) );
+
+        verify( listener, times( 1 ) ).expressionResolved( eq( "a" ), eq( "second" ), eq( false ), anyLong() );
+        verify( listener, times( 1 ) ).expressionResolved( eq( "a" ), eq( "second" ), eq( true ), anyLong() );
+        verify( listener, times( 1 ) ).expressionResolved( eq( "unknown" ), (String) isNull(), eq( false ),
+                                                             anyLong() );
+        verify( listener, times( 1 ) ).expressionResolved( eq( "unknown" ), (String) isNull(), eq( true ),
+                                                             anyLong() );
+        verify( second, times( 1 ) ).getValue( "a" );
+    }
+}
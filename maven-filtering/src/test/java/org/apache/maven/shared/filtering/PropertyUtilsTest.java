@@ -111,4 +111,32 @@ public class PropertyUtilsTest
         assertEquals( "realVersion", interpolated.get( "bar" ) );
         assertEquals( "none filtered", interpolated.get( "none" ) );
     }
+
+    public void testLoadPropertyFileCached()
+        throws Exception
+    {
+        File propertyFile = new File( testDirectory, "cached.properties" );
+        FileWriter writer = new FileWriter( propertyFile );
+        writer.write( "version=${pom.version}\n" );
+        writer.close();
+        long lastModified = System.currentTimeMillis() - 10000;
+        propertyFile.setLastModified( lastModified );
+
+        Properties baseProps = new Properties();
+        baseProps.put( "pom.version", "1.0" );
+
+        Properties first = PropertyUtils.loadPropertyFile( propertyFile, baseProps );
+        assertEquals( "1.0", first.get( "version" ) );
+        first.put( "version", "modified by the caller" );
+        assertEquals( "1.0", PropertyUtils.loadPropertyFile( propertyFile, baseProps ).get( "version" ) );
+
+        baseProps.put( "pom.version", "2.0" );
+        assertEquals( "2.0", PropertyUtils.loadPropertyFile( propertyFile, baseProps ).get( "version" ) );
+
+        writer = new FileWriter( propertyFile );
+        writer.write( "version=changed ${pom.version}\n" );
+        writer.close();
+        propertyFile.setLastModified( lastModified + 2000 );
+        assertEquals( "changed 2.0", PropertyUtils.loadPropertyFile( propertyFile, baseProps ).get( "version" ) );
+    }
 }
@@ -29,7 +29,12 @@ import org.apache.maven.shared.utils.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Various helper methods to support incremental builds
@@ -40,9 +45,24 @@ public class IncrementalBuildHelper
      * the root directory to store status information about Maven executions in.
      */
     private static final String MAVEN_STATUS_ROOT = "maven-status";
+
+    /**
+     * The text file the created files are stored in. It is still written for the readers of this file and for previous
+     * versions of this helper, but only read if it changed since the {@link #CREATED_FILES_BIN_FILENAME} file got
+     * written.
+     */
     public static final String CREATED_FILES_LST_FILENAME = "createdFiles.lst";
     private static final String INPUT_FILES_LST_FILENAME = "inputFiles.lst";
 
+    /**
+     * The file the created files are stored in, as a sorted and prefix compressed list of paths.
+     * @since 1.2
+     */
+    public static final String CREATED_FILES_BIN_FILENAME = "createdFiles.bin";
+    private static final String INPUT_FILES_BIN_FILENAME = "inputFiles.bin";
+    private static final String INPUT_FINGERPRINTS_FILENAME = "inputFingerprints.bin";
+    private static final String OUTPUT_MAPPING_FILENAME = "outputMapping.bin";
+
     private static final String[] EMPTY_ARRAY = new String[0];
 
     /**
@@ -67,6 +87,36 @@ public class IncrementalBuildHelper
      */
     private String[] filesBeforeAction = new String[0];
 
+    /**
+     * Whether to detect the files created by the Mojo with a snapshot of the output directory.
+     * @see #setUseOutputDirectorySnapshot(boolean)
+     */
+    private boolean useOutputDirectorySnapshot;
+
+    /**
+     * Once the {@link #beforeRebuildExecution(IncrementalBuildHelperRequest)} got called with
+     * {@link #setUseOutputDirectorySnapshot(boolean)} enabled, this will contain the snapshot of the build directory.
+     */
+    private OutputDirectorySnapshot outputDirectorySnapshot;
+
+    /**
+     * Once the {@link #beforeIncrementalRebuildExecution(IncrementalBuildHelperRequest, InputFileChanges)} got
+     * called, this will contain the output files of the input files which did not change.
+     */
+    private OutputMapping outputMapping;
+
+    /**
+     * Once the {@link #beforeIncrementalRebuildExecution(IncrementalBuildHelperRequest, InputFileChanges)} got
+     * called, this will contain the files created in the previous builds which have not been deleted.
+     */
+    private Set<String> createdFilesBeforeAction;
+
+    /**
+     * Once the {@link #detectInputFileChanges(IncrementalBuildHelperRequest)} got called, this will contain the
+     * fingerprints of the current input files, which only get stored once the build succeeded.
+     */
+    private InputFingerprints inputFingerprints;
+
     public IncrementalBuildHelper( MojoExecution mojoExecution, MavenSession mavenSession )
     {
         this( mojoExecution, getMavenProject( mavenSession ) );
@@ -124,6 +174,27 @@ public class IncrementalBuildHelper
         this.directoryScanner = directoryScanner;
     }
 
+    /**
+     * Whether the files created by the Mojo are detected with a snapshot of the output directory.
+     * @since 1.2
+     */
+    public boolean isUseOutputDirectorySnapshot()
+    {
+        return useOutputDirectorySnapshot;
+    }
+
+    /**
+     * Detect the files created by the Mojo with a snapshot of the output directory instead of scanning it
+     * before and after the Mojo task. After the task only the directories whose modification date changed get listed
+     * again. The DirectoryScanner does not get used then, so its includes and excludes don't apply.
+     * @param useOutputDirectorySnapshot
+     * @since 1.2
+     */
+    public void setUseOutputDirectorySnapshot( boolean useOutputDirectorySnapshot )
+    {
+        this.useOutputDirectorySnapshot = useOutputDirectorySnapshot;
+    }
+
     /**
      * We use a specific status directory for each Mojo execution to store state
      * which is needed during the next build invocation run.
@@ -170,21 +241,8 @@ public class IncrementalBuildHelper
         throws MojoExecutionException
     {
         File mojoConfigBase = getMojoStatusDirectory();
-        File mojoConfigFile = new File( mojoConfigBase, INPUT_FILES_LST_FILENAME );
 
-        String[] oldInputFiles = new String[0];
-
-        if ( mojoConfigFile.exists() )
-        {
-            try
-            {
-                oldInputFiles = FileUtils.fileReadArray( mojoConfigFile );
-            }
-            catch( IOException e )
-            {
-                throw new MojoExecutionException( "Error reading old mojo status " + mojoConfigFile, e );
-            }
-        }
+        String[] oldInputFiles = readStatus( mojoConfigBase, INPUT_FILES_BIN_FILENAME, INPUT_FILES_LST_FILENAME );
 
         String[] inputFileNames = new String[ incrementalBuildHelperRequest.getInputFiles().size() ];
         int i = 0;
@@ -192,17 +250,11 @@ public class IncrementalBuildHelper
         {
             inputFileNames[ i++ ] = inputFile.getAbsolutePath();
         }
+        inputFileNames = SortedPathList.sort( inputFileNames );
 
-        DirectoryScanResult dsr = DirectoryScanner.diffFiles( oldInputFiles, inputFileNames );
+        DirectoryScanResult dsr = SortedPathList.diff( oldInputFiles, inputFileNames );
 
-        try
-        {
-            FileUtils.fileWriteArray( mojoConfigFile, inputFileNames );
-        }
-        catch( IOException e )
-        {
-            throw new MojoExecutionException( "Error while storing the mojo status", e );
-        }
+        writeStatus( mojoConfigBase, INPUT_FILES_BIN_FILENAME, INPUT_FILES_LST_FILENAME, inputFileNames );
 
         return ( dsr.getFilesAdded().length > 0 || dsr.getFilesRemoved().length > 0 );
     }
@@ -222,37 +274,65 @@ public class IncrementalBuildHelper
         throws MojoExecutionException
     {
         File mojoConfigBase = getMojoStatusDirectory();
-        File mojoConfigFile = new File( mojoConfigBase, INPUT_FILES_LST_FILENAME );
 
-        String[] oldInputFiles = new String[0];
-
-        if ( mojoConfigFile.exists() )
-        {
-            try
-            {
-                oldInputFiles = FileUtils.fileReadArray( mojoConfigFile );
-            }
-            catch( IOException e )
-            {
-                throw new MojoExecutionException( "Error reading old mojo status " + mojoConfigFile, e );
-            }
-        }
+        String[] oldInputFiles = readStatus( mojoConfigBase, INPUT_FILES_BIN_FILENAME, INPUT_FILES_LST_FILENAME );
 
         dirScanner.scan();
+        String[] inputFiles = SortedPathList.sort( dirScanner.getIncludedFiles() );
+
+        // store away the list of input files
+        writeStatus( mojoConfigBase, INPUT_FILES_BIN_FILENAME, INPUT_FILES_LST_FILENAME, inputFiles );
+
+        DirectoryScanResult dsr = SortedPathList.diff( oldInputFiles, inputFiles );
+
+        return ( dsr.getFilesAdded().length > 0 || dsr.getFilesRemoved().length > 0 );
+    }
+
+    /**
+     * Detect which input files have been added, removed or modified since the last build.
+     * In contrast to {@link #inputFileTreeChanged(IncrementalBuildHelperRequest)} this also detects changed content:
+     * the size, modification date and a content hash of each input file are stored in the mojo status directory.
+     * A file only gets hashed if its size or modification date changed, so touching a file doesn't make it modified.
+     * The fingerprints of the new input files are only stored by
+     * {@link #afterRebuildExecution(IncrementalBuildHelperRequest)} or
+     * {@link #afterIncrementalRebuildExecution(IncrementalBuildHelperRequest)}, so the changes are detected again if
+     * the build fails.
+     * If the stored fingerprints can't be read, all input files count as added.
+     *
+     * @param incrementalBuildHelperRequest
+     * @return the input files which have been added, removed or modified since the last build.
+     * @throws MojoExecutionException
+     * @since 1.2
+     */
+    public InputFileChanges detectInputFileChanges( IncrementalBuildHelperRequest incrementalBuildHelperRequest )
+        throws MojoExecutionException
+    {
+        File mojoConfigFile = new File( getMojoStatusDirectory(), INPUT_FINGERPRINTS_FILENAME );
 
+        InputFingerprints fingerprints;
         try
         {
-            // store away the list of input files
-            FileUtils.fileWriteArray( mojoConfigFile, dirScanner.getIncludedFiles() );
+            fingerprints = InputFingerprints.read( mojoConfigFile );
         }
-        catch( IOException e )
+        catch ( IOException e )
         {
-            throw new MojoExecutionException( "Error while storing new mojo status" + mojoConfigFile, e );
+            // an unreadable status, e.g. of an interrupted build, counts as missing
+            fingerprints = InputFingerprints.empty();
         }
 
-        DirectoryScanResult dsr = dirScanner.diffIncludedFiles( oldInputFiles );
+        InputFileChanges changes;
+        try
+        {
+            changes = fingerprints.update( incrementalBuildHelperRequest.getInputFiles(),
+                                           Runtime.getRuntime().availableProcessors() );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error reading the input files", e );
+        }
 
-        return ( dsr.getFilesAdded().length > 0 || dsr.getFilesRemoved().length > 0 );
+        inputFingerprints = fingerprints;
+        return changes;
     }
 
     /**
@@ -278,22 +358,22 @@ public class IncrementalBuildHelper
         throws MojoExecutionException
     {
         File mojoConfigBase = getMojoStatusDirectory();
-        File mojoConfigFile = new File( mojoConfigBase, CREATED_FILES_LST_FILENAME );
-
-        String[] oldFiles;
 
-        try
+        String[] oldFiles = readStatus( mojoConfigBase, CREATED_FILES_BIN_FILENAME, CREATED_FILES_LST_FILENAME );
+        for ( String oldFileName : oldFiles )
         {
-            oldFiles = FileUtils.fileReadArray( mojoConfigFile );
-            for ( String oldFileName : oldFiles )
-            {
-                File oldFile = new File( incrementalBuildHelperRequest.getOutputDirectory(), oldFileName );
-                oldFile.delete();
-            }
+            File oldFile = new File( incrementalBuildHelperRequest.getOutputDirectory(), oldFileName );
+            oldFile.delete();
         }
-        catch( IOException e )
+
+        // the output files of the previous builds are gone, so is the mapping to them
+        new File( mojoConfigBase, OUTPUT_MAPPING_FILENAME ).delete();
+
+        if ( useOutputDirectorySnapshot )
         {
-            throw new MojoExecutionException( "Error reading old mojo status", e );
+            outputDirectorySnapshot =
+                OutputDirectorySnapshot.take( incrementalBuildHelperRequest.getOutputDirectory() );
+            return oldFiles;
         }
 
         // we remember all files which currently exist in the output directory
@@ -314,6 +394,10 @@ public class IncrementalBuildHelper
      *
      * <p><b>Attention:</b> This method shall only get invoked if the plugin re-creates <b>all</b> the output.</p>
      *
+     * <p>If the request contains the {@link IncrementalBuildHelperRequest#getOutputFiles() output files} of the
+     * input files, they get stored for
+     * {@link #beforeIncrementalRebuildExecution(IncrementalBuildHelperRequest, InputFileChanges)}.</p>
+     *
      * @param incrementalBuildHelperRequest will contains file sources to store if create files are not yet stored
      *
      * @throws MojoExecutionException
@@ -321,38 +405,315 @@ public class IncrementalBuildHelper
     public void afterRebuildExecution( IncrementalBuildHelperRequest incrementalBuildHelperRequest )
         throws MojoExecutionException
     {
-        DirectoryScanner diffScanner = getDirectoryScanner();
-        // now scan the same directory again and create a diff
-        diffScanner.scan();
-        DirectoryScanResult scanResult = diffScanner.diffIncludedFiles( filesBeforeAction );
+        String[] createdFiles;
+        if ( outputDirectorySnapshot != null )
+        {
+            // only list the directories which changed since the snapshot
+            createdFiles = outputDirectorySnapshot.getCreatedFiles();
+            outputDirectorySnapshot = null;
+        }
+        else
+        {
+            DirectoryScanner diffScanner = getDirectoryScanner();
+            // now scan the same directory again and create a diff
+            diffScanner.scan();
+            DirectoryScanResult scanResult =
+                SortedPathList.diff( SortedPathList.sort( filesBeforeAction ),
+                                     SortedPathList.sort( diffScanner.getIncludedFiles() ) );
+            createdFiles = scanResult.getFilesAdded();
+        }
 
         File mojoConfigBase = getMojoStatusDirectory();
-        File mojoConfigFile = new File( mojoConfigBase, CREATED_FILES_LST_FILENAME );
 
+        writeCreatedFiles( mojoConfigBase, createdFiles );
+
+        if ( !incrementalBuildHelperRequest.getOutputFiles().isEmpty() )
+        {
+            OutputMapping mapping = new OutputMapping( incrementalBuildHelperRequest.getOutputDirectory() );
+            for ( Map.Entry<File, Set<File>> entry : incrementalBuildHelperRequest.getOutputFiles().entrySet() )
+            {
+                mapping.put( entry.getKey(), entry.getValue() );
+            }
+            writeOutputMapping( mojoConfigBase, mapping );
+        }
+
+        // in case of clean compile the file is not created so next compile won't see it
+        // we mus create it here
+        if ( !new File( mojoConfigBase, INPUT_FILES_BIN_FILENAME ).exists()
+            && !new File( mojoConfigBase, INPUT_FILES_LST_FILENAME ).exists() )
+        {
+            writeStatus( mojoConfigBase, INPUT_FILES_BIN_FILENAME, INPUT_FILES_LST_FILENAME,
+                         toArrayOfPath( incrementalBuildHelperRequest.getInputFiles() ) );
+        }
+
+        writeInputFingerprints( mojoConfigBase );
+    }
+
+    /**
+     * <p>This method shall get invoked before the actual Mojo task gets triggered, if the plugin only re-creates the
+     * output of the changed input files, e.g. only compiles the modified sources.</p>
+     *
+     * <p>Instead of deleting all files created in the previous build, it only deletes the output files generated
+     * from the input files which were modified or removed, as recorded by
+     * {@link #afterIncrementalRebuildExecution(IncrementalBuildHelperRequest)} or
+     * {@link #afterRebuildExecution(IncrementalBuildHelperRequest)} in the previous build.
+     * The output files of all other input files are kept. Before deleting anything, the stored status forgets these
+     * input files, so a following build still rebuilds them if this one fails.</p>
+     *
+     * <p>If there is no such record, e.g. in the first build, after a full rebuild without output files in the
+     * request, or if the record can't be read, nothing gets deleted and <code>null</code> is returned. The plugin
+     * then has to re-create all the output with
+     * {@link #beforeRebuildExecution(IncrementalBuildHelperRequest)} and
+     * {@link #afterRebuildExecution(IncrementalBuildHelperRequest)} instead.</p>
+     *
+     * @param incrementalBuildHelperRequest
+     * @param changes the changes of the input files, see {@link #detectInputFileChanges(IncrementalBuildHelperRequest)}
+     * @return the output files which got deleted, <code>null</code> if a full rebuild is required.
+     * @throws MojoExecutionException
+     * @since 1.2
+     */
+    public String[] beforeIncrementalRebuildExecution( IncrementalBuildHelperRequest incrementalBuildHelperRequest,
+                                                       InputFileChanges changes )
+        throws MojoExecutionException
+    {
+        File mojoConfigBase = getMojoStatusDirectory();
+        File mojoConfigFile = new File( mojoConfigBase, OUTPUT_MAPPING_FILENAME );
+        OutputMapping mapping;
         try
         {
-            FileUtils.fileWriteArray( mojoConfigFile, scanResult.getFilesAdded() );
+            mapping = OutputMapping.read( mojoConfigFile, incrementalBuildHelperRequest.getOutputDirectory() );
         }
         catch ( IOException e )
         {
-            throw new MojoExecutionException( "Error while storing the mojo status", e );
+            // an unreadable status, e.g. of an interrupted build, counts as missing
+            mapping = null;
+        }
+        if ( mapping == null )
+        {
+            return null;
         }
 
-        // in case of clean compile the file is not created so next compile won't see it
-        // we mus create it here
-        mojoConfigFile = new File( mojoConfigBase, INPUT_FILES_LST_FILENAME );
-        if ( !mojoConfigFile.exists() )
+        createdFilesBeforeAction = new TreeSet<String>(
+            Arrays.asList( readStatus( mojoConfigBase, CREATED_FILES_BIN_FILENAME, CREATED_FILES_LST_FILENAME ) ) );
+
+        List<File> changedFiles = new ArrayList<File>( changes.getModified() );
+        changedFiles.addAll( changes.getRemoved() );
+        List<String> deletedFiles = new ArrayList<String>();
+        for ( File inputFile : changedFiles )
+        {
+            deletedFiles.addAll( Arrays.asList( mapping.remove( inputFile ) ) );
+        }
+        String[] deletedPaths = deletedFiles.toArray( new String[deletedFiles.size()] );
+
+        if ( deletedPaths.length > 0 )
+        {
+            // if the build fails, the next one has to see the changed input files again, even if they get reverted
+            writeOutputMapping( mojoConfigBase, mapping );
+            forgetInputFingerprints( mojoConfigBase, changedFiles );
+            mapping.delete( deletedPaths );
+        }
+
+        createdFilesBeforeAction.removeAll( deletedFiles );
+        outputMapping = mapping;
+
+        return deletedPaths;
+    }
+
+    /**
+     * <p>This method stores the output files generated from each input file, as given by
+     * {@link IncrementalBuildHelperRequest#getOutputFiles()}, together with the ones kept by
+     * {@link #beforeIncrementalRebuildExecution(IncrementalBuildHelperRequest, InputFileChanges)}.</p>
+     *
+     * <p>These output files are also added to the files created in the previous builds,
+     * so a later full rebuild still deletes all of them.</p>
+     *
+     * @param incrementalBuildHelperRequest contains the output files of the input files processed by the Mojo task
+     * @throws MojoExecutionException
+     * @since 1.2
+     */
+    public void afterIncrementalRebuildExecution( IncrementalBuildHelperRequest incrementalBuildHelperRequest )
+        throws MojoExecutionException
+    {
+        if ( outputMapping == null )
+        {
+            throw new IllegalStateException( "beforeIncrementalRebuildExecution has not been invoked "
+                + "or requested a full rebuild" );
+        }
+
+        for ( Map.Entry<File, Set<File>> entry : incrementalBuildHelperRequest.getOutputFiles().entrySet() )
+        {
+            outputMapping.put( entry.getKey(), entry.getValue() );
+        }
+        createdFilesBeforeAction.addAll( Arrays.asList( outputMapping.getRelativeOutputPaths() ) );
+
+        File mojoConfigBase = getMojoStatusDirectory();
+        writeOutputMapping( mojoConfigBase, outputMapping );
+        writeCreatedFiles( mojoConfigBase,
+                           createdFilesBeforeAction.toArray( new String[createdFilesBeforeAction.size()] ) );
+        writeInputFingerprints( mojoConfigBase );
+
+        outputMapping = null;
+        createdFilesBeforeAction = null;
+    }
+
+    /**
+     * Store the fingerprints taken by {@link #detectInputFileChanges(IncrementalBuildHelperRequest)}, if any,
+     * once the build succeeded.
+     */
+    private void writeInputFingerprints( File mojoConfigBase )
+        throws MojoExecutionException
+    {
+        if ( inputFingerprints == null )
+        {
+            return;
+        }
+
+        File mojoConfigFile = new File( mojoConfigBase, INPUT_FINGERPRINTS_FILENAME );
+        try
+        {
+            inputFingerprints.write( mojoConfigFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while storing the mojo status " + mojoConfigFile, e );
+        }
+        inputFingerprints = null;
+    }
+
+    /**
+     * Drop the stored fingerprints of input files whose output files are about to be deleted, so they count as added
+     * until a build succeeds.
+     */
+    private void forgetInputFingerprints( File mojoConfigBase, List<File> inputFiles )
+        throws MojoExecutionException
+    {
+        File mojoConfigFile = new File( mojoConfigBase, INPUT_FINGERPRINTS_FILENAME );
+        InputFingerprints fingerprints;
+        try
+        {
+            fingerprints = InputFingerprints.read( mojoConfigFile );
+        }
+        catch ( IOException e )
+        {
+            // all input files count as added anyway
+            return;
+        }
+
+        fingerprints.forget( inputFiles );
+        try
+        {
+            fingerprints.write( mojoConfigFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while storing the mojo status " + mojoConfigFile, e );
+        }
+    }
+
+    private void writeOutputMapping( File mojoConfigBase, OutputMapping mapping )
+        throws MojoExecutionException
+    {
+        File mojoConfigFile = new File( mojoConfigBase, OUTPUT_MAPPING_FILENAME );
+        try
+        {
+            mapping.write( mojoConfigFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while storing the mojo status " + mojoConfigFile, e );
+        }
+    }
+
+    /**
+     * Read a sorted list of paths from the mojo status directory,
+     * falling back to the text file if it changed since the binary file got written, e.g. by a previous version of
+     * this helper. The binary file records the length and modification date of the text file it was written along
+     * with, so this doesn't depend on the timestamp resolution of the file system.
+     * An unreadable binary file, e.g. of an interrupted build or an older format, is skipped as well.
+     * An unreadable status counts as missing, which leads to a full rebuild.
+     */
+    private String[] readStatus( File mojoConfigBase, String binFileName, String lstFileName )
+    {
+        File binFile = new File( mojoConfigBase, binFileName );
+        File lstFile = new File( mojoConfigBase, lstFileName );
+        if ( binFile.exists() )
         {
             try
             {
-                FileUtils.fileWriteArray( mojoConfigFile, toArrayOfPath( incrementalBuildHelperRequest.getInputFiles() ));
+                String[] paths = SortedPathList.read( binFile, lstFile );
+                if ( paths != null )
+                {
+                    return paths;
+                }
             }
             catch ( IOException e )
             {
-                throw new MojoExecutionException( "Error while storing the mojo status", e );
+                // the text file is written along, if at all
             }
         }
 
+        try
+        {
+            if ( lstFile.exists() )
+            {
+                return SortedPathList.sort( FileUtils.fileReadArray( lstFile ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            // treated as missing
+        }
+
+        return EMPTY_ARRAY;
+    }
+
+    /**
+     * Store the created files in the mojo status directory, in the text file first
+     * so the binary file can record its state.
+     */
+    private void writeCreatedFiles( File mojoConfigBase, String[] createdFiles )
+        throws MojoExecutionException
+    {
+        File mojoConfigFile = new File( mojoConfigBase, CREATED_FILES_LST_FILENAME );
+        try
+        {
+            FileUtils.fileWriteArray( mojoConfigFile, createdFiles );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while storing the mojo status " + mojoConfigFile, e );
+        }
+
+        mojoConfigFile = new File( mojoConfigBase, CREATED_FILES_BIN_FILENAME );
+        try
+        {
+            SortedPathList.write( mojoConfigFile, createdFiles,
+                                  new File( mojoConfigBase, CREATED_FILES_LST_FILENAME ) );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while storing the mojo status " + mojoConfigFile, e );
+        }
+    }
+
+    /**
+     * Store a list of paths in the mojo status directory, after removing the text file written by previous versions.
+     */
+    private void writeStatus( File mojoConfigBase, String binFileName, String lstFileName, String[] paths )
+        throws MojoExecutionException
+    {
+        File lstFile = new File( mojoConfigBase, lstFileName );
+        lstFile.delete();
+
+        File mojoConfigFile = new File( mojoConfigBase, binFileName );
+        try
+        {
+            SortedPathList.write( mojoConfigFile, paths, lstFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while storing the mojo status " + mojoConfigFile, e );
+        }
     }
 
     private String[] toArrayOfPath( Set<File> files )
@@ -19,7 +19,9 @@ package org.apache.maven.shared.incremental;
  */
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -32,6 +34,8 @@ public class IncrementalBuildHelperRequest
 
     private File outputDirectory;
 
+    private Map<File, Set<File>> outputFiles;
+
     public IncrementalBuildHelperRequest()
     {
         // no op
@@ -72,4 +76,34 @@ public class IncrementalBuildHelperRequest
         this.outputDirectory = outputDirectory;
         return this;
     }
+
+    /**
+     * The output files generated from each input file, e.g. the class files compiled from a source file.
+     * @since 1.2
+     */
+    public Map<File, Set<File>> getOutputFiles()
+    {
+        if ( outputFiles == null )
+        {
+            this.outputFiles = new HashMap<File, Set<File>>();
+        }
+        return outputFiles;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public void setOutputFiles( Map<File, Set<File>> outputFiles )
+    {
+        this.outputFiles = outputFiles;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public IncrementalBuildHelperRequest outputFiles( Map<File, Set<File>> outputFiles )
+    {
+        this.outputFiles = outputFiles;
+        return this;
+    }
 }
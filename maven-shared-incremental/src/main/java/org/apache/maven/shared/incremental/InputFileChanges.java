@@ -0,0 +1,83 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The input files which have been added, removed or modified since the previous build, as detected by
+ * {@link IncrementalBuildHelper#detectInputFileChanges(IncrementalBuildHelperRequest)}.
+ *
+ * @since 1.2
+ */
+public class InputFileChanges
+{
+    private final Set<File> added;
+
+    private final Set<File> removed;
+
+    private final Set<File> modified;
+
+    InputFileChanges( Set<File> added, Set<File> removed, Set<File> modified )
+    {
+        this.added = Collections.unmodifiableSet( added );
+        this.removed = Collections.unmodifiableSet( removed );
+        this.modified = Collections.unmodifiableSet( modified );
+    }
+
+    /**
+     * @return the input files which were not part of the previous build.
+     */
+    public Set<File> getAdded()
+    {
+        return added;
+    }
+
+    /**
+     * @return the input files of the previous build which are no input files anymore.
+     */
+    public Set<File> getRemoved()
+    {
+        return removed;
+    }
+
+    /**
+     * @return the input files whose content changed since the previous build.
+     */
+    public Set<File> getModified()
+    {
+        return modified;
+    }
+
+    /**
+     * @return <code>true</code> if any input file has been added, removed or modified.
+     */
+    public boolean hasChanges()
+    {
+        return !added.isEmpty() || !removed.isEmpty() || !modified.isEmpty();
+    }
+
+    public String toString()
+    {
+        return "added " + added + ", removed " + removed + ", modified " + modified;
+    }
+}
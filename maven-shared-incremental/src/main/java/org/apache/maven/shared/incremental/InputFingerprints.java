@@ -0,0 +1,344 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.apache.maven.shared.utils.io.IOUtil;
+
+/**
+ * The size, modification date and content hash of the input files of a build, stored in the mojo status directory.
+ * <p/>
+ * The content of a file is only hashed if its size or modification date changed, so touched files don't count as
+ * modified. The hashes are computed on a bounded thread pool.
+ *
+ * @since 1.2
+ */
+class InputFingerprints
+{
+    private static final int MAGIC = 0x4D494650;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Files modified less than this many milliseconds before being hashed might change again without their
+     * modification date changing, so they are hashed again next time.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    /**
+     * The fingerprints keyed by the absolute paths of the files.
+     */
+    private Map<String, Fingerprint> fingerprints;
+
+    private InputFingerprints( Map<String, Fingerprint> fingerprints )
+    {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * @return no fingerprints, all input files count as added.
+     */
+    static InputFingerprints empty()
+    {
+        return new InputFingerprints( new HashMap<String, Fingerprint>() );
+    }
+
+    /**
+     * @return the fingerprints stored in a file, none if it doesn't exist.
+     * @throws IOException if the file can't be read or has an unknown format
+     */
+    static InputFingerprints read( File file )
+        throws IOException
+    {
+        final Map<String, Fingerprint> fingerprints = new HashMap<String, Fingerprint>();
+        if ( !file.isFile() )
+        {
+            return new InputFingerprints( fingerprints );
+        }
+
+        final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+        try
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+            {
+                throw new IOException( "Unknown format of " + file );
+            }
+
+            final int count = in.readInt();
+            for ( int i = 0; i < count; i++ )
+            {
+                fingerprints.put( in.readUTF(), new Fingerprint( in.readLong(), in.readLong(), in.readLong() ) );
+            }
+            return new InputFingerprints( fingerprints );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Writes the fingerprints to a temporary file, which then replaces the file.
+     */
+    void write( File file )
+        throws IOException
+    {
+        final File tempFile = StatusFiles.createTempFile( file );
+        final DataOutputStream out =
+            new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( fingerprints.size() );
+            for ( Map.Entry<String, Fingerprint> entry : fingerprints.entrySet() )
+            {
+                out.writeUTF( entry.getKey() );
+                out.writeLong( entry.getValue().length );
+                out.writeLong( entry.getValue().lastModified );
+                out.writeLong( entry.getValue().hash );
+            }
+            out.close();
+            StatusFiles.replace( tempFile, file );
+        }
+        finally
+        {
+            IOUtil.close( out );
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Drops the fingerprints of files, so they count as added the next time.
+     *
+     * @param files the files to forget
+     */
+    void forget( Collection<File> files )
+    {
+        for ( File file : files )
+        {
+            fingerprints.remove( file.getAbsolutePath() );
+        }
+    }
+
+    /**
+     * Compares the input files with the fingerprints, and replaces the fingerprints with the ones of the input files.
+     *
+     * @param inputFiles the current input files
+     * @param threads    the number of threads to hash the files with
+     * @return the changes since the fingerprints were taken.
+     * @throws IOException if an input file can't be read
+     */
+    InputFileChanges update( Collection<File> inputFiles, int threads )
+        throws IOException
+    {
+        final Map<String, Fingerprint> updated = new HashMap<String, Fingerprint>( inputFiles.size() * 2 );
+        final List<File> toHash = new ArrayList<File>();
+        for ( File inputFile : inputFiles )
+        {
+            final String path = inputFile.getAbsolutePath();
+            final Fingerprint fingerprint = fingerprints.get( path );
+            if ( fingerprint != null && fingerprint.lastModified != 0 && fingerprint.length == inputFile.length()
+                && fingerprint.lastModified == inputFile.lastModified() )
+            {
+                updated.put( path, fingerprint );
+            }
+            else
+            {
+                toHash.add( inputFile.getAbsoluteFile() );
+            }
+        }
+
+        final TreeSet<File> added = new TreeSet<File>();
+        final TreeSet<File> modified = new TreeSet<File>();
+        final List<Fingerprint> hashed = fingerprint( toHash, threads );
+        for ( int i = 0; i < toHash.size(); i++ )
+        {
+            final String path = toHash.get( i ).getPath();
+            final Fingerprint previous = fingerprints.get( path );
+            final Fingerprint current = hashed.get( i );
+            if ( previous == null )
+            {
+                added.add( toHash.get( i ) );
+            }
+            else if ( previous.length != current.length || previous.hash != current.hash )
+            {
+                modified.add( toHash.get( i ) );
+            }
+            updated.put( path, current );
+        }
+
+        final TreeSet<File> removed = new TreeSet<File>();
+        for ( String path : fingerprints.keySet() )
+        {
+            if ( !updated.containsKey( path ) )
+            {
+                removed.add( new File( path ) );
+            }
+        }
+
+        fingerprints = updated;
+        return new InputFileChanges( added, removed, modified );
+    }
+
+    private static List<Fingerprint> fingerprint( List<File> files, int threads )
+        throws IOException
+    {
+        final List<Fingerprint> fingerprints = new ArrayList<Fingerprint>( files.size() );
+        if ( threads < 2 || files.size() < 2 )
+        {
+            for ( File file : files )
+            {
+                fingerprints.add( fingerprint( file ) );
+            }
+            return fingerprints;
+        }
+
+        final ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( threads, files.size() ), new DaemonThreadFactory() );
+        try
+        {
+            final List<Future<Fingerprint>> futures = new ArrayList<Future<Fingerprint>>( files.size() );
+            for ( final File file : files )
+            {
+                futures.add( executor.submit( new Callable<Fingerprint>()
+                {
+                    public Fingerprint call()
+                        throws IOException
+                    {
+                        return fingerprint( file );
+                    }
+                } ) );
+            }
+
+            for ( Future<Fingerprint> future : futures )
+            {
+                fingerprints.add( future.get() );
+            }
+            return fingerprints;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while hashing input files" );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+            // hashing only throws IOExceptions
+            throw (IOException) e.getCause();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Fingerprint fingerprint( File file )
+        throws IOException
+    {
+        final long lastModified = file.lastModified();
+        final CRC32 crc = new CRC32();
+        long length = 0;
+        final InputStream in = new FileInputStream( file );
+        try
+        {
+            final byte[] buffer = new byte[16 * 1024];
+            for ( int n = in.read( buffer ); n != -1; n = in.read( buffer ) )
+            {
+                crc.update( buffer, 0, n );
+                length += n;
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        final boolean recent = System.currentTimeMillis() - lastModified < TIMESTAMP_RESOLUTION;
+        return new Fingerprint( length, recent ? 0 : lastModified, crc.getValue() );
+    }
+
+    private static final class Fingerprint
+    {
+        private final long length;
+
+        /**
+         * The modification date when the file was hashed, 0 to hash it again next time.
+         */
+        private final long lastModified;
+
+        private final long hash;
+
+        Fingerprint( long length, long lastModified, long hash )
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private static final class DaemonThreadFactory
+        implements ThreadFactory
+    {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final String prefix = "IncrementalBuildHelper-" + POOL_NUMBER.incrementAndGet() + "-thread-";
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, prefix + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.shared.utils.io.Java7Support;
+
+/**
+ * The files and modification dates of the directories of an output directory, to find the files created after the
+ * snapshot got taken without listing every directory again.
+ * <p/>
+ * Creating a file updates the modification date of its directory, so only directories whose modification date
+ * changed, and directories modified too shortly before the snapshot to tell, need to be listed again. All other
+ * directories only get their modification date checked. Taking the snapshot still lists the whole tree once, only
+ * the walk after the build gets cheaper.
+ * <p/>
+ * Symbolic links to directories are taken as files and not followed, so a link back to a parent can't recurse
+ * endlessly.
+ *
+ * @since 1.2
+ */
+final class OutputDirectorySnapshot
+{
+    /**
+     * Directories modified less than this many milliseconds before the snapshot might get files added without their
+     * modification date changing.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final File baseDir;
+
+    private final long snapshotTime;
+
+    /**
+     * The base directory, <code>null</code> if it didn't exist.
+     */
+    private final Node root;
+
+    private OutputDirectorySnapshot( File baseDir, long snapshotTime, Node root )
+    {
+        this.baseDir = baseDir;
+        this.snapshotTime = snapshotTime;
+        this.root = root;
+    }
+
+    /**
+     * @param baseDir the output directory
+     * @return a snapshot of the files and directories in the output directory.
+     */
+    static OutputDirectorySnapshot take( File baseDir )
+    {
+        final long snapshotTime = System.currentTimeMillis();
+        return new OutputDirectorySnapshot( baseDir, snapshotTime, baseDir.isDirectory() ? list( baseDir ) : null );
+    }
+
+    /**
+     * @return the paths relative to the output directory of the files created since the snapshot got taken.
+     */
+    String[] getCreatedFiles()
+    {
+        final List<String> created = new ArrayList<String>();
+        if ( root == null )
+        {
+            addAll( baseDir, "", created );
+        }
+        else
+        {
+            collectCreated( baseDir, "", root, created );
+        }
+        return created.toArray( new String[created.size()] );
+    }
+
+    private static Node list( File dir )
+    {
+        final Node node = new Node( dir.lastModified() );
+        final String[] names = dir.list();
+        if ( names != null )
+        {
+            for ( String name : names )
+            {
+                File file = new File( dir, name );
+                if ( isDirectory( file ) )
+                {
+                    node.dirs.put( name, list( file ) );
+                }
+                else
+                {
+                    node.files.add( name );
+                }
+            }
+        }
+        return node;
+    }
+
+    private void collectCreated( File dir, String prefix, Node node, List<String> created )
+    {
+        final long lastModified = dir.lastModified();
+        if ( lastModified == 0 )
+        {
+            // removed in the meantime
+            return;
+        }
+
+        if ( lastModified == node.lastModified && lastModified <= snapshotTime - TIMESTAMP_RESOLUTION )
+        {
+            for ( Map.Entry<String, Node> entry : node.dirs.entrySet() )
+            {
+                collectCreated( new File( dir, entry.getKey() ), prefix + entry.getKey() + File.separator,
+                                entry.getValue(), created );
+            }
+            return;
+        }
+
+        final String[] names = dir.list();
+        if ( names == null )
+        {
+            return;
+        }
+        for ( String name : names )
+        {
+            File file = new File( dir, name );
+            if ( isDirectory( file ) )
+            {
+                Node child = node.dirs.get( name );
+                if ( child == null )
+                {
+                    addAll( file, prefix + name + File.separator, created );
+                }
+                else
+                {
+                    collectCreated( file, prefix + name + File.separator, child, created );
+                }
+            }
+            else if ( !node.files.contains( name ) )
+            {
+                created.add( prefix + name );
+            }
+        }
+    }
+
+    private static void addAll( File dir, String prefix, List<String> created )
+    {
+        final String[] names = dir.list();
+        if ( names == null )
+        {
+            return;
+        }
+        for ( String name : names )
+        {
+            File file = new File( dir, name );
+            if ( isDirectory( file ) )
+            {
+                addAll( file, prefix + name + File.separator, created );
+            }
+            else
+            {
+                created.add( prefix + name );
+            }
+        }
+    }
+
+    /**
+     * @param file the file to check
+     * @return whether the file is a directory and not a symbolic link to one.
+     */
+    private static boolean isDirectory( File file )
+    {
+        if ( !file.isDirectory() )
+        {
+            return false;
+        }
+        if ( Java7Support.isJava7() )
+        {
+            return !Java7Support.isSymLink( file );
+        }
+        try
+        {
+            File resolved = new File( file.getParentFile().getCanonicalFile(), file.getName() );
+            return resolved.getAbsolutePath().equals( resolved.getCanonicalPath() );
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    private static final class Node
+    {
+        private final long lastModified;
+
+        private final Set<String> files = new HashSet<String>();
+
+        private final Map<String, Node> dirs = new HashMap<String, Node>();
+
+        Node( long lastModified )
+        {
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.maven.shared.utils.io.IOUtil;
+
+/**
+ * The output files generated from each input file of a build, stored in the mojo status directory.
+ * <p/>
+ * Input files are stored by their absolute path. Output files inside the output directory are stored relative to it,
+ * all others by their absolute path.
+ *
+ * @since 1.2
+ */
+final class OutputMapping
+{
+    private static final int MAGIC = 0x4D4F4D50;
+
+    private static final int VERSION = 1;
+
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    private final File outputDirectory;
+
+    private final Map<String, String[]> outputs = new TreeMap<String, String[]>();
+
+    /**
+     * @param outputDirectory the output directory
+     */
+    OutputMapping( File outputDirectory )
+    {
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * @param file            the file written by {@link #write(File)}
+     * @param outputDirectory the output directory
+     * @return the stored mapping, <code>null</code> if the file doesn't exist.
+     * @throws IOException if the file can't be read or has an unknown format
+     */
+    static OutputMapping read( File file, File outputDirectory )
+        throws IOException
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+
+        final OutputMapping mapping = new OutputMapping( outputDirectory );
+
+        final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+        try
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+            {
+                throw new IOException( "Unknown format of " + file );
+            }
+
+            final int count = in.readInt();
+            for ( int i = 0; i < count; i++ )
+            {
+                String input = in.readUTF();
+                int outputCount = in.readInt();
+                // each path takes at least two bytes, don't allocate a garbled count
+                if ( outputCount < 0 || outputCount > file.length() / 2 )
+                {
+                    throw new IOException( "Corrupt file " + file );
+                }
+                String[] paths = new String[outputCount];
+                for ( int j = 0; j < paths.length; j++ )
+                {
+                    paths[j] = in.readUTF();
+                }
+                mapping.outputs.put( input, paths );
+            }
+            return mapping;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Writes the mapping to a temporary file, which then replaces the file.
+     */
+    void write( File file )
+        throws IOException
+    {
+        final File tempFile = StatusFiles.createTempFile( file );
+        final DataOutputStream out =
+            new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( outputs.size() );
+            for ( Map.Entry<String, String[]> entry : outputs.entrySet() )
+            {
+                out.writeUTF( entry.getKey() );
+                out.writeInt( entry.getValue().length );
+                for ( String path : entry.getValue() )
+                {
+                    out.writeUTF( path );
+                }
+            }
+            out.close();
+            StatusFiles.replace( tempFile, file );
+        }
+        finally
+        {
+            IOUtil.close( out );
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * @param inputFile   the input file
+     * @param outputFiles the output files generated from the input file, replacing the previous ones
+     */
+    void put( File inputFile, Set<File> outputFiles )
+    {
+        final String[] paths = new String[outputFiles.size()];
+        int i = 0;
+        for ( File outputFile : outputFiles )
+        {
+            paths[i++] = toPath( outputFile );
+        }
+        outputs.put( inputFile.getAbsolutePath(), paths );
+    }
+
+    /**
+     * Removes an input file. The output files generated from it are not deleted, see {@link #delete(String[])}.
+     *
+     * @param inputFile the input file
+     * @return the paths of the output files of the input file.
+     */
+    String[] remove( File inputFile )
+    {
+        final String[] paths = outputs.remove( inputFile.getAbsolutePath() );
+        return paths == null ? EMPTY_ARRAY : paths;
+    }
+
+    /**
+     * Deletes output files.
+     *
+     * @param paths the paths of the output files, as returned by {@link #remove(File)}
+     */
+    void delete( String[] paths )
+    {
+        for ( String path : paths )
+        {
+            toFile( path ).delete();
+        }
+    }
+
+    /**
+     * @return the paths relative to the output directory of all output files inside it.
+     */
+    String[] getRelativeOutputPaths()
+    {
+        final List<String> paths = new ArrayList<String>();
+        for ( String[] outputPaths : outputs.values() )
+        {
+            for ( String path : outputPaths )
+            {
+                if ( !new File( path ).isAbsolute() )
+                {
+                    paths.add( path );
+                }
+            }
+        }
+        return paths.toArray( new String[paths.size()] );
+    }
+
+    private String toPath( File outputFile )
+    {
+        final String path = outputFile.getAbsolutePath();
+        final String base = outputDirectory.getAbsolutePath() + File.separator;
+        return path.startsWith( base ) ? path.substring( base.length() ) : path;
+    }
+
+    private File toFile( String path )
+    {
+        final File file = new File( path );
+        return file.isAbsolute() ? file : new File( outputDirectory, path );
+    }
+}
@@ -0,0 +1,322 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.shared.utils.io.DirectoryScanResult;
+import org.apache.maven.shared.utils.io.IOUtil;
+
+/**
+ * Reads and writes sorted lists of paths in a compact binary format, and diffs them.
+ * <p/>
+ * Each path only stores the characters which differ from the previous path, so the deep and similar paths of a
+ * source or output tree take little space. As both lists of a diff are sorted, it is computed by merging them.
+ * <p/>
+ * The file is read into memory with a single channel read and decoded from there. It isn't memory mapped, as a
+ * mapped file can't be replaced on Windows until the mapping got garbage collected, and the status files are
+ * rewritten right after being read.
+ * <p/>
+ * A file can be tied to a text file with the same paths, e.g. for readers which don't know this format. The length
+ * and modification date of the text file are then stored in the header, so a text file written later by someone else
+ * is detected regardless of the timestamp resolution of the file system.
+ *
+ * @since 1.2
+ */
+final class SortedPathList
+{
+    private static final int MAGIC = 0x4D53504C;
+
+    private static final int VERSION = 2;
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    private SortedPathList()
+    {
+    }
+
+    /**
+     * @param paths the paths
+     * @return a sorted copy of the paths.
+     */
+    static String[] sort( String[] paths )
+    {
+        String[] sorted = new String[paths.length];
+        System.arraycopy( paths, 0, sorted, 0, paths.length );
+        Arrays.sort( sorted );
+        return sorted;
+    }
+
+    /**
+     * @param file the file written by {@link #write(File, String[])}
+     * @return the sorted paths.
+     * @throws IOException if the file can't be read or has an unknown format
+     */
+    static String[] read( File file )
+        throws IOException
+    {
+        return read( file, null );
+    }
+
+    /**
+     * @param file     the file written by {@link #write(File, String[], File)}
+     * @param textFile the text file the file was written along with, <code>null</code> to not check it
+     * @return the sorted paths, <code>null</code> if the text file got written or removed since.
+     * @throws IOException if the file can't be read or has an unknown format
+     */
+    static String[] read( File file, File textFile )
+        throws IOException
+    {
+        ByteBuffer buffer;
+        FileInputStream in = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = in.getChannel();
+            buffer = ByteBuffer.allocate( (int) channel.size() );
+            while ( buffer.hasRemaining() )
+            {
+                if ( channel.read( buffer ) < 0 )
+                {
+                    throw new EOFException( "Unexpected end of " + file );
+                }
+            }
+            buffer.flip();
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        if ( buffer.remaining() < 28 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION )
+        {
+            throw new IOException( "Unknown format of " + file );
+        }
+
+        final long textFileLength = buffer.getLong();
+        final long textFileLastModified = buffer.getLong();
+        if ( textFile != null
+            && ( textFileLength != length( textFile ) || textFileLastModified != textFile.lastModified() ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            final byte[] bytes = buffer.array();
+            final int count = buffer.getInt();
+            // each path takes at least two bytes, don't allocate a garbled count
+            if ( count < 0 || count > buffer.remaining() / 2 )
+            {
+                throw new IOException( "Corrupt file " + file );
+            }
+            final String[] paths = new String[count];
+            String previous = "";
+            for ( int i = 0; i < paths.length; i++ )
+            {
+                int shared = readVarInt( buffer );
+                int length = readVarInt( buffer );
+                String suffix = new String( bytes, buffer.position(), length, ENCODING );
+                buffer.position( buffer.position() + length );
+                previous = shared == 0 ? suffix : previous.substring( 0, shared ).concat( suffix );
+                paths[i] = previous;
+            }
+            return paths;
+        }
+        catch ( RuntimeException e )
+        {
+            // a truncated or garbled file shows as buffer underflows and invalid lengths
+            IOException ioe = new IOException( "Corrupt file " + file );
+            ioe.initCause( e );
+            throw ioe;
+        }
+    }
+
+    /**
+     * Writes the paths to a temporary file, which then replaces the file.
+     *
+     * @param file  the file to write to
+     * @param paths the paths, which get sorted
+     * @throws IOException if the file can't be written
+     */
+    static void write( File file, String[] paths )
+        throws IOException
+    {
+        write( file, paths, null );
+    }
+
+    /**
+     * Writes the paths to a temporary file, which then replaces the file.
+     *
+     * @param file     the file to write to
+     * @param paths    the paths, which get sorted
+     * @param textFile the text file which has already been written or removed along with the file, <code>null</code>
+     *                 if there is none
+     * @throws IOException if the file can't be written
+     */
+    static void write( File file, String[] paths, File textFile )
+        throws IOException
+    {
+        final String[] sorted = sort( paths );
+        final File tempFile = StatusFiles.createTempFile( file );
+        final DataOutputStream out =
+            new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeLong( textFile == null ? -1 : length( textFile ) );
+            out.writeLong( textFile == null ? 0 : textFile.lastModified() );
+            out.writeInt( sorted.length );
+            String previous = "";
+            for ( String path : sorted )
+            {
+                int shared = sharedPrefix( previous, path );
+                byte[] suffix = encode( path.substring( shared ) );
+                writeVarInt( out, shared );
+                writeVarInt( out, suffix.length );
+                out.write( suffix );
+                previous = path;
+            }
+            out.close();
+            StatusFiles.replace( tempFile, file );
+        }
+        finally
+        {
+            IOUtil.close( out );
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Diffs two sorted lists of paths by merging them.
+     *
+     * @param oldPaths the sorted old paths
+     * @param newPaths the sorted new paths
+     * @return the paths which were added and removed.
+     */
+    static DirectoryScanResult diff( String[] oldPaths, String[] newPaths )
+    {
+        final List<String> added = new ArrayList<String>();
+        final List<String> removed = new ArrayList<String>();
+        int o = 0;
+        int n = 0;
+        while ( o < oldPaths.length && n < newPaths.length )
+        {
+            int comparison = oldPaths[o].compareTo( newPaths[n] );
+            if ( comparison < 0 )
+            {
+                removed.add( oldPaths[o++] );
+            }
+            else if ( comparison > 0 )
+            {
+                added.add( newPaths[n++] );
+            }
+            else
+            {
+                o++;
+                n++;
+            }
+        }
+        while ( o < oldPaths.length )
+        {
+            removed.add( oldPaths[o++] );
+        }
+        while ( n < newPaths.length )
+        {
+            added.add( newPaths[n++] );
+        }
+        return new DirectoryScanResult( added.toArray( EMPTY_ARRAY ), removed.toArray( EMPTY_ARRAY ) );
+    }
+
+    /**
+     * @return the length of the file, <code>-1</code> if it doesn't exist.
+     */
+    private static long length( File file )
+    {
+        return file.exists() ? file.length() : -1;
+    }
+
+    private static int sharedPrefix( String a, String b )
+    {
+        final int max = Math.min( a.length(), b.length() );
+        int i = 0;
+        while ( i < max && a.charAt( i ) == b.charAt( i ) )
+        {
+            i++;
+        }
+        // don't split a surrogate pair, its halves can't be encoded separately
+        if ( i > 0 && i < b.length() && Character.isHighSurrogate( b.charAt( i - 1 ) ) )
+        {
+            i--;
+        }
+        return i;
+    }
+
+    private static byte[] encode( String s )
+    {
+        try
+        {
+            return s.getBytes( ENCODING );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( ENCODING + " is always supported" );
+        }
+    }
+
+    private static void writeVarInt( DataOutputStream out, int value )
+        throws IOException
+    {
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            out.writeByte( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.writeByte( value );
+    }
+
+    private static int readVarInt( ByteBuffer buffer )
+    {
+        int value = 0;
+        for ( int shift = 0; ; shift += 7 )
+        {
+            byte b = buffer.get();
+            value |= ( b & 0x7F ) << shift;
+            if ( b >= 0 )
+            {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replaces the status files in the mojo status directory as a whole, so a build interrupted while writing one
+ * doesn't leave a truncated file behind.
+ *
+ * @since 1.2
+ */
+final class StatusFiles
+{
+    private StatusFiles()
+    {
+    }
+
+    /**
+     * @param file the status file to write
+     * @return a new temporary file next to the status file, to write its content to.
+     * @throws IOException if the temporary file can't be created
+     */
+    static File createTempFile( File file )
+        throws IOException
+    {
+        return File.createTempFile( file.getName() + '.', ".tmp", file.getParentFile() );
+    }
+
+    /**
+     * Replaces the status file with the completely written temporary file.
+     *
+     * @param tempFile the temporary file from {@link #createTempFile(File)}
+     * @param file     the status file
+     * @throws IOException if the status file can't be replaced
+     */
+    static void replace( File tempFile, File file )
+        throws IOException
+    {
+        if ( tempFile.renameTo( file ) )
+        {
+            return;
+        }
+
+        // renaming over an existing file fails on Windows
+        if ( file.delete() && tempFile.renameTo( file ) )
+        {
+            return;
+        }
+
+        throw new IOException( "Cannot rename " + tempFile + " to " + file );
+    }
+}
@@ -0,0 +1,381 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link IncrementalBuildHelper}.
+ */
+public class IncrementalBuildHelperTest
+{
+    private static final long AN_HOUR_AGO = System.currentTimeMillis() - 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File sourceDirectory;
+
+    private File outputDirectory;
+
+    private IncrementalBuildHelper helper;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        sourceDirectory = temporaryFolder.newFolder( "src" );
+        outputDirectory = temporaryFolder.newFolder( "target", "classes" );
+        helper = newHelper();
+    }
+
+    @Test
+    public void testCreatedFiles()
+        throws Exception
+    {
+        File source = createFile( sourceDirectory, "A.java" );
+
+        IncrementalBuildHelperRequest request = newRequest( source );
+        helper.beforeRebuildExecution( request );
+        createFile( outputDirectory, "A.class" );
+        helper.afterRebuildExecution( request );
+
+        File statusDirectory = helper.getMojoStatusDirectory();
+        assertArrayEquals( new String[] { "A.class" }, SortedPathList.read(
+            new File( statusDirectory, IncrementalBuildHelper.CREATED_FILES_BIN_FILENAME ) ) );
+        assertArrayEquals( new String[] { "A.class" }, FileUtils.fileReadArray(
+            new File( statusDirectory, IncrementalBuildHelper.CREATED_FILES_LST_FILENAME ) ) );
+
+        // the next rebuild deletes the created files
+        assertArrayEquals( new String[] { "A.class" }, newHelper().beforeRebuildExecution( request ) );
+        assertFalse( new File( outputDirectory, "A.class" ).exists() );
+    }
+
+    @Test
+    public void testCorruptStatusCountsAsMissing()
+        throws Exception
+    {
+        File source = createFile( sourceDirectory, "A.java" );
+        IncrementalBuildHelperRequest request = newRequest( source );
+
+        assertTrue( helper.inputFileTreeChanged( request ) );
+        assertFalse( newHelper().inputFileTreeChanged( request ) );
+
+        for ( File file : helper.getMojoStatusDirectory().listFiles() )
+        {
+            FileUtils.fileWrite( file.getAbsolutePath(), "garbage" );
+        }
+
+        assertTrue( newHelper().inputFileTreeChanged( request ) );
+        assertEquals( 0, newHelper().beforeRebuildExecution( request ).length );
+    }
+
+    @Test
+    public void testLegacyCreatedFilesList()
+        throws Exception
+    {
+        createFile( outputDirectory, "Old.class" );
+        FileUtils.fileWriteArray( new File( helper.getMojoStatusDirectory(),
+                                            IncrementalBuildHelper.CREATED_FILES_LST_FILENAME ),
+                                  new String[] { "Old.class" } );
+
+        assertArrayEquals( new String[] { "Old.class" }, helper.beforeRebuildExecution( newRequest() ) );
+        assertFalse( new File( outputDirectory, "Old.class" ).exists() );
+    }
+
+    @Test
+    public void testCreatedFilesListWrittenWithinTimestampResolution()
+        throws Exception
+    {
+        IncrementalBuildHelperRequest request = newRequest();
+        helper.beforeRebuildExecution( request );
+        createFile( outputDirectory, "A.class" );
+        helper.afterRebuildExecution( request );
+
+        // a previous version of this helper rewrites the text file without the modification dates telling
+        File statusDirectory = helper.getMojoStatusDirectory();
+        File binFile = new File( statusDirectory, IncrementalBuildHelper.CREATED_FILES_BIN_FILENAME );
+        File lstFile = new File( statusDirectory, IncrementalBuildHelper.CREATED_FILES_LST_FILENAME );
+        createFile( outputDirectory, "Old.class" );
+        FileUtils.fileWriteArray( lstFile, new String[] { "A.class", "Old.class" } );
+        lstFile.setLastModified( binFile.lastModified() );
+
+        String[] deleted = newHelper().beforeRebuildExecution( request );
+        Arrays.sort( deleted );
+        assertArrayEquals( new String[] { "A.class", "Old.class" }, deleted );
+        assertFalse( new File( outputDirectory, "Old.class" ).exists() );
+    }
+
+    @Test
+    public void testIncrementalRebuildWithoutOutputMapping()
+        throws Exception
+    {
+        File source = createFile( sourceDirectory, "A.java" );
+        IncrementalBuildHelperRequest request = newRequest( source );
+
+        InputFileChanges changes = helper.detectInputFileChanges( request );
+        assertNull( helper.beforeIncrementalRebuildExecution( request, changes ) );
+
+        try
+        {
+            helper.afterIncrementalRebuildExecution( request );
+            fail( "no full rebuild required" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIncrementalRebuild()
+        throws Exception
+    {
+        File a = createFile( sourceDirectory, "A.java" );
+        File b = createFile( sourceDirectory, "B.java" );
+        File c = createFile( sourceDirectory, "C.java" );
+        setLastModified( AN_HOUR_AGO, a, b, c );
+        fullRebuild( newRequest( a, b, c ), "A.class", "A$1.class", "B.class", "C.class", "Generated.class" );
+
+        // A changed, B got removed
+        FileUtils.fileWrite( a.getAbsolutePath(), "class A { Runnable r; }" );
+        a.setLastModified( AN_HOUR_AGO + 10000 );
+        IncrementalBuildHelperRequest request = newRequest( a, c );
+        helper = newHelper();
+        InputFileChanges changes = helper.detectInputFileChanges( request );
+        assertEquals( Collections.singleton( a ), changes.getModified() );
+        assertEquals( Collections.singleton( b ), changes.getRemoved() );
+
+        String[] deletedFiles = helper.beforeIncrementalRebuildExecution( request, changes );
+        Arrays.sort( deletedFiles );
+        assertArrayEquals( new String[] { "A$1.class", "A.class", "B.class" }, deletedFiles );
+        assertOutputFiles( "C.class", "Generated.class" );
+
+        createFile( outputDirectory, "A.class" );
+        request.getOutputFiles().put( a, outputFiles( "A.class" ) );
+        helper.afterIncrementalRebuildExecution( request );
+
+        assertCreatedFiles( "A.class", "C.class", "Generated.class" );
+
+        // nothing changed
+        request = newRequest( a, c );
+        helper = newHelper();
+        changes = helper.detectInputFileChanges( request );
+        assertFalse( changes.hasChanges() );
+        assertEquals( 0, helper.beforeIncrementalRebuildExecution( request, changes ).length );
+        helper.afterIncrementalRebuildExecution( request );
+
+        // a full rebuild still deletes the outputs of the full and the incremental builds
+        assertCreatedFiles( "A.class", "C.class", "Generated.class" );
+        newHelper().beforeRebuildExecution( request );
+        assertOutputFiles();
+    }
+
+    @Test
+    public void testFailedIncrementalRebuild()
+        throws Exception
+    {
+        File a = createFile( sourceDirectory, "A.java" );
+        File b = createFile( sourceDirectory, "B.java" );
+        setLastModified( AN_HOUR_AGO, a, b );
+        fullRebuild( newRequest( a, b ), "A.class", "B.class" );
+
+        FileUtils.fileWrite( a.getAbsolutePath(), "class A { Runnable r; }" );
+        a.setLastModified( AN_HOUR_AGO + 10000 );
+        IncrementalBuildHelperRequest request = newRequest( a, b );
+        helper = newHelper();
+        InputFileChanges changes = helper.detectInputFileChanges( request );
+        assertEquals( Collections.singleton( a ), changes.getModified() );
+        assertArrayEquals( new String[] { "A.class" }, helper.beforeIncrementalRebuildExecution( request, changes ) );
+        assertOutputFiles( "B.class" );
+
+        // the build fails, so afterIncrementalRebuildExecution is not invoked and the next build sees the change again,
+        // as an added file since its output files are gone
+        helper = newHelper();
+        changes = helper.detectInputFileChanges( request );
+        assertEquals( Collections.singleton( a ), changes.getAdded() );
+        assertFalse( changes.getRemoved().contains( b ) || changes.getModified().contains( b ) );
+        helper.beforeIncrementalRebuildExecution( request, changes );
+        createFile( outputDirectory, "A.class" );
+        request.getOutputFiles().put( a, outputFiles( "A.class" ) );
+        helper.afterIncrementalRebuildExecution( request );
+
+        assertFalse( newHelper().detectInputFileChanges( newRequest( a, b ) ).hasChanges() );
+    }
+
+    @Test
+    public void testFailedIncrementalRebuildOfRevertedFile()
+        throws Exception
+    {
+        File a = createFile( sourceDirectory, "A.java" );
+        File b = createFile( sourceDirectory, "B.java" );
+        setLastModified( AN_HOUR_AGO, a, b );
+        fullRebuild( newRequest( a, b ), "A.class", "B.class" );
+
+        String content = FileUtils.fileRead( a );
+        FileUtils.fileWrite( a.getAbsolutePath(), "class A { Runnable r; }" );
+        a.setLastModified( AN_HOUR_AGO + 10000 );
+        IncrementalBuildHelperRequest request = newRequest( a, b );
+        helper = newHelper();
+        helper.beforeIncrementalRebuildExecution( request, helper.detectInputFileChanges( request ) );
+        assertOutputFiles( "B.class" );
+
+        // the build fails and the change gets reverted, the deleted output still has to be rebuilt
+        FileUtils.fileWrite( a.getAbsolutePath(), content );
+        a.setLastModified( AN_HOUR_AGO );
+        helper = newHelper();
+        InputFileChanges changes = helper.detectInputFileChanges( request );
+        assertEquals( Collections.singleton( a ), changes.getAdded() );
+        assertEquals( 0, helper.beforeIncrementalRebuildExecution( request, changes ).length );
+    }
+
+    @Test
+    public void testFullRebuildResetsOutputMapping()
+        throws Exception
+    {
+        File a = createFile( sourceDirectory, "A.java" );
+        setLastModified( AN_HOUR_AGO, a );
+        fullRebuild( newRequest( a ), "A.class" );
+
+        // the next full rebuild doesn't record output files
+        IncrementalBuildHelperRequest request = newRequest( a );
+        helper = newHelper();
+        helper.beforeRebuildExecution( request );
+        createFile( outputDirectory, "A.class" );
+        helper.afterRebuildExecution( request );
+
+        helper = newHelper();
+        assertNull( helper.beforeIncrementalRebuildExecution( request, helper.detectInputFileChanges( request ) ) );
+    }
+
+    private void fullRebuild( IncrementalBuildHelperRequest request, String... outputs )
+        throws Exception
+    {
+        helper.detectInputFileChanges( request );
+        helper.beforeRebuildExecution( request );
+        for ( String output : outputs )
+        {
+            createFile( outputDirectory, output );
+        }
+        for ( File inputFile : request.getInputFiles() )
+        {
+            String name = inputFile.getName().replace( ".java", "" );
+            Set<File> files = new HashSet<File>();
+            for ( String output : outputs )
+            {
+                if ( output.equals( name + ".class" ) || output.startsWith( name + "$" ) )
+                {
+                    files.add( new File( outputDirectory, output ) );
+                }
+            }
+            request.getOutputFiles().put( inputFile, files );
+        }
+        helper.afterRebuildExecution( request );
+    }
+
+    private Set<File> outputFiles( String... names )
+    {
+        Set<File> files = new HashSet<File>();
+        for ( String name : names )
+        {
+            files.add( new File( outputDirectory, name ) );
+        }
+        return files;
+    }
+
+    private void assertOutputFiles( String... expected )
+    {
+        String[] files = outputDirectory.list();
+        Arrays.sort( files );
+        assertArrayEquals( expected, files );
+    }
+
+    private void assertCreatedFiles( String... expected )
+        throws Exception
+    {
+        assertArrayEquals( expected, SortedPathList.read(
+            new File( newHelper().getMojoStatusDirectory(), IncrementalBuildHelper.CREATED_FILES_BIN_FILENAME ) ) );
+    }
+
+    private static void setLastModified( long lastModified, File... files )
+    {
+        for ( File file : files )
+        {
+            file.setLastModified( lastModified );
+        }
+    }
+
+    private IncrementalBuildHelper newHelper()
+    {
+        PluginDescriptor pluginDescriptor = new PluginDescriptor();
+        pluginDescriptor.setArtifactId( "maven-test-plugin" );
+
+        MojoDescriptor mojoDescriptor = new MojoDescriptor();
+        mojoDescriptor.setPluginDescriptor( pluginDescriptor );
+        mojoDescriptor.setGoal( "test" );
+
+        Build build = new Build();
+        build.setDirectory( outputDirectory.getParent() );
+        Model model = new Model();
+        model.setBuild( build );
+
+        return new IncrementalBuildHelper( new MojoExecution( mojoDescriptor, "default-test" ),
+                                           new MavenProject( model ) );
+    }
+
+    private IncrementalBuildHelperRequest newRequest( File... inputFiles )
+    {
+        Set<File> files = new HashSet<File>( Arrays.asList( inputFiles ) );
+        return new IncrementalBuildHelperRequest().inputFiles( files ).outputDirectory( outputDirectory );
+    }
+
+    private static File createFile( File directory, String name )
+        throws IOException
+    {
+        File file = new File( directory, name );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getAbsolutePath(), name );
+        return file;
+    }
+}
@@ -0,0 +1,173 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link InputFingerprints}.
+ */
+public class InputFingerprintsTest
+{
+    private static final long AN_HOUR_AGO = System.currentTimeMillis() - 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File statusFile;
+
+    private List<File> inputFiles;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        statusFile = new File( temporaryFolder.newFolder( "status" ), "inputFingerprints.bin" );
+        inputFiles = new ArrayList<File>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            inputFiles.add( createFile( "Input" + i + ".java", "class Input" + i + " {}", AN_HOUR_AGO ) );
+        }
+    }
+
+    @Test
+    public void testAdded()
+        throws Exception
+    {
+        InputFileChanges changes = update( 4 );
+
+        assertEquals( new HashSet<File>( inputFiles ), changes.getAdded() );
+        assertTrue( changes.getRemoved().isEmpty() );
+        assertTrue( changes.getModified().isEmpty() );
+        assertFalse( update( 4 ).hasChanges() );
+    }
+
+    @Test
+    public void testRemoved()
+        throws Exception
+    {
+        update( 4 );
+        File removed = inputFiles.remove( 2 );
+
+        InputFileChanges changes = update( 4 );
+
+        assertEquals( Collections.singleton( removed ), changes.getRemoved() );
+        assertTrue( changes.getAdded().isEmpty() );
+        assertTrue( changes.getModified().isEmpty() );
+    }
+
+    @Test
+    public void testTouchedFileIsNotModified()
+        throws Exception
+    {
+        update( 4 );
+        inputFiles.get( 1 ).setLastModified( AN_HOUR_AGO + 10000 );
+
+        assertFalse( update( 4 ).hasChanges() );
+    }
+
+    @Test
+    public void testChangedFileIsModified()
+        throws Exception
+    {
+        update( 1 );
+        // same size, other content
+        File changed = createFile( "Input3.java", "class Other3 {}", AN_HOUR_AGO + 10000 );
+
+        InputFileChanges changes = update( 1 );
+
+        assertEquals( Collections.singleton( changed ), changes.getModified() );
+        assertTrue( changes.getAdded().isEmpty() );
+        assertTrue( changes.getRemoved().isEmpty() );
+    }
+
+    @Test
+    public void testRecentlyModifiedFileIsHashedAgain()
+        throws Exception
+    {
+        long now = System.currentTimeMillis();
+        File recent = createFile( "Recent.java", "class Recent {}", now );
+        inputFiles.add( recent );
+        update( 4 );
+
+        // changed within the timestamp resolution, without a different size or modification date
+        createFile( "Recent.java", "class Change {}", now );
+
+        assertEquals( Collections.singleton( recent ), update( 4 ).getModified() );
+    }
+
+    @Test
+    public void testTruncatedFile()
+        throws Exception
+    {
+        update( 4 );
+
+        RandomAccessFile raf = new RandomAccessFile( statusFile, "rw" );
+        raf.setLength( statusFile.length() - 5 );
+        raf.close();
+
+        try
+        {
+            InputFingerprints.read( statusFile );
+            fail( "truncated file read" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+        assertEquals( Arrays.asList( statusFile.getName() ), Arrays.asList( statusFile.getParentFile().list() ) );
+    }
+
+    private InputFileChanges update( int threads )
+        throws IOException
+    {
+        InputFingerprints fingerprints = InputFingerprints.read( statusFile );
+        InputFileChanges changes = fingerprints.update( inputFiles, threads );
+        fingerprints.write( statusFile );
+        return changes;
+    }
+
+    private File createFile( String name, String content, long lastModified )
+        throws IOException
+    {
+        File file = new File( temporaryFolder.getRoot(), name );
+        FileUtils.fileWrite( file.getAbsolutePath(), content );
+        file.setLastModified( lastModified );
+        return file.getAbsoluteFile();
+    }
+}
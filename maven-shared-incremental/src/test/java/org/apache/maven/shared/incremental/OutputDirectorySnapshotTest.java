@@ -0,0 +1,188 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.maven.shared.utils.io.Java7Support;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link OutputDirectorySnapshot}.
+ */
+public class OutputDirectorySnapshotTest
+{
+    private static final long AN_HOUR_AGO = System.currentTimeMillis() - 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File outputDirectory;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        outputDirectory = temporaryFolder.newFolder( "classes" );
+        createFile( "org/apache/Old.class" );
+        createFile( "org/other/Other.class" );
+        createFile( "Root.class" );
+        setLastModified( outputDirectory, AN_HOUR_AGO );
+    }
+
+    @Test
+    public void testNewFiles()
+        throws Exception
+    {
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+
+        createFile( "org/apache/New.class" );
+        createFile( "New.class" );
+
+        assertCreatedFiles( snapshot, "New.class", "org/apache/New.class" );
+    }
+
+    @Test
+    public void testNewSubdirectories()
+        throws Exception
+    {
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+
+        createFile( "org/apache/sub/A.class" );
+        createFile( "org/apache/sub/deeper/B.class" );
+        createFile( "com/C.class" );
+
+        assertCreatedFiles( snapshot, "com/C.class", "org/apache/sub/A.class", "org/apache/sub/deeper/B.class" );
+    }
+
+    @Test
+    public void testRecreatedFilesAreNotCreated()
+        throws Exception
+    {
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+
+        new File( outputDirectory, "org/apache/Old.class" ).delete();
+        createFile( "org/apache/Old.class" );
+
+        assertCreatedFiles( snapshot );
+    }
+
+    @Test
+    public void testUnchangedDirectoriesAreNotListed()
+        throws Exception
+    {
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+
+        // a directory keeping its modification date is trusted to keep its files
+        createFile( "org/other/Hidden.class" );
+        setLastModified( outputDirectory, AN_HOUR_AGO );
+        createFile( "org/apache/New.class" );
+
+        assertCreatedFiles( snapshot, "org/apache/New.class" );
+    }
+
+    @Test
+    public void testRecentlyModifiedDirectoriesAreListed()
+        throws Exception
+    {
+        File directory = new File( outputDirectory, "org/apache" );
+        directory.setLastModified( System.currentTimeMillis() );
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+
+        // changed within the timestamp resolution of the snapshot
+        long lastModified = directory.lastModified();
+        createFile( "org/apache/New.class" );
+        directory.setLastModified( lastModified );
+
+        assertCreatedFiles( snapshot, "org/apache/New.class" );
+    }
+
+    @Test
+    public void testSymbolicLinkLoopsAreNotFollowed()
+        throws Exception
+    {
+        if ( !Java7Support.isJava7() )
+        {
+            return;
+        }
+        java.nio.file.Files.createSymbolicLink( new File( outputDirectory, "org/apache/loop" ).toPath(),
+                                                outputDirectory.toPath() );
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+
+        createFile( "org/apache/New.class" );
+        java.nio.file.Files.createSymbolicLink( new File( outputDirectory, "org/other/loop" ).toPath(),
+                                                outputDirectory.toPath() );
+
+        assertCreatedFiles( snapshot, "org/apache/New.class", "org/other/loop" );
+    }
+
+    @Test
+    public void testMissingOutputDirectory()
+        throws Exception
+    {
+        outputDirectory = new File( temporaryFolder.getRoot(), "missing" );
+        OutputDirectorySnapshot snapshot = OutputDirectorySnapshot.take( outputDirectory );
+        assertCreatedFiles( snapshot );
+
+        createFile( "a/A.class" );
+        createFile( "B.class" );
+
+        assertCreatedFiles( snapshot, "B.class", "a/A.class" );
+    }
+
+    private void assertCreatedFiles( OutputDirectorySnapshot snapshot, String... expected )
+    {
+        String[] createdFiles = snapshot.getCreatedFiles();
+        Arrays.sort( createdFiles );
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            expected[i] = expected[i].replace( '/', File.separatorChar );
+        }
+        assertArrayEquals( expected, createdFiles );
+    }
+
+    private void createFile( String path )
+        throws IOException
+    {
+        File file = new File( outputDirectory, path );
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+    private static void setLastModified( File directory, long lastModified )
+    {
+        for ( File file : directory.listFiles() )
+        {
+            if ( file.isDirectory() )
+            {
+                setLastModified( file, lastModified );
+            }
+        }
+        directory.setLastModified( lastModified );
+    }
+}
@@ -0,0 +1,170 @@
+package org.apache.maven.shared.incremental;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.apache.maven.shared.utils.io.DirectoryScanResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link SortedPathList}.
+ */
+public class SortedPathListTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip()
+        throws Exception
+    {
+        String[] paths = { "org/apache/Foo.class", "org/apache/Foo$1.class", "org/apache/b\u00E9b\u00E9.class",
+            "", "org", "x/\u20AC/y", "x/\u20AC" };
+
+        File file = temporaryFolder.newFile( "paths.bin" );
+        SortedPathList.write( file, paths );
+
+        assertArrayEquals( SortedPathList.sort( paths ), SortedPathList.read( file ) );
+    }
+
+    @Test
+    public void testSharedPrefixEndingOnSurrogatePair()
+        throws Exception
+    {
+        // both paths share the high surrogate of their last character
+        String[] paths = { "x/\uD83D\uDE00a", "x/\uD83D\uDE01b", "x/\uD83D\uDE01b/\uD83D\uDE01" };
+
+        File file = temporaryFolder.newFile( "paths.bin" );
+        SortedPathList.write( file, paths );
+
+        assertArrayEquals( SortedPathList.sort( paths ), SortedPathList.read( file ) );
+    }
+
+    @Test
+    public void testLongPaths()
+        throws Exception
+    {
+        StringBuilder path = new StringBuilder();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            path.append( "directory" ).append( i ).append( '/' );
+        }
+        String[] paths = { path + "a", path + "b", path.substring( 0, 200 ) };
+
+        File file = temporaryFolder.newFile( "paths.bin" );
+        SortedPathList.write( file, paths );
+
+        assertArrayEquals( SortedPathList.sort( paths ), SortedPathList.read( file ) );
+    }
+
+    @Test
+    public void testWriteReplacesFile()
+        throws Exception
+    {
+        File file = temporaryFolder.newFile( "paths.bin" );
+        SortedPathList.write( file, new String[] { "a", "b", "c" } );
+        SortedPathList.write( file, new String[] { "d" } );
+
+        assertArrayEquals( new String[] { "d" }, SortedPathList.read( file ) );
+        assertArrayEquals( new String[] { "paths.bin" }, file.getParentFile().list() );
+    }
+
+    @Test
+    public void testTextFileChanged()
+        throws Exception
+    {
+        File file = temporaryFolder.newFile( "paths.bin" );
+        File textFile = temporaryFolder.newFile( "paths.lst" );
+        textFile.setLastModified( 1000000000000L );
+        SortedPathList.write( file, new String[] { "a" }, textFile );
+        assertArrayEquals( new String[] { "a" }, SortedPathList.read( file, textFile ) );
+
+        // same modification date, different length
+        RandomAccessFile raf = new RandomAccessFile( textFile, "rw" );
+        raf.setLength( 1 );
+        raf.close();
+        textFile.setLastModified( 1000000000000L );
+        assertNull( SortedPathList.read( file, textFile ) );
+
+        // same length, different modification date
+        SortedPathList.write( file, new String[] { "a" }, textFile );
+        textFile.setLastModified( 1000000002000L );
+        assertNull( SortedPathList.read( file, textFile ) );
+
+        textFile.delete();
+        assertNull( SortedPathList.read( file, textFile ) );
+        assertArrayEquals( new String[] { "a" }, SortedPathList.read( file ) );
+    }
+
+    @Test
+    public void testTruncatedFile()
+        throws Exception
+    {
+        File file = temporaryFolder.newFile( "paths.bin" );
+        SortedPathList.write( file, new String[] { "org/apache/Foo.class", "org/apache/Bar.class" } );
+
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        raf.setLength( file.length() - 3 );
+        raf.close();
+
+        try
+        {
+            SortedPathList.read( file );
+            fail( "truncated file read" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDiff()
+    {
+        String[] oldPaths = SortedPathList.sort( new String[] { "a", "b/c", "d", "f" } );
+        String[] newPaths = SortedPathList.sort( new String[] { "b/c", "e", "a", "g", "h" } );
+
+        DirectoryScanResult result = SortedPathList.diff( oldPaths, newPaths );
+
+        assertArrayEquals( new String[] { "e", "g", "h" }, result.getFilesAdded() );
+        assertArrayEquals( new String[] { "d", "f" }, result.getFilesRemoved() );
+    }
+
+    @Test
+    public void testDiffEmpty()
+    {
+        String[] paths = { "a", "b" };
+
+        assertArrayEquals( paths, SortedPathList.diff( new String[0], paths ).getFilesAdded() );
+        assertArrayEquals( paths, SortedPathList.diff( paths, new String[0] ).getFilesRemoved() );
+        assertEquals( 0, SortedPathList.diff( paths, paths ).getFilesAdded().length );
+        assertEquals( 0, SortedPathList.diff( paths, paths ).getFilesRemoved().length );
+    }
+}
@@ -0,0 +1,66 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the daemon worker threads of the thread pools in this package, so an abandoned pool never keeps the JVM
+ * alive. Threads are named after the pool, e.g. <code>DirectoryScanner-1-thread-2</code>.
+ */
+final class DaemonThreadFactory
+    implements ThreadFactory
+{
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final String prefix;
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    DaemonThreadFactory( String name )
+    {
+        this.prefix = name + "-" + POOL_NUMBER.incrementAndGet() + "-thread-";
+    }
+
+    public Thread newThread( Runnable r )
+    {
+        Thread thread = new Thread( r, prefix + threadNumber.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+    }
+
+    /**
+     * Rethrows the cause of a failed task as is if it is unchecked, so only checked causes are left to wrap.
+     *
+     * @param cause the cause of the {@link java.util.concurrent.ExecutionException}
+     */
+    static void rethrowUnchecked( Throwable cause )
+    {
+        if ( cause instanceof RuntimeException )
+        {
+            throw (RuntimeException) cause;
+        }
+        if ( cause instanceof Error )
+        {
+            throw (Error) cause;
+        }
+    }
+}
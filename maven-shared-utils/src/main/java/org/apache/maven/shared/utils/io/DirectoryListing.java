@@ -0,0 +1,179 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.annotation.Nonnull;
+
+/**
+ * The classified content of a single directory as seen by the {@link DirectoryScanner}.
+ * <p/>
+ * Holds the entry names in the order the file system returned them, together with the
+ * type of every entry, so that the scanner does not need to query the file system again
+ * while matching. A listing can also carry the include/exclude matching results of its
+ * entries if it has been {@link #match(String, DirectoryScanner) matched} up front.
+ * Instances are immutable and may be handed between threads.
+ */
+final class DirectoryListing
+{
+    static final byte OTHER = 0;
+
+    static final byte FILE = 1;
+
+    static final byte DIRECTORY = 2;
+
+    /**
+     * Flag added to the type if the entry is a symbolic link and links are not followed.
+     */
+    static final byte SYMLINK = 4;
+
+    static final DirectoryListing EMPTY = new DirectoryListing( new String[0], new byte[0] );
+
+    private static final byte INCLUDED = 1;
+
+    private static final byte EXCLUDED = 2;
+
+    private static final byte COULD_HOLD_INCLUDED = 4;
+
+    private final String[] names;
+
+    private final byte[] types;
+
+    private final String[] paths;
+
+    private final byte[] matches;
+
+    DirectoryListing( @Nonnull String[] names, @Nonnull byte[] types )
+    {
+        this( names, types, null, null );
+    }
+
+    private DirectoryListing( String[] names, byte[] types, String[] paths, byte[] matches )
+    {
+        this.names = names;
+        this.types = types;
+        this.paths = paths;
+        this.matches = matches;
+    }
+
+    /**
+     * Matches all entries which are no symbolic links against the patterns of the given scanner.
+     *
+     * @param vpath   the path of this directory relative to the base directory
+     * @param scanner the scanner holding the patterns
+     * @return a listing which carries the matching results
+     */
+    DirectoryListing match( @Nonnull String vpath, @Nonnull DirectoryScanner scanner )
+    {
+        final String[] newPaths = new String[names.length];
+        final byte[] newMatches = new byte[names.length];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            if ( isSymbolicLink( i ) || !( isDirectory( i ) || isFile( i ) ) )
+            {
+                continue;
+            }
+            final String path = vpath + names[i];
+            byte match = 0;
+            if ( scanner.isIncluded( path ) )
+            {
+                match |= INCLUDED;
+                if ( scanner.isExcluded( path ) )
+                {
+                    match |= EXCLUDED;
+                }
+            }
+            if ( isDirectory( i ) && match != INCLUDED && scanner.couldHoldIncluded( path ) )
+            {
+                match |= COULD_HOLD_INCLUDED;
+            }
+            newPaths[i] = path;
+            newMatches[i] = match;
+        }
+        return new DirectoryListing( names, types, newPaths, newMatches );
+    }
+
+    int size()
+    {
+        return names.length;
+    }
+
+    String getName( int index )
+    {
+        return names[index];
+    }
+
+    /**
+     * @return the path of the entry relative to the base directory.
+     */
+    String getPath( @Nonnull String vpath, int index )
+    {
+        return paths != null ? paths[index] : vpath + names[index];
+    }
+
+    /**
+     * @return the type of the entry, a combination of {@link #FILE}, {@link #DIRECTORY} and {@link #SYMLINK}.
+     */
+    byte getType( int index )
+    {
+        return types[index];
+    }
+
+    boolean isDirectory( int index )
+    {
+        return ( types[index] & DIRECTORY ) != 0;
+    }
+
+    boolean isFile( int index )
+    {
+        return ( types[index] & FILE ) != 0;
+    }
+
+    boolean isSymbolicLink( int index )
+    {
+        return ( types[index] & SYMLINK ) != 0;
+    }
+
+    /**
+     * @return whether the matching results of {@link #isIncluded(int)}, {@link #isExcluded(int)} and
+     *         {@link #couldHoldIncluded(int)} are available.
+     */
+    boolean isMatched()
+    {
+        return matches != null;
+    }
+
+    boolean isIncluded( int index )
+    {
+        return ( matches[index] & INCLUDED ) != 0;
+    }
+
+    boolean isExcluded( int index )
+    {
+        return ( matches[index] & EXCLUDED ) != 0;
+    }
+
+    /**
+     * Only available for directories which are not included or excluded.
+     */
+    boolean couldHoldIncluded( int index )
+    {
+        return ( matches[index] & COULD_HOLD_INCLUDED ) != 0;
+    }
+}
@@ -21,19 +21,29 @@ package org.apache.maven.shared.utils.io;
 
 
 /**
- * Scan for files in a directory at a given time and reports removed and added files
+ * Scan for files in a directory at a given time and reports removed, added and modified files
  * between captures.
  */
 public class DirectoryScanResult
 {
+    private static final String[] NO_FILES = new String[0];
+
     private final String[] filesAdded;
 
     private final String[] filesRemoved;
 
+    private final String[] filesModified;
+
     public DirectoryScanResult( String[] filesAdded, String[] filesRemoved )
+    {
+        this( filesAdded, filesRemoved, NO_FILES );
+    }
+
+    public DirectoryScanResult( String[] filesAdded, String[] filesRemoved, String[] filesModified )
     {
         this.filesAdded = filesAdded;
         this.filesRemoved = filesRemoved;
+        this.filesModified = filesModified;
     }
 
     /**
@@ -52,4 +62,13 @@ public class DirectoryScanResult
         return filesRemoved;
     }
 
+    /**
+     * @return all files which got detected as being modified between 2 capture calls. Only available if the
+     *         captures record file sizes and modification times, empty otherwise.
+     */
+    public String[] getFilesModified()
+    {
+        return filesModified;
+    }
+
 }
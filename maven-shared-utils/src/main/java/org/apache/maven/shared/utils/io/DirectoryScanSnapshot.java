@@ -0,0 +1,340 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The state of a scanned tree as recorded by {@link DirectoryScanner#scanIncremental(File)}: the content and
+ * modification time of every directory which was listed, and the size and modification time of every included file.
+ * <p/>
+ * A directory only gets a new modification time if entries are added, removed or renamed, not if a file in it is
+ * modified. So the listing of a directory whose modification time did not change is reused without reading the
+ * directory again, while the included files are still checked one by one.
+ * <p/>
+ * File system timestamps have a limited resolution, so changes made right after a directory was listed may not change
+ * its modification time. Directories and files which were modified shortly before the previous snapshot was taken are
+ * never trusted.
+ */
+final class DirectoryScanSnapshot
+{
+    private static final int MAGIC = 0x4D445353;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The coarsest resolution of file system timestamps we care about, 2 seconds on FAT.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final String basedir;
+
+    private final boolean followSymlinks;
+
+    /**
+     * When the scan which recorded this snapshot started.
+     */
+    private final long timestamp;
+
+    private final Map<String, Directory> directories;
+
+    private final Map<String, FileState> files;
+
+    @Nullable
+    private final DirectoryScanSnapshot previous;
+
+    private DirectoryScanSnapshot( String basedir, boolean followSymlinks, long timestamp,
+                                   Map<String, Directory> directories, Map<String, FileState> files,
+                                   DirectoryScanSnapshot previous )
+    {
+        this.basedir = basedir;
+        this.followSymlinks = followSymlinks;
+        this.timestamp = timestamp;
+        this.directories = directories;
+        this.files = files;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts recording a new snapshot.
+     *
+     * @param basedir        the base directory of the scan
+     * @param followSymlinks whether the scan follows symbolic links
+     * @param previous       the snapshot of the previous scan, <code>null</code> if there is none
+     * @return the empty snapshot
+     */
+    static DirectoryScanSnapshot start( @Nonnull File basedir, boolean followSymlinks,
+                                        @Nullable DirectoryScanSnapshot previous )
+    {
+        if ( previous != null
+            && ( !previous.basedir.equals( basedir.getAbsolutePath() ) || previous.followSymlinks != followSymlinks ) )
+        {
+            // recorded for something else
+            previous = null;
+        }
+        return new DirectoryScanSnapshot( basedir.getAbsolutePath(), followSymlinks, System.currentTimeMillis(),
+                                          new HashMap<String, Directory>(),
+                                          new LinkedHashMap<String, FileState>(), previous );
+    }
+
+    /**
+     * Lists a directory, reusing the listing of the previous snapshot if the directory did not change since.
+     *
+     * @param scanner the scanner to list the directory with
+     * @param dir     the directory to list
+     * @param vpath   the path of the directory relative to the base directory
+     * @return the content of the directory
+     */
+    DirectoryListing list( @Nonnull DirectoryScanner scanner, @Nonnull File dir, @Nonnull String vpath )
+    {
+        final long lastModified = dir.lastModified();
+        DirectoryListing listing = null;
+        if ( previous != null )
+        {
+            final Directory directory = previous.directories.get( vpath );
+            if ( directory != null && directory.lastModified == lastModified && previous.isSettled( lastModified ) )
+            {
+                listing = directory.listing;
+            }
+        }
+        if ( listing == null )
+        {
+            listing = scanner.listDirectory( dir );
+        }
+        directories.put( vpath, new Directory( lastModified, listing ) );
+        return listing;
+    }
+
+    /**
+     * Records an included file.
+     *
+     * @param name the path of the file relative to the base directory
+     * @param file the file
+     */
+    void addFile( @Nonnull String name, @Nonnull File file )
+    {
+        files.put( name, new FileState( file.length(), file.lastModified() ) );
+    }
+
+    /**
+     * @return the files added, removed and modified since the previous snapshot. All files are added if there is none.
+     */
+    DirectoryScanResult diff()
+    {
+        final Map<String, FileState> oldFiles =
+            previous != null ? previous.files : new HashMap<String, FileState>();
+
+        final List<String> added = new ArrayList<String>();
+        final List<String> modified = new ArrayList<String>();
+        for ( Map.Entry<String, FileState> entry : files.entrySet() )
+        {
+            final FileState oldState = oldFiles.get( entry.getKey() );
+            if ( oldState == null )
+            {
+                added.add( entry.getKey() );
+            }
+            else if ( oldState.size != entry.getValue().size
+                || oldState.lastModified != entry.getValue().lastModified
+                || !previous.isSettled( oldState.lastModified ) )
+            {
+                modified.add( entry.getKey() );
+            }
+        }
+
+        final List<String> removed = new ArrayList<String>();
+        for ( String oldFile : oldFiles.keySet() )
+        {
+            if ( !files.containsKey( oldFile ) )
+            {
+                removed.add( oldFile );
+            }
+        }
+
+        return new DirectoryScanResult( added.toArray( new String[added.size()] ),
+                                        removed.toArray( new String[removed.size()] ),
+                                        modified.toArray( new String[modified.size()] ) );
+    }
+
+    /**
+     * @return whether a change at the given time must have shown in the modification times recorded by this snapshot.
+     */
+    private boolean isSettled( long lastModified )
+    {
+        return lastModified + TIMESTAMP_RESOLUTION < timestamp;
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(File)}.
+     *
+     * @param snapshotFile the file to read
+     * @return the snapshot, <code>null</code> if there is none or if it could not be read.
+     */
+    @Nullable
+    static DirectoryScanSnapshot read( @Nonnull File snapshotFile )
+    {
+        if ( !snapshotFile.isFile() )
+        {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream( new BufferedInputStream( new FileInputStream( snapshotFile ) ) );
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+            {
+                return null;
+            }
+            final String basedir = in.readUTF();
+            final boolean followSymlinks = in.readBoolean();
+            final long timestamp = in.readLong();
+
+            final int directoryCount = in.readInt();
+            final Map<String, Directory> directories = new HashMap<String, Directory>( directoryCount * 2 );
+            for ( int i = 0; i < directoryCount; i++ )
+            {
+                final String vpath = in.readUTF();
+                final long lastModified = in.readLong();
+                final String[] names = new String[in.readInt()];
+                final byte[] types = new byte[names.length];
+                for ( int j = 0; j < names.length; j++ )
+                {
+                    names[j] = in.readUTF();
+                    types[j] = in.readByte();
+                }
+                directories.put( vpath, new Directory( lastModified, new DirectoryListing( names, types ) ) );
+            }
+
+            final int fileCount = in.readInt();
+            final Map<String, FileState> files = new LinkedHashMap<String, FileState>( fileCount * 2 );
+            for ( int i = 0; i < fileCount; i++ )
+            {
+                files.put( in.readUTF(), new FileState( in.readLong(), in.readLong() ) );
+            }
+
+            return new DirectoryScanSnapshot( basedir, followSymlinks, timestamp, directories, files, null );
+        }
+        catch ( IOException e )
+        {
+            // corrupt or truncated, start over
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Writes this snapshot.
+     *
+     * @param snapshotFile the file to write to, parent directories are created if needed
+     * @throws IOException if the snapshot could not be written
+     */
+    void write( @Nonnull File snapshotFile )
+        throws IOException
+    {
+        final File parent = snapshotFile.getParentFile();
+        if ( parent != null )
+        {
+            parent.mkdirs();
+        }
+
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( snapshotFile ) ) );
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeUTF( basedir );
+            out.writeBoolean( followSymlinks );
+            out.writeLong( timestamp );
+
+            out.writeInt( directories.size() );
+            for ( Map.Entry<String, Directory> entry : directories.entrySet() )
+            {
+                final DirectoryListing listing = entry.getValue().listing;
+                out.writeUTF( entry.getKey() );
+                out.writeLong( entry.getValue().lastModified );
+                out.writeInt( listing.size() );
+                for ( int i = 0; i < listing.size(); i++ )
+                {
+                    out.writeUTF( listing.getName( i ) );
+                    out.writeByte( listing.getType( i ) );
+                }
+            }
+
+            out.writeInt( files.size() );
+            for ( Map.Entry<String, FileState> entry : files.entrySet() )
+            {
+                out.writeUTF( entry.getKey() );
+                out.writeLong( entry.getValue().size );
+                out.writeLong( entry.getValue().lastModified );
+            }
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    private static final class Directory
+    {
+        private final long lastModified;
+
+        private final DirectoryListing listing;
+
+        Directory( long lastModified, DirectoryListing listing )
+        {
+            this.lastModified = lastModified;
+            this.listing = listing;
+        }
+    }
+
+    private static final class FileState
+    {
+        private final long size;
+
+        private final long lastModified;
+
+        FileState( long size, long lastModified )
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
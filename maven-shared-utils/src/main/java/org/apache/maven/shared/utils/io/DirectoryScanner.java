@@ -239,6 +239,21 @@ public class DirectoryScanner
      */
     private ScanConductor.ScanAction scanAction = null;
 
+    /**
+     * The number of threads used to list directories during {@link #scan()}.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Lists directories ahead of the scan if running with more than one thread, <code>null</code> otherwise.
+     */
+    private ParallelDirectoryLister parallelLister = null;
+
+    /**
+     * Records the scanned tree during {@link #scanIncremental(File)}, <code>null</code> otherwise.
+     */
+    private DirectoryScanSnapshot snapshot = null;
+
     /**
      * Sole constructor.
      */
@@ -365,6 +380,25 @@ public class DirectoryScanner
         this.scanConductor = scanConductor;
     }
 
+    /**
+     * Sets the number of threads used to read the directory tree during {@link #scan()}.
+     * <p/>
+     * With more than one thread the sub directories are listed ahead of time on a bounded pool of background threads,
+     * which pays off for large trees or slow file systems. At most a few listings per thread are kept ahead of the
+     * scan. The results and the {@link ScanConductor} callbacks are collected on the calling thread in the same order
+     * as with a sequential scan, so the results are exactly the same.
+     *
+     * @param parallelism the number of threads to use, <code>1</code> (the default) scans on the calling thread only.
+     */
+    public void setParallelism( final int parallelism )
+    {
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "parallelism must be at least 1 but was " + parallelism );
+        }
+        this.parallelism = parallelism;
+    }
+
     /**
      * Scans the base directory for files which match at least one include pattern and don't match any exclude patterns.
      * If there are selectors then the files must pass muster there, as well.
@@ -374,6 +408,104 @@ public class DirectoryScanner
      */
     public void scan()
         throws IllegalStateException
+    {
+        scan( true );
+    }
+
+    /**
+     * Scans the base directory like {@link #scan()}, but hands the results to the given conductor while the walk is
+     * still running instead of collecting them.
+     * <p/>
+     * The conductor gets notified about every included file and directory, and about every directory which is
+     * descended into, as soon as it is found. None of the included, not included or excluded lists are built, so the
+     * memory needed does not depend on the size of the tree. The <code>get...()</code> methods return empty arrays
+     * after a scan like this, just as they do before any scan. A conductor set by
+     * {@link #setScanConductor(ScanConductor)} is not used.
+     *
+     * @param conductor the conductor to notify. Must not be <code>null</code>.
+     * @throws IllegalStateException if the base directory was set incorrectly (i.e. if it is <code>null</code>,
+     *                               doesn't exist, or isn't a directory).
+     */
+    public void scan( @Nonnull final ScanConductor conductor )
+        throws IllegalStateException
+    {
+        final ScanConductor previousConductor = scanConductor;
+        scanConductor = conductor;
+        try
+        {
+            scan( false );
+        }
+        finally
+        {
+            scanConductor = previousConductor;
+        }
+    }
+
+    /**
+     * Scans the base directory like {@link #scan()} and reports the included files which changed since the previous
+     * incremental scan.
+     * <p/>
+     * The state of the scanned tree is kept in a snapshot file: the content and modification time of every directory
+     * and the size and modification time of every included file. Directories which were not modified since the
+     * snapshot was taken are not read again. Directories are read on the calling thread only.
+     *
+     * @param snapshotFile the snapshot of the previous scan. Gets created if it does not exist (or can't be read) and
+     *                     updated after the scan.
+     * @return the included files which were added, removed or modified since the previous scan. If there is no usable
+     *         snapshot, all included files are reported as added.
+     * @throws IllegalStateException if the base directory was set incorrectly (i.e. if it is <code>null</code>,
+     *                               doesn't exist, or isn't a directory).
+     * @throws IOException           if the snapshot could not be written.
+     */
+    public DirectoryScanResult scanIncremental( @Nonnull final File snapshotFile )
+        throws IllegalStateException, IOException
+    {
+        checkBasedir();
+
+        snapshot = DirectoryScanSnapshot.start( basedir, followSymlinks, DirectoryScanSnapshot.read( snapshotFile ) );
+        try
+        {
+            scan( true );
+            snapshot.write( snapshotFile );
+            return snapshot.diff();
+        }
+        finally
+        {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Starts watching the base directory for changes of the included files.
+     * <p/>
+     * Reads the tree like {@link #scan()} and registers all directories a scan would descend into with a
+     * <code>java.nio.file.WatchService</code>. The returned watcher then applies create, delete and modify events one
+     * by one, so repeated checks for changes don't need to read the whole tree again. The results of this scanner are
+     * not touched.
+     *
+     * @return the watcher, to be closed after use
+     * @throws IllegalStateException         if the base directory was set incorrectly (i.e. if it is
+     *                                       <code>null</code>, doesn't exist, or isn't a directory).
+     * @throws UnsupportedOperationException if not running on Java 7 or above.
+     * @throws IOException                   if the base directory could not be watched.
+     */
+    public DirectoryWatcher watch()
+        throws IllegalStateException, IOException
+    {
+        if ( !Java7Support.isJava7() )
+        {
+            throw new UnsupportedOperationException( "Watching directories requires Java 7 or above" );
+        }
+        checkBasedir();
+
+        setupDefaultFilters();
+        setupMatchPatterns();
+
+        return new DirectoryWatcher(
+            new NioDirectoryWatcher( basedir, includesPatterns, excludesPatterns, isCaseSensitive, followSymlinks ) );
+    }
+
+    private void checkBasedir()
     {
         if ( basedir == null )
         {
@@ -387,18 +519,43 @@ public class DirectoryScanner
         {
             throw new IllegalStateException( "basedir " + basedir + " is not a directory" );
         }
+    }
+
+    private void scan( final boolean collectResults )
+    {
+        checkBasedir();
 
         setupDefaultFilters();
         setupMatchPatterns();
 
-        filesIncluded = new ArrayList<String>();
-        filesNotIncluded = new ArrayList<String>();
-        filesExcluded = new ArrayList<String>();
-        dirsIncluded = new ArrayList<String>();
-        dirsNotIncluded = new ArrayList<String>();
-        dirsExcluded = new ArrayList<String>();
+        filesIncluded = collectResults ? new ArrayList<String>() : null;
+        filesNotIncluded = collectResults ? new ArrayList<String>() : null;
+        filesExcluded = collectResults ? new ArrayList<String>() : null;
+        dirsIncluded = collectResults ? new ArrayList<String>() : null;
+        dirsNotIncluded = collectResults ? new ArrayList<String>() : null;
+        dirsExcluded = collectResults ? new ArrayList<String>() : null;
         scanAction = ScanConductor.ScanAction.CONTINUE;
 
+        if ( parallelism > 1 && snapshot == null )
+        {
+            parallelLister = new ParallelDirectoryLister( this, parallelism );
+        }
+        try
+        {
+            scanBasedir();
+        }
+        finally
+        {
+            if ( parallelLister != null )
+            {
+                parallelLister.close();
+                parallelLister = null;
+            }
+        }
+    }
+
+    private void scanBasedir()
+    {
         if ( isIncluded( "" ) )
         {
             if ( !isExcluded( "" ) )
@@ -414,16 +571,16 @@ public class DirectoryScanner
                     }
                 }
 
-                dirsIncluded.add( "" );
+                record( dirsIncluded, "" );
             }
             else
             {
-                dirsExcluded.add( "" );
+                record( dirsExcluded, "" );
             }
         }
         else
         {
-            dirsNotIncluded.add( "" );
+            record( dirsNotIncluded, "" );
         }
         scandir( basedir, "", true );
     }
@@ -518,6 +675,11 @@ public class DirectoryScanner
         {
             return;
         }
+        if ( dirsExcluded == null )
+        {
+            // no results were collected, see #scan(ScanConductor)
+            return;
+        }
 
         final String[] excl = dirsExcluded.toArray( new String[dirsExcluded.size()] );
 
@@ -561,71 +723,50 @@ public class DirectoryScanner
      */
     void scandir( @Nonnull final File dir, @Nonnull final String vpath, final boolean fast )
     {
-        String[] newfiles = dir.list();
-
-        if ( newfiles == null )
+        final DirectoryListing listing;
+        if ( snapshot != null )
         {
-            /*
-             * two reasons are mentioned in the API docs for File.list (1) dir is not a directory. This is impossible as
-             * we wouldn't get here in this case. (2) an IO error occurred (why doesn't it throw an exception then???)
-             */
-
-            /*
-             * [jdcasey] (2) is apparently happening to me, as this is killing one of my tests... this is affecting the
-             * assembly plugin, fwiw. I will initialize the newfiles array as zero-length for now. NOTE: I can't find
-             * the problematic code, as it appears to come from a native method in UnixFileSystem...
-             */
-            newfiles = new String[0];
-
-            // throw new IOException( "IO error scanning directory " + dir.getAbsolutePath() );
+            listing = snapshot.list( this, dir, vpath );
+        }
+        else if ( parallelLister != null && fast )
+        {
+            listing = parallelLister.list( dir, vpath );
+        }
+        else
+        {
+            listing = listDirectory( dir );
         }
 
-        if ( !followSymlinks )
+        for ( int i = 0; i < listing.size(); i++ )
         {
-            final List<String> noLinks = new ArrayList<String>();
-            for ( final String newfile : newfiles )
+            if ( listing.isSymbolicLink( i ) )
             {
-                try
+                final String name = vpath + listing.getName( i );
+                if ( listing.isDirectory( i ) )
                 {
-                    if ( isSymbolicLink( dir, newfile ) )
-                    {
-                        final String name = vpath + newfile;
-                        final File file = new File( dir, newfile );
-                        if ( file.isDirectory() )
-                        {
-                            dirsExcluded.add( name );
-                        }
-                        else
-                        {
-                            filesExcluded.add( name );
-                        }
-                    }
-                    else
-                    {
-                        noLinks.add( newfile );
-                    }
+                    record( dirsExcluded, name );
                 }
-                catch ( final IOException ioe )
+                else
                 {
-                    final String msg =
-                        "IOException caught while checking " + "for links, couldn't get cannonical path!";
-                    // will be caught and redirected to Ant's logging system
-                    System.err.println( msg );
-                    noLinks.add( newfile );
+                    record( filesExcluded, name );
                 }
             }
-            newfiles = noLinks.toArray( new String[noLinks.size()] );
         }
 
-        for ( final String newfile : newfiles )
+        for ( int i = 0; i < listing.size(); i++ )
         {
-            final String name = vpath + newfile;
+            if ( listing.isSymbolicLink( i ) )
+            {
+                continue;
+            }
+            final String newfile = listing.getName( i );
+            final String name = listing.getPath( vpath, i );
             final File file = new File( dir, newfile );
-            if ( file.isDirectory() )
+            if ( listing.isDirectory( i ) )
             {
-                if ( isIncluded( name ) )
+                if ( isIncluded( listing, i, name ) )
                 {
-                    if ( !isExcluded( name ) )
+                    if ( !isExcluded( listing, i, name ) )
                     {
                         if ( scanConductor != null )
                         {
@@ -639,7 +780,7 @@ public class DirectoryScanner
 
                         if ( !ScanConductor.ScanAction.NO_RECURSE.equals( scanAction ) )
                         {
-                            dirsIncluded.add( name );
+                            record( dirsIncluded, name );
                             if ( fast )
                             {
                                 scandir( file, name + File.separator, fast );
@@ -655,8 +796,8 @@ public class DirectoryScanner
                     }
                     else
                     {
-                        dirsExcluded.add( name );
-                        if ( fast && couldHoldIncluded( name ) )
+                        record( dirsExcluded, name );
+                        if ( fast && couldHoldIncluded( listing, i, name ) )
                         {
                             scandir( file, name + File.separator, fast );
                             if ( ScanConductor.ScanAction.ABORT.equals( scanAction ) )
@@ -669,7 +810,7 @@ public class DirectoryScanner
                 }
                 else
                 {
-                    if ( fast && couldHoldIncluded( name ) )
+                    if ( fast && couldHoldIncluded( listing, i, name ) )
                     {
                         if ( scanConductor != null )
                         {
@@ -683,7 +824,7 @@ public class DirectoryScanner
                         }
                         if ( !ScanConductor.ScanAction.NO_RECURSE.equals( scanAction ) )
                         {
-                            dirsNotIncluded.add( name );
+                            record( dirsNotIncluded, name );
 
                             scandir( file, name + File.separator, fast );
                             if ( ScanConductor.ScanAction.ABORT.equals( scanAction ) )
@@ -693,6 +834,11 @@ public class DirectoryScanner
                         }
                         scanAction = null;
                     }
+                    else
+                    {
+                        // pruned by a fast scan, a slow scan will pick it up
+                        record( dirsNotIncluded, name );
+                    }
                 }
                 if ( !fast )
                 {
@@ -704,11 +850,11 @@ public class DirectoryScanner
                     scanAction = null;
                 }
             }
-            else if ( file.isFile() )
+            else if ( listing.isFile( i ) )
             {
-                if ( isIncluded( name ) )
+                if ( isIncluded( listing, i, name ) )
                 {
-                    if ( !isExcluded( name ) )
+                    if ( !isExcluded( listing, i, name ) )
                     {
                         if ( scanConductor != null )
                         {
@@ -721,21 +867,140 @@ public class DirectoryScanner
                             return;
                         }
 
-                        filesIncluded.add( name );
+                        record( filesIncluded, name );
+                        if ( snapshot != null )
+                        {
+                            snapshot.addFile( name, file );
+                        }
                     }
                     else
                     {
-                        filesExcluded.add( name );
+                        record( filesExcluded, name );
                     }
                 }
                 else
                 {
-                    filesNotIncluded.add( name );
+                    record( filesNotIncluded, name );
                 }
             }
         }
     }
 
+    /**
+     * Adds a name to one of the result lists, unless the results are not collected.
+     */
+    private static void record( @Nullable final List<String> results, @Nonnull final String name )
+    {
+        if ( results != null )
+        {
+            results.add( name );
+        }
+    }
+
+    /**
+     * Lists and classifies the content of the given directory.
+     * <p/>
+     * If symbolic links should not be followed, links are flagged as such so that they can be reported as excluded.
+     * On Java 7 and above the file attributes are read through <code>java.nio.file</code> with a single lookup per
+     * entry. This method does not touch any state of the scanner and may be called from any thread.
+     *
+     * @param dir The directory to list. Must not be <code>null</code>.
+     * @return the content of the directory, empty if it could not be read.
+     */
+    @Nonnull
+    DirectoryListing listDirectory( @Nonnull final File dir )
+    {
+        if ( Java7Support.isJava7() )
+        {
+            return NioDirectoryLister.list( dir, followSymlinks );
+        }
+
+        final String[] newfiles = dir.list();
+
+        if ( newfiles == null )
+        {
+            /*
+             * two reasons are mentioned in the API docs for File.list (1) dir is not a directory. This is impossible as
+             * we wouldn't get here in this case. (2) an IO error occurred (why doesn't it throw an exception then???)
+             */
+
+            /*
+             * [jdcasey] (2) is apparently happening to me, as this is killing one of my tests... this is affecting the
+             * assembly plugin, fwiw. I will initialize the newfiles array as zero-length for now. NOTE: I can't find
+             * the problematic code, as it appears to come from a native method in UnixFileSystem...
+             */
+            return DirectoryListing.EMPTY;
+
+            // throw new IOException( "IO error scanning directory " + dir.getAbsolutePath() );
+        }
+
+        final byte[] types = new byte[newfiles.length];
+        for ( int i = 0; i < newfiles.length; i++ )
+        {
+            final File file = new File( dir, newfiles[i] );
+            if ( !followSymlinks && isSymbolicLinkQuietly( dir, newfiles[i] ) )
+            {
+                types[i] = (byte) ( DirectoryListing.SYMLINK
+                    | ( file.isDirectory() ? DirectoryListing.DIRECTORY : DirectoryListing.FILE ) );
+            }
+            else if ( file.isDirectory() )
+            {
+                types[i] = DirectoryListing.DIRECTORY;
+            }
+            else if ( file.isFile() )
+            {
+                types[i] = DirectoryListing.FILE;
+            }
+            else
+            {
+                types[i] = DirectoryListing.OTHER;
+            }
+        }
+        return new DirectoryListing( newfiles, types );
+    }
+
+    private boolean isSymbolicLinkQuietly( final File parent, final String name )
+    {
+        try
+        {
+            return isSymbolicLink( parent, name );
+        }
+        catch ( final IOException ioe )
+        {
+            final String msg = "IOException caught while checking " + "for links, couldn't get cannonical path!";
+            // will be caught and redirected to Ant's logging system
+            System.err.println( msg );
+            return false;
+        }
+    }
+
+    private boolean isIncluded( final DirectoryListing listing, final int index, final String name )
+    {
+        return listing.isMatched() ? listing.isIncluded( index ) : isIncluded( name );
+    }
+
+    private boolean isExcluded( final DirectoryListing listing, final int index, final String name )
+    {
+        return listing.isMatched() ? listing.isExcluded( index ) : isExcluded( name );
+    }
+
+    private boolean couldHoldIncluded( final DirectoryListing listing, final int index, final String name )
+    {
+        return listing.isMatched() ? listing.couldHoldIncluded( index ) : couldHoldIncluded( name );
+    }
+
+    /**
+     * Tests whether or not a fast scan would descend into the given directory, unless told otherwise by the
+     * {@link ScanConductor}.
+     *
+     * @param name The name to match. Must not be <code>null</code>.
+     * @return <code>true</code> if the directory is either included or could hold included files.
+     */
+    boolean couldRecurseInto( @Nonnull final String name )
+    {
+        return ( isIncluded( name ) && !isExcluded( name ) ) || couldHoldIncluded( name );
+    }
+
     /**
      * Tests whether or not a name matches against at least one include pattern.
      *
@@ -781,11 +1046,7 @@ public class DirectoryScanner
      */
     public String[] getIncludedFiles()
     {
-        if ( filesIncluded == null )
-        {
-            return new String[0];
-        }
-        return filesIncluded.toArray( new String[filesIncluded.size()] );
+        return toArray( filesIncluded );
     }
 
     /**
@@ -798,7 +1059,7 @@ public class DirectoryScanner
     public String[] getNotIncludedFiles()
     {
         slowScan();
-        return filesNotIncluded.toArray( new String[filesNotIncluded.size()] );
+        return toArray( filesNotIncluded );
     }
 
     /**
@@ -813,7 +1074,7 @@ public class DirectoryScanner
     public String[] getExcludedFiles()
     {
         slowScan();
-        return filesExcluded.toArray( new String[filesExcluded.size()] );
+        return toArray( filesExcluded );
     }
 
     /**
@@ -825,7 +1086,7 @@ public class DirectoryScanner
      */
     public String[] getIncludedDirectories()
     {
-        return dirsIncluded.toArray( new String[dirsIncluded.size()] );
+        return toArray( dirsIncluded );
     }
 
     /**
@@ -838,7 +1099,7 @@ public class DirectoryScanner
     public String[] getNotIncludedDirectories()
     {
         slowScan();
-        return dirsNotIncluded.toArray( new String[dirsNotIncluded.size()] );
+        return toArray( dirsNotIncluded );
     }
 
     /**
@@ -853,7 +1114,19 @@ public class DirectoryScanner
     public String[] getExcludedDirectories()
     {
         slowScan();
-        return dirsExcluded.toArray( new String[dirsExcluded.size()] );
+        return toArray( dirsExcluded );
+    }
+
+    /**
+     * Returns the given scan results as an array, which is empty if no results were collected.
+     */
+    private static String[] toArray( @Nullable List<String> names )
+    {
+        if ( names == null )
+        {
+            return new String[0];
+        }
+        return names.toArray( new String[names.size()] );
     }
 
     /**
@@ -892,7 +1165,7 @@ public class DirectoryScanner
     {
         if ( Java7Support.isJava7() )
         {
-            return Java7Support.isSymLink( parent );
+            return Java7Support.isSymLink( new File( parent, name ) );
         }
         final File resolvedParent = new File( parent.getCanonicalPath() );
         final File toTest = new File( resolvedParent, name );
@@ -0,0 +1,107 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps the included files of a {@link DirectoryScanner} up to date by watching the file system for changes, so that
+ * finding out what changed costs time proportional to the number of changes instead of the size of the tree.
+ * <p/>
+ * Create an instance with {@link DirectoryScanner#watch()}. The include and exclude patterns, the case sensitivity and
+ * the handling of symbolic links are taken from the scanner at that time, a {@link ScanConductor} is not consulted.
+ * Call {@link #poll()} to apply the changes which happened in the meantime. Depending on the platform, changes may
+ * be reported with some delay.
+ * <p/>
+ * Instances are not thread safe and must be closed after use. Requires Java 7.
+ */
+public class DirectoryWatcher
+    implements Closeable
+{
+    private final NioDirectoryWatcher watcher;
+
+    DirectoryWatcher( @Nonnull NioDirectoryWatcher watcher )
+    {
+        this.watcher = watcher;
+    }
+
+    /**
+     * Returns the names of the files which currently match at least one of the include patterns and none of the
+     * exclude patterns, as known after the last poll. The names are relative to the base directory.
+     *
+     * @return the included files
+     */
+    public String[] getIncludedFiles()
+    {
+        return watcher.getIncludedFiles();
+    }
+
+    /**
+     * Applies the changes which happened since the last poll, without waiting for any.
+     *
+     * @return the included files which were added, removed or modified since the last poll
+     * @throws IOException if a new directory could not be watched
+     */
+    public DirectoryScanResult poll()
+        throws IOException
+    {
+        try
+        {
+            return watcher.poll( 0, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            // does not wait
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Applies the changes which happened since the last poll, waiting up to the given time for a first change if
+     * there is none yet.
+     *
+     * @param timeout how long to wait
+     * @param unit    the unit of the timeout
+     * @return the included files which were added, removed or modified since the last poll
+     * @throws IOException          if a new directory could not be watched
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public DirectoryScanResult poll( long timeout, @Nonnull TimeUnit unit )
+        throws IOException, InterruptedException
+    {
+        return watcher.poll( timeout, unit );
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @throws IOException if the underlying watch service could not be closed
+     */
+    public void close()
+        throws IOException
+    {
+        watcher.close();
+    }
+}
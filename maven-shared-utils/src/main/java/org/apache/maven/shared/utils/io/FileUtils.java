@@ -20,11 +20,12 @@ package org.apache.maven.shared.utils.io;
  */
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -33,6 +34,7 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.security.SecureRandom;
 import java.text.DecimalFormat;
@@ -113,6 +115,16 @@ public class FileUtils
      */
     private static final long FILE_COPY_BUFFER_SIZE = ONE_MB * 30;
 
+    /**
+     * The size up to which {@link #copyFileIfChanged(File, File, String, FilterWrapper...)} compares in memory.
+     */
+    private static final int MAX_IN_MEMORY_COMPARE_SIZE = ONE_MB;
+
+    /**
+     * The maximum chunk size in which {@link #contentEquals(File, File)} compares files.
+     */
+    private static final int COMPARE_BUFFER_SIZE = 256 * ONE_KB;
+
     /**
      * The vm line separator
      */
@@ -638,14 +650,19 @@ public class FileUtils
             return false;
         }
 
-        InputStream input1 = null;
-        InputStream input2 = null;
+        final long length = file1.length();
+        if ( length != file2.length() )
+        {
+            return false;
+        }
+
+        FileInputStream input1 = null;
+        FileInputStream input2 = null;
         try
         {
             input1 = new FileInputStream( file1 );
             input2 = new FileInputStream( file2 );
-            return IOUtil.contentEquals( input1, input2 );
-
+            return contentEquals( input1.getChannel(), input2.getChannel(), length );
         }
         finally
         {
@@ -654,6 +671,71 @@ public class FileUtils
         }
     }
 
+    /**
+     * Compares two channels in chunks read into heap buffers. Direct buffers are not used, as they are only freed by
+     * the garbage collector and the channels already read through a temporary direct buffer cached per thread. The
+     * files are not memory mapped either, as mapped files can neither be unmapped nor deleted on Windows until the
+     * mapping got garbage collected.
+     */
+    private static boolean contentEquals( @Nonnull FileChannel channel1, @Nonnull FileChannel channel2,
+                                          long length )
+        throws IOException
+    {
+        final int capacity = (int) Math.max( Math.min( length, COMPARE_BUFFER_SIZE ), 8 );
+        final ByteBuffer buffer1 = ByteBuffer.allocate( capacity );
+        final ByteBuffer buffer2 = ByteBuffer.allocate( capacity );
+        while ( true )
+        {
+            final boolean eof1 = readFully( channel1, buffer1 );
+            final boolean eof2 = readFully( channel2, buffer2 );
+            buffer1.flip();
+            buffer2.flip();
+            if ( buffer1.remaining() != buffer2.remaining() )
+            {
+                // the files have been modified while comparing them
+                return false;
+            }
+            while ( buffer1.remaining() >= 8 )
+            {
+                if ( buffer1.getLong() != buffer2.getLong() )
+                {
+                    return false;
+                }
+            }
+            while ( buffer1.hasRemaining() )
+            {
+                if ( buffer1.get() != buffer2.get() )
+                {
+                    return false;
+                }
+            }
+            if ( eof1 || eof2 )
+            {
+                return eof1 == eof2;
+            }
+            buffer1.clear();
+            buffer2.clear();
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the end of the channel is reached.
+     *
+     * @return whether the end of the channel has been reached.
+     */
+    private static boolean readFully( @Nonnull FileChannel channel, @Nonnull ByteBuffer buffer )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer ) < 0 )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Convert from a <code>URL</code> to a <code>File</code>.
      *
@@ -1619,6 +1701,59 @@ public class FileUtils
         copyDirectoryStructure( sourceDirectory, destinationDirectory, destinationDirectory, false );
     }
 
+    /**
+     * Copies a entire directory structure like {@link #copyDirectoryStructure(File, File)}, but copies the files on
+     * multiple threads.
+     * <p/>
+     * The source tree is walked on the calling thread, which creates all destination directories up front. The files
+     * are copied on a bounded pool of threads, on Java 7 and above through <code>java.nio.file.Files.copy()</code>.
+     * <p/>
+     * Optionally files get hard linked instead of copied where the file system supports it, which costs next to
+     * nothing regardless of the file size. Source and destination then share their content though, so this is only
+     * safe if neither of them gets modified in place afterwards. Files are copied if linking is not possible or not
+     * running on Java 7.
+     *
+     * @param sourceDirectory      the source dir
+     * @param destinationDirectory the target dir
+     * @param threads              the number of threads to copy files with, <code>1</code> copies on the calling
+     *                             thread
+     * @param linkFiles            whether files may be hard linked instead of copied
+     * @throws IOException if any
+     */
+    public static void copyDirectoryStructure( @Nonnull File sourceDirectory, @Nonnull File destinationDirectory,
+                                               int threads, boolean linkFiles )
+        throws IOException
+    {
+        if ( threads < 1 )
+        {
+            throw new IllegalArgumentException( "threads must be at least 1 but was " + threads );
+        }
+
+        //noinspection ConstantConditions
+        if ( sourceDirectory == null )
+        {
+            throw new IOException( "source directory can't be null." );
+        }
+
+        //noinspection ConstantConditions
+        if ( destinationDirectory == null )
+        {
+            throw new IOException( "destination directory can't be null." );
+        }
+
+        if ( sourceDirectory.equals( destinationDirectory ) )
+        {
+            throw new IOException( "source and destination are the same directory." );
+        }
+
+        if ( !sourceDirectory.exists() )
+        {
+            throw new IOException( "Source directory doesn't exists (" + sourceDirectory.getAbsolutePath() + ")." );
+        }
+
+        ParallelDirectoryCopier.copy( sourceDirectory, destinationDirectory, threads, linkFiles );
+    }
+
     private static void copyDirectoryStructure( @Nonnull File sourceDirectory, @Nonnull File destinationDirectory,
                                                 File rootDestinationDirectory, boolean onlyModifiedFiles )
         throws IOException
@@ -1826,47 +1961,171 @@ public class FileUtils
     {
         if ( wrappers != null && wrappers.length > 0 )
         {
-            // buffer so it isn't reading a byte at a time!
-            Reader fileReader = null;
-            Writer fileWriter = null;
+            OutputStream out = null;
             try
             {
-                if ( encoding == null || encoding.length() < 1 )
-                {
-                    fileReader = new BufferedReader( new FileReader( from ) );
-                    fileWriter = new FileWriter( to );
-                }
-                else
-                {
-                    FileInputStream instream = new FileInputStream( from );
+                out = new FileOutputStream( to );
+                filter( from, out, encoding, wrappers );
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+        }
+        else
+        {
+            if ( to.lastModified() < from.lastModified() || overwrite )
+            {
+                copyFile( from, to );
+            }
+        }
+    }
+
+    /**
+     * Copies a file through the given filters, but leaves the destination untouched if it already holds the very same
+     * content. Other than {@link #copyFile(File, File, String, FilterWrapper[], boolean)} this keeps the last
+     * modification date of unchanged destinations, so up-to-date checks further down the build still see them as
+     * unchanged.
+     * <p/>
+     * Small files are filtered into memory and compared with the destination, larger files are filtered into a
+     * temporary file next to the destination and compared from there. If the content differs, the destination is
+     * replaced by a temporary file holding the new content, so a failed write never leaves a truncated destination.
+     * <b>If wrappers is null or empty, the file is copied as is.</b>
+     *
+     * @param from     the file to copy
+     * @param to       the destination file
+     * @param encoding the file output encoding (only if wrappers is not empty)
+     * @param wrappers array of {@link FilterWrapper}
+     * @return <code>true</code> if the destination has been written, <code>false</code> if it was up to date.
+     * @throws IOException if an IO error occurs during copying or filtering
+     */
+    public static boolean copyFileIfChanged( @Nonnull File from, @Nonnull File to, @Nullable String encoding,
+                                             @Nullable FilterWrapper... wrappers )
+        throws IOException
+    {
+        if ( wrappers == null || wrappers.length == 0 )
+        {
+            if ( to.isFile() && contentEquals( from, to ) )
+            {
+                return false;
+            }
+            copyFile( from, to );
+            return true;
+        }
 
-                    FileOutputStream outstream = new FileOutputStream( to );
+        if ( !to.isFile() )
+        {
+            copyFile( from, to, encoding, wrappers, true );
+            return true;
+        }
 
-                    fileReader = new BufferedReader( new InputStreamReader( instream, encoding ) );
+        ByteArrayOutputStream buffer = null;
+        if ( from.length() <= MAX_IN_MEMORY_COMPARE_SIZE )
+        {
+            buffer = new ByteArrayOutputStream( (int) from.length() + ONE_KB );
+            filter( from, buffer, encoding, wrappers );
+            if ( buffer.size() == to.length() && contentEquals( buffer.toByteArray(), to ) )
+            {
+                return false;
+            }
+        }
 
-                    fileWriter = new OutputStreamWriter( outstream, encoding );
+        File temp = createTempFile( to.getName(), ".tmp", to.getParentFile() );
+        try
+        {
+            OutputStream out = null;
+            try
+            {
+                out = new FileOutputStream( temp );
+                if ( buffer != null )
+                {
+                    buffer.writeTo( out );
                 }
-
-                Reader reader = fileReader;
-                for ( FilterWrapper wrapper : wrappers )
+                else
                 {
-                    reader = wrapper.getReader( reader );
+                    filter( from, out, encoding, wrappers );
                 }
-
-                IOUtil.copy( reader, fileWriter );
             }
             finally
             {
-                IOUtil.close( fileReader );
-                IOUtil.close( fileWriter );
+                IOUtil.close( out );
             }
+
+            if ( buffer == null && temp.length() == to.length() && contentEquals( temp, to ) )
+            {
+                return false;
+            }
+
+            if ( Java7Support.isJava7() )
+            {
+                NioFileCopy.move( temp, to );
+            }
+            else
+            {
+                rename( temp, to );
+            }
+            return true;
         }
-        else
+        finally
         {
-            if ( to.lastModified() < from.lastModified() || overwrite )
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    /**
+     * Reads a file through the given filters and writes the result to a stream, which is left open.
+     */
+    private static void filter( @Nonnull File from, @Nonnull OutputStream out, @Nullable String encoding,
+                                @Nonnull FilterWrapper[] wrappers )
+        throws IOException
+    {
+        // buffer so it isn't reading a byte at a time!
+        Reader fileReader = null;
+        try
+        {
+            Writer fileWriter;
+            if ( encoding == null || encoding.length() < 1 )
             {
-                copyFile( from, to );
+                fileReader = new BufferedReader( new FileReader( from ) );
+                fileWriter = new OutputStreamWriter( out );
             }
+            else
+            {
+                FileInputStream instream = new FileInputStream( from );
+
+                fileReader = new BufferedReader( new InputStreamReader( instream, encoding ) );
+
+                fileWriter = new OutputStreamWriter( out, encoding );
+            }
+
+            Reader reader = fileReader;
+            for ( FilterWrapper wrapper : wrappers )
+            {
+                reader = wrapper.getReader( reader );
+            }
+
+            IOUtil.copy( reader, fileWriter );
+            fileWriter.flush();
+        }
+        finally
+        {
+            IOUtil.close( fileReader );
+        }
+    }
+
+    private static boolean contentEquals( @Nonnull byte[] content, @Nonnull File file )
+        throws IOException
+    {
+        InputStream input = null;
+        try
+        {
+            input = new FileInputStream( file );
+            return IOUtil.contentEquals( new ByteArrayInputStream( content ), input );
+        }
+        finally
+        {
+            IOUtil.close( input );
         }
     }
 
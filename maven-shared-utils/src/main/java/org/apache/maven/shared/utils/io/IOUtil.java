@@ -123,6 +123,11 @@ public final class IOUtil
 {
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
 
+    /**
+     * The chunk size in which {@link #contentEquals(InputStream, InputStream)} compares streams.
+     */
+    private static final int COMPARE_BUFFER_SIZE = 1024 * 16;
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -628,22 +633,53 @@ public final class IOUtil
     public static boolean contentEquals( @Nonnull final InputStream input1, @Nonnull final InputStream input2 )
         throws IOException
     {
-        final InputStream bufferedInput1 = new BufferedInputStream( input1 );
-        final InputStream bufferedInput2 = new BufferedInputStream( input2 );
+        // reads of a full buffer bypass the buffering, which is only kept to report null streams as closed
+        final InputStream bufferedInput1 = new BufferedInputStream( input1, COMPARE_BUFFER_SIZE );
+        final InputStream bufferedInput2 = new BufferedInputStream( input2, COMPARE_BUFFER_SIZE );
 
-        int ch = bufferedInput1.read();
-        while ( -1 != ch )
+        final byte[] buffer1 = new byte[COMPARE_BUFFER_SIZE];
+        final byte[] buffer2 = new byte[COMPARE_BUFFER_SIZE];
+        while ( true )
         {
-            final int ch2 = bufferedInput2.read();
-            if ( ch != ch2 )
+            final int n1 = readFully( bufferedInput1, buffer1 );
+            final int n2 = readFully( bufferedInput2, buffer2 );
+            if ( n1 != n2 )
             {
                 return false;
             }
-            ch = bufferedInput1.read();
+            for ( int i = 0; i < n1; i++ )
+            {
+                if ( buffer1[i] != buffer2[i] )
+                {
+                    return false;
+                }
+            }
+            if ( n1 < COMPARE_BUFFER_SIZE )
+            {
+                return true;
+            }
         }
+    }
 
-        final int ch2 = bufferedInput2.read();
-        return -1 == ch2;
+    /**
+     * Reads until the buffer is full or the end of the stream is reached.
+     *
+     * @return the number of bytes read, less than the buffer size only at the end of the stream.
+     */
+    private static int readFully( @Nonnull InputStream input, @Nonnull byte[] buffer )
+        throws IOException
+    {
+        int count = 0;
+        while ( count < buffer.length )
+        {
+            final int n = input.read( buffer, count, buffer.length - count );
+            if ( n < 0 )
+            {
+                break;
+            }
+            count += n;
+        }
+        return count;
     }
 
     // ----------------------------------------------------------------------
@@ -103,6 +103,11 @@ public class MatchPattern
         }
     }
 
+    boolean isRegex()
+    {
+        return regexPattern != null;
+    }
+
     public String[] getTokenizedPathString()
     {
         return tokenized;
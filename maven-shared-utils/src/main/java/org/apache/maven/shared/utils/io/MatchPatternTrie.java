@@ -0,0 +1,566 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * All ant style patterns of a {@link MatchPatterns} compiled into one token level trie.
+ * <p/>
+ * Each edge of the trie is a single path segment of a pattern: either a literal name, a '*' followed by a literal
+ * suffix, any other name with '*' and '?' wildcards or '**'. Literals and suffixes are looked up by hash, so their
+ * number hardly matters. Patterns sharing the same leading segments share the same nodes. A path is matched by walking
+ * all its segments through the trie once, keeping the set of reachable nodes like a non deterministic automaton,
+ * instead of matching every pattern on its own. '**' nodes loop on themselves, which gives the same results as the
+ * backtracking in {@link SelectorUtils}.
+ * <p/>
+ * Patterns starting with the separator and patterns which don't are kept below two different roots, as they have to
+ * be told apart when testing whether a directory could hold included files.
+ * <p/>
+ * Matching allocates little: segments are looked up as regions of the path, and the node sets of a match are two
+ * arrays sized by the number of nodes. They are allocated per match rather than cached per thread, as a cache in a
+ * static thread local would keep the class loader of this class reachable from long lived build threads.
+ * <p/>
+ * Instances are immutable once compiled and can be used from multiple threads.
+ */
+final class MatchPatternTrie
+{
+    private static final String DOUBLE_STAR = "**";
+
+    private final String separator;
+
+    private final Node relativeRoot = new Node( false );
+
+    private final Node rootedRoot = new Node( false );
+
+    private int nodeCount = 2;
+
+    MatchPatternTrie( @Nonnull String separator )
+    {
+        this.separator = separator;
+    }
+
+    /**
+     * Adds an ant style pattern.
+     *
+     * @param rooted whether the pattern starts with the separator
+     * @param tokens the segments of the pattern
+     */
+    void add( boolean rooted, @Nonnull String[] tokens )
+    {
+        Node node = rooted ? rootedRoot : relativeRoot;
+        for ( String token : tokens )
+        {
+            node = node.getOrAddChild( token );
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * Tests whether the given path matches at least one of the patterns.
+     *
+     * @param name            the path, using the separator of this trie
+     * @param isCaseSensitive if the comparison is case sensitive
+     * @return true if any of the patterns match
+     */
+    boolean matches( @Nonnull String name, boolean isCaseSensitive )
+    {
+        Node[] current = new Node[nodeCount];
+        Node[] next = new Node[nodeCount];
+        int currentSize = addClosure( current, 0, relativeRoot );
+        currentSize = addClosure( current, currentSize, rootedRoot );
+
+        int pos = 0;
+        final int length = name.length();
+        while ( pos < length && currentSize > 0 )
+        {
+            int end = name.indexOf( separator, pos );
+            if ( end < 0 )
+            {
+                end = length;
+            }
+            if ( end > pos )
+            {
+                int nextSize = 0;
+                for ( int i = 0; i < currentSize; i++ )
+                {
+                    nextSize = current[i].step( name, pos, end, isCaseSensitive, next, nextSize, true );
+                }
+                Node[] tmp = current;
+                current = next;
+                next = tmp;
+                currentSize = nextSize;
+            }
+            pos = end + separator.length();
+        }
+
+        for ( int i = 0; i < currentSize; i++ )
+        {
+            if ( current[i].terminal )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests whether the given directory path matches the start of at least one pattern up to the first '**', or in
+     * other words, whether the directory could hold included files.
+     *
+     * @param name            the path, using the separator of this trie
+     * @param isCaseSensitive if the comparison is case sensitive
+     * @return true if the directory could hold files matching one of the patterns
+     */
+    boolean matchesPatternStart( @Nonnull String name, boolean isCaseSensitive )
+    {
+        Node[] current = new Node[nodeCount];
+        Node[] next = new Node[nodeCount];
+        current[0] = name.startsWith( separator ) ? rootedRoot : relativeRoot;
+        int currentSize = 1;
+
+        int pos = 0;
+        final int length = name.length();
+        while ( pos < length )
+        {
+            int end = name.indexOf( separator, pos );
+            if ( end < 0 )
+            {
+                end = length;
+            }
+            if ( end > pos )
+            {
+                int nextSize = 0;
+                for ( int i = 0; i < currentSize; i++ )
+                {
+                    if ( current[i].doubleStarChild != null )
+                    {
+                        return true;
+                    }
+                    nextSize = current[i].step( name, pos, end, isCaseSensitive, next, nextSize, false );
+                }
+                if ( nextSize == 0 )
+                {
+                    return false;
+                }
+                Node[] tmp = current;
+                current = next;
+                next = tmp;
+                currentSize = nextSize;
+            }
+            pos = end + separator.length();
+        }
+        return true;
+    }
+
+    private static int addClosure( Node[] nodes, int size, Node node )
+    {
+        for ( Node n = node; n != null; n = n.doubleStarChild )
+        {
+            size = add( nodes, size, n );
+        }
+        return size;
+    }
+
+    private static int add( Node[] nodes, int size, Node node )
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( nodes[i] == node )
+            {
+                return size;
+            }
+        }
+        nodes[size] = node;
+        return size + 1;
+    }
+
+    private static boolean isWildcard( String token )
+    {
+        return token.indexOf( '*' ) >= 0 || token.indexOf( '?' ) >= 0;
+    }
+
+    private static boolean isAscii( String str, int start, int end )
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            if ( str.charAt( i ) > 127 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Folds the case of an ASCII token the same way {@link SelectorUtils#match(String, String, boolean)} compares
+     * characters case insensitively.
+     */
+    private static String foldCase( String token )
+    {
+        char[] chars = null;
+        for ( int i = 0; i < token.length(); i++ )
+        {
+            char c = token.charAt( i );
+            if ( c >= 'A' && c <= 'Z' )
+            {
+                if ( chars == null )
+                {
+                    chars = token.toCharArray();
+                }
+                chars[i] = foldCase( c );
+            }
+        }
+        return chars == null ? token : new String( chars );
+    }
+
+    private static char foldCase( char c )
+    {
+        return c >= 'A' && c <= 'Z' ? (char) ( c + ( 'a' - 'A' ) ) : c;
+    }
+
+    private static int addChild( Node[] next, int nextSize, Node child, boolean closure )
+    {
+        if ( child == null )
+        {
+            return nextSize;
+        }
+        return closure ? addClosure( next, nextSize, child ) : add( next, nextSize, child );
+    }
+
+    private final class Node
+    {
+        private final boolean doubleStar;
+
+        private boolean terminal;
+
+        private Node doubleStarChild;
+
+        /**
+         * Children for segments without any wildcard.
+         */
+        private final TokenIndex literals = new TokenIndex();
+
+        /**
+         * Children for segments consisting of '*' followed by a literal, like "*.java", keyed by that literal.
+         */
+        private final TokenIndex suffixes = new TokenIndex();
+
+        private int[] suffixLengths = new int[0];
+
+        /**
+         * Children for all other segments with wildcards.
+         */
+        private final List<String> wildcards = new ArrayList<String>();
+
+        private final List<Node> wildcardChildren = new ArrayList<Node>();
+
+        Node( boolean doubleStar )
+        {
+            this.doubleStar = doubleStar;
+        }
+
+        Node getOrAddChild( String token )
+        {
+            if ( DOUBLE_STAR.equals( token ) )
+            {
+                if ( doubleStarChild == null )
+                {
+                    doubleStarChild = newNode( true );
+                }
+                return doubleStarChild;
+            }
+            if ( !isWildcard( token ) )
+            {
+                return literals.getOrAdd( token );
+            }
+            if ( token.charAt( 0 ) == '*' && !isWildcard( token.substring( 1 ) ) )
+            {
+                String suffix = token.substring( 1 );
+                addSuffixLength( suffix.length() );
+                return suffixes.getOrAdd( suffix );
+            }
+            int index = wildcards.indexOf( token );
+            if ( index >= 0 )
+            {
+                return wildcardChildren.get( index );
+            }
+            Node child = newNode( false );
+            wildcards.add( token );
+            wildcardChildren.add( child );
+            return child;
+        }
+
+        private void addSuffixLength( int length )
+        {
+            for ( int suffixLength : suffixLengths )
+            {
+                if ( suffixLength == length )
+                {
+                    return;
+                }
+            }
+            int[] newLengths = new int[suffixLengths.length + 1];
+            System.arraycopy( suffixLengths, 0, newLengths, 0, suffixLengths.length );
+            newLengths[suffixLengths.length] = length;
+            suffixLengths = newLengths;
+        }
+
+        /**
+         * Adds all nodes reachable by consuming the token <code>[start, end)</code> of <code>name</code> to
+         * <code>next</code>.
+         *
+         * @param closure whether to follow '**' children and loops, or to stop at them
+         * @return the new size of <code>next</code>
+         */
+        int step( String name, int start, int end, boolean isCaseSensitive, Node[] next, int nextSize,
+                  boolean closure )
+        {
+            if ( closure && doubleStar )
+            {
+                // '**' swallows the token
+                nextSize = add( next, nextSize, this );
+            }
+
+            if ( !literals.isEmpty() )
+            {
+                nextSize = literals.addMatching( name, start, end, isCaseSensitive, next, nextSize, closure );
+            }
+
+            for ( int suffixLength : suffixLengths )
+            {
+                if ( suffixLength <= end - start )
+                {
+                    nextSize = suffixes.addMatching( name, end - suffixLength, end, isCaseSensitive, next, nextSize,
+                                                     closure );
+                }
+            }
+
+            for ( int i = 0; i < wildcards.size(); i++ )
+            {
+                final String wildcard = wildcards.get( i );
+                if ( SelectorUtils.match( wildcard, 0, wildcard.length(), name, start, end, isCaseSensitive ) )
+                {
+                    nextSize = addChild( next, nextSize, wildcardChildren.get( i ), closure );
+                }
+            }
+            return nextSize;
+        }
+    }
+
+    /**
+     * Children keyed by a literal string, with support for case insensitive lookups.
+     */
+    private final class TokenIndex
+    {
+        private final RegionMap exact = new RegionMap( false );
+
+        /**
+         * The ASCII keys by their folded case, mapped to arrays of nodes.
+         */
+        private final RegionMap folded = new RegionMap( true );
+
+        private final List<String> keys = new ArrayList<String>();
+
+        /**
+         * The keys which could be equal to an ASCII string case insensitively without being equal after folding.
+         */
+        private final List<String> nonAscii = new ArrayList<String>();
+
+        boolean isEmpty()
+        {
+            return keys.isEmpty();
+        }
+
+        Node getOrAdd( String key )
+        {
+            Node child = (Node) exact.get( key, 0, key.length() );
+            if ( child == null )
+            {
+                child = newNode( false );
+                exact.put( key, child );
+                keys.add( key );
+                if ( isAscii( key, 0, key.length() ) )
+                {
+                    String foldedKey = foldCase( key );
+                    Node[] nodes = (Node[]) folded.get( foldedKey, 0, foldedKey.length() );
+                    Node[] newNodes = new Node[nodes == null ? 1 : nodes.length + 1];
+                    if ( nodes != null )
+                    {
+                        System.arraycopy( nodes, 0, newNodes, 0, nodes.length );
+                    }
+                    newNodes[newNodes.length - 1] = child;
+                    folded.put( foldedKey, newNodes );
+                }
+                else
+                {
+                    nonAscii.add( key );
+                }
+            }
+            return child;
+        }
+
+        /**
+         * Adds the children whose key matches the region <code>[start, end)</code> of <code>str</code>.
+         */
+        int addMatching( String str, int start, int end, boolean isCaseSensitive, Node[] next, int nextSize,
+                         boolean closure )
+        {
+            if ( isCaseSensitive )
+            {
+                return addChild( next, nextSize, (Node) exact.get( str, start, end ), closure );
+            }
+
+            if ( isAscii( str, start, end ) )
+            {
+                Node[] nodes = (Node[]) folded.get( str, start, end );
+                if ( nodes != null )
+                {
+                    for ( Node node : nodes )
+                    {
+                        nextSize = addChild( next, nextSize, node, closure );
+                    }
+                }
+                return addMatching( nonAscii, str, start, end, next, nextSize, closure );
+            }
+
+            return addMatching( keys, str, start, end, next, nextSize, closure );
+        }
+
+        private int addMatching( List<String> candidates, String str, int start, int end, Node[] next, int nextSize,
+                                 boolean closure )
+        {
+            for ( int i = 0; i < candidates.size(); i++ )
+            {
+                final String key = candidates.get( i );
+                if ( SelectorUtils.match( key, 0, key.length(), str, start, end, false ) )
+                {
+                    nextSize = addChild( next, nextSize, (Node) exact.get( key, 0, key.length() ), closure );
+                }
+            }
+            return nextSize;
+        }
+    }
+
+    /**
+     * A hash map with string keys which can be looked up by a region of another string without creating a substring
+     * first, optionally ignoring the case of ASCII letters.
+     */
+    private static final class RegionMap
+    {
+        private final boolean foldCase;
+
+        private String[] keys = new String[8];
+
+        private Object[] values = new Object[8];
+
+        private int size;
+
+        RegionMap( boolean foldCase )
+        {
+            this.foldCase = foldCase;
+        }
+
+        Object get( String str, int start, int end )
+        {
+            final int mask = keys.length - 1;
+            for ( int i = hash( str, start, end ) & mask; keys[i] != null; i = ( i + 1 ) & mask )
+            {
+                if ( regionEquals( keys[i], str, start, end ) )
+                {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param key the key, already folded if this map ignores case
+         */
+        void put( String key, Object value )
+        {
+            if ( 2 * ( size + 1 ) > keys.length )
+            {
+                final String[] oldKeys = keys;
+                final Object[] oldValues = values;
+                keys = new String[oldKeys.length * 2];
+                values = new Object[oldKeys.length * 2];
+                size = 0;
+                for ( int i = 0; i < oldKeys.length; i++ )
+                {
+                    if ( oldKeys[i] != null )
+                    {
+                        put( oldKeys[i], oldValues[i] );
+                    }
+                }
+            }
+
+            final int mask = keys.length - 1;
+            int i = hash( key, 0, key.length() ) & mask;
+            while ( keys[i] != null && !keys[i].equals( key ) )
+            {
+                i = ( i + 1 ) & mask;
+            }
+            if ( keys[i] == null )
+            {
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        private int hash( String str, int start, int end )
+        {
+            int h = 0;
+            for ( int i = start; i < end; i++ )
+            {
+                final char c = str.charAt( i );
+                h = 31 * h + ( foldCase ? foldCase( c ) : c );
+            }
+            return h ^ ( h >>> 16 );
+        }
+
+        private boolean regionEquals( String key, String str, int start, int end )
+        {
+            if ( key.length() != end - start )
+            {
+                return false;
+            }
+            for ( int i = 0; i < key.length(); i++ )
+            {
+                final char c = str.charAt( start + i );
+                if ( key.charAt( i ) != ( foldCase ? foldCase( c ) : c ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private Node newNode( boolean doubleStar )
+    {
+        nodeCount++;
+        return new Node( doubleStar );
+    }
+}
@@ -20,11 +20,16 @@ package org.apache.maven.shared.utils.io;
  */
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
 /**
  * A list of patterns to be matched
+ * <p/>
+ * All ant style patterns are compiled into a single {@link MatchPatternTrie}, so a name is matched against all of
+ * them in one pass. Regular expression patterns are still matched one by one.
  *
  * @author Kristian Rosenvold
  */
@@ -32,15 +37,35 @@ public class MatchPatterns
 {
     private final MatchPattern[] patterns;
 
+    private final MatchPattern[] regexPatterns;
+
+    private final MatchPatternTrie antPatterns;
+
     private MatchPatterns( @Nonnull MatchPattern... patterns )
     {
         this.patterns = patterns;
+
+        List<MatchPattern> regex = new ArrayList<MatchPattern>();
+        antPatterns = new MatchPatternTrie( File.separator );
+        for ( MatchPattern pattern : patterns )
+        {
+            if ( pattern.isRegex() )
+            {
+                regex.add( pattern );
+            }
+            else
+            {
+                antPatterns.add( pattern.startsWith( File.separator ), pattern.getTokenizedPathString() );
+            }
+        }
+        regexPatterns = regex.toArray( new MatchPattern[regex.size()] );
     }
 
     /**
      * Checks these MatchPatterns against a specified string.
      * <p/>
-     * Uses far less string tokenization than any of the alternatives.
+     * Walks the name through the compiled patterns only once, regardless of the number of patterns. Each call
+     * allocates the two small node sets of the walk, see {@link MatchPatternTrie}.
      *
      * @param name            The name to look for
      * @param isCaseSensitive If the comparison is case sensitive
@@ -48,27 +73,28 @@ public class MatchPatterns
      */
     public boolean matches( @Nonnull String name, boolean isCaseSensitive )
     {
-        String[] tokenized = MatchPattern.tokenizePathToString( name, File.separator );
-        for ( MatchPattern pattern : patterns )
+        for ( MatchPattern pattern : regexPatterns )
         {
-            if ( pattern.matchPath( name, tokenized, isCaseSensitive ) )
+            if ( pattern.matchPath( name, isCaseSensitive ) )
             {
                 return true;
             }
         }
-        return false;
+        return antPatterns.matches( name, isCaseSensitive );
     }
 
+    /**
+     * Checks whether a directory could hold names matching any of these MatchPatterns, which is the case if the name
+     * matches the start of at least one pattern up to its first "**". Regular expression patterns can't be matched
+     * partially, so they always could.
+     *
+     * @param name            The name of the directory
+     * @param isCaseSensitive If the comparison is case sensitive
+     * @return true if the directory could hold matching names
+     */
     public boolean matchesPatternStart( @Nonnull String name, boolean isCaseSensitive )
     {
-        for ( MatchPattern includesPattern : patterns )
-        {
-            if ( includesPattern.matchPatternStart( name, isCaseSensitive ) )
-            {
-                return true;
-            }
-        }
-        return false;
+        return regexPatterns.length > 0 || antPatterns.matchesPatternStart( name, isCaseSensitive );
     }
 
     public static MatchPatterns from( @Nonnull String... sources )
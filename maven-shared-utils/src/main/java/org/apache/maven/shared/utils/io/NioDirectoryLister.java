@@ -0,0 +1,162 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Lists directories for the {@link DirectoryScanner} through <code>java.nio.file</code>.
+ * <p/>
+ * Reads the {@link BasicFileAttributes} of every entry exactly once instead of issuing separate
+ * <code>isDirectory()</code>, <code>isFile()</code> and symbolic link checks. Only symbolic links cost a second
+ * lookup to resolve their target.
+ * <p/>
+ * This class references Java 7 API directly and must only be used if {@link Java7Support#isJava7()} is true.
+ */
+final class NioDirectoryLister
+{
+    private NioDirectoryLister()
+    {
+    }
+
+    /**
+     * Lists and classifies the content of the given directory.
+     *
+     * @param dir            the directory to list
+     * @param followSymlinks whether symbolic links are followed, if not they get flagged
+     * @return the content of the directory, empty if it could not be read.
+     */
+    @Nonnull
+    static DirectoryListing list( @Nonnull File dir, boolean followSymlinks )
+    {
+        final List<String> names = new ArrayList<String>();
+        byte[] types = new byte[16];
+
+        final DirectoryStream<Path> stream;
+        try
+        {
+            stream = Files.newDirectoryStream( dir.toPath() );
+        }
+        catch ( IOException e )
+        {
+            // same as File.list() returning null
+            return DirectoryListing.EMPTY;
+        }
+
+        try
+        {
+            for ( Path path : stream )
+            {
+                if ( names.size() == types.length )
+                {
+                    final byte[] grown = new byte[types.length * 2];
+                    System.arraycopy( types, 0, grown, 0, types.length );
+                    types = grown;
+                }
+                types[names.size()] = getType( path, followSymlinks );
+                names.add( path.getFileName().toString() );
+            }
+        }
+        catch ( DirectoryIteratorException e )
+        {
+            // the directory got modified or became unreadable, go on with what we have seen so far
+        }
+        finally
+        {
+            try
+            {
+                stream.close();
+            }
+            catch ( IOException e )
+            {
+                // ignore
+            }
+        }
+
+        final byte[] typeArray = new byte[names.size()];
+        System.arraycopy( types, 0, typeArray, 0, typeArray.length );
+        return new DirectoryListing( names.toArray( new String[names.size()] ), typeArray );
+    }
+
+    /**
+     * @return the type of the given entry, as reported by {@link #list(File, boolean)}.
+     */
+    static byte getType( @Nonnull Path path, boolean followSymlinks )
+    {
+        final BasicFileAttributes attributes;
+        try
+        {
+            attributes = Files.readAttributes( path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+        }
+        catch ( IOException e )
+        {
+            // vanished in the meantime
+            return DirectoryListing.OTHER;
+        }
+
+        if ( !attributes.isSymbolicLink() )
+        {
+            return getType( attributes );
+        }
+
+        final byte targetType;
+        try
+        {
+            targetType = getType( Files.readAttributes( path, BasicFileAttributes.class ) );
+        }
+        catch ( IOException e )
+        {
+            // dangling link
+            return followSymlinks ? DirectoryListing.OTHER : DirectoryListing.SYMLINK | DirectoryListing.FILE;
+        }
+
+        if ( followSymlinks )
+        {
+            return targetType;
+        }
+        // links are reported as excluded directories if they point to one and as excluded files otherwise
+        return (byte) ( DirectoryListing.SYMLINK
+            | ( targetType == DirectoryListing.DIRECTORY ? DirectoryListing.DIRECTORY : DirectoryListing.FILE ) );
+    }
+
+    private static byte getType( BasicFileAttributes attributes )
+    {
+        if ( attributes.isDirectory() )
+        {
+            return DirectoryListing.DIRECTORY;
+        }
+        if ( attributes.isRegularFile() )
+        {
+            return DirectoryListing.FILE;
+        }
+        return DirectoryListing.OTHER;
+    }
+}
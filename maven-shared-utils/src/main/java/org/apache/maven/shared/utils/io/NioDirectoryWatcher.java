@@ -0,0 +1,412 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps the included files of a directory tree up to date through a {@link WatchService}.
+ * <p/>
+ * Every directory a fast {@link DirectoryScanner#scan()} would descend into is registered with the watch service.
+ * Create, delete and modify events are matched against the include and exclude patterns one by one, and new
+ * directories are walked and registered as they show up. If the watch service lost events, the whole tree is read
+ * again and compared with the known files.
+ * <p/>
+ * This class references Java 7 API directly and must only be used if {@link Java7Support#isJava7()} is true.
+ */
+final class NioDirectoryWatcher
+{
+    private enum Change
+    {
+        ADDED, REMOVED, MODIFIED
+    }
+
+    /**
+     * Files modified less than this many milliseconds before the last complete poll might have been modified without
+     * their modification date telling.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final File basedir;
+
+    private final MatchPatterns includesPatterns;
+
+    private final MatchPatterns excludesPatterns;
+
+    private final boolean isCaseSensitive;
+
+    private final boolean followSymlinks;
+
+    private final WatchService watchService;
+
+    /**
+     * The watched directories by the name relative to the base directory, "" for the base directory itself.
+     */
+    private final SortedMap<String, WatchKey> directories = new TreeMap<String, WatchKey>();
+
+    private final Map<WatchKey, String> keys = new HashMap<WatchKey, String>();
+
+    /**
+     * The included files, sorted so that the files below a directory form a range.
+     */
+    private final SortedSet<String> files = new TreeSet<String>();
+
+    /**
+     * The changes since the last poll.
+     */
+    private final Map<String, Change> changes = new LinkedHashMap<String, Change>();
+
+    /**
+     * When all events up to then had been applied, files not modified since are unchanged if events get lost.
+     */
+    private long lastSync;
+
+    NioDirectoryWatcher( @Nonnull File basedir, @Nonnull MatchPatterns includesPatterns,
+                         @Nonnull MatchPatterns excludesPatterns, boolean isCaseSensitive, boolean followSymlinks )
+        throws IOException
+    {
+        this.basedir = basedir;
+        this.includesPatterns = includesPatterns;
+        this.excludesPatterns = excludesPatterns;
+        this.isCaseSensitive = isCaseSensitive;
+        this.followSymlinks = followSymlinks;
+        this.watchService = basedir.toPath().getFileSystem().newWatchService();
+        this.lastSync = System.currentTimeMillis();
+        try
+        {
+            addDirectory( basedir, "" );
+        }
+        catch ( IOException e )
+        {
+            watchService.close();
+            throw e;
+        }
+        changes.clear();
+    }
+
+    String[] getIncludedFiles()
+    {
+        return files.toArray( new String[files.size()] );
+    }
+
+    /**
+     * Applies all pending events, waiting for the first one up to the given time.
+     *
+     * @return the changes since the previous poll
+     */
+    DirectoryScanResult poll( long timeout, @Nonnull TimeUnit unit )
+        throws IOException, InterruptedException
+    {
+        long drained = System.currentTimeMillis();
+        WatchKey key = timeout > 0 ? watchService.poll( timeout, unit ) : watchService.poll();
+        while ( key != null )
+        {
+            process( key );
+            drained = System.currentTimeMillis();
+            key = watchService.poll();
+        }
+        lastSync = drained;
+
+        final List<String> added = new ArrayList<String>();
+        final List<String> removed = new ArrayList<String>();
+        final List<String> modified = new ArrayList<String>();
+        for ( Map.Entry<String, Change> change : changes.entrySet() )
+        {
+            switch ( change.getValue() )
+            {
+                case ADDED:
+                    added.add( change.getKey() );
+                    break;
+                case REMOVED:
+                    removed.add( change.getKey() );
+                    break;
+                default:
+                    modified.add( change.getKey() );
+            }
+        }
+        changes.clear();
+        return new DirectoryScanResult( added.toArray( new String[added.size()] ),
+                                        removed.toArray( new String[removed.size()] ),
+                                        modified.toArray( new String[modified.size()] ) );
+    }
+
+    void close()
+        throws IOException
+    {
+        watchService.close();
+    }
+
+    private void process( WatchKey key )
+        throws IOException
+    {
+        final String dirName = keys.get( key );
+        if ( dirName == null )
+        {
+            // cancelled in the meantime
+            key.reset();
+            return;
+        }
+
+        for ( WatchEvent<?> event : key.pollEvents() )
+        {
+            if ( event.kind() == StandardWatchEventKinds.OVERFLOW )
+            {
+                resync();
+                continue;
+            }
+
+            final Path child = ( (Path) key.watchable() ).resolve( (Path) event.context() );
+            final String name = prefix( dirName ) + event.context().toString();
+            if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE )
+            {
+                final byte type = NioDirectoryLister.getType( child, followSymlinks );
+                if ( type == DirectoryListing.DIRECTORY )
+                {
+                    if ( couldRecurseInto( name ) )
+                    {
+                        addDirectory( child.toFile(), name );
+                    }
+                }
+                else if ( type == DirectoryListing.FILE )
+                {
+                    addFile( name );
+                }
+            }
+            else if ( event.kind() == StandardWatchEventKinds.ENTRY_DELETE )
+            {
+                removeFile( name );
+                removeDirectory( name );
+            }
+            else if ( event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && files.contains( name ) )
+            {
+                change( name, Change.MODIFIED );
+            }
+        }
+
+        if ( !key.reset() )
+        {
+            // the directory is gone or not accessible anymore
+            removeDirectory( dirName );
+        }
+    }
+
+    /**
+     * Registers a directory and everything below it a fast scan would descend into, and adds the included files.
+     */
+    private void addDirectory( File dir, String name )
+        throws IOException
+    {
+        if ( !directories.containsKey( name ) )
+        {
+            // register before listing, so nothing created in between gets lost
+            final WatchKey key;
+            try
+            {
+                key = dir.toPath().register( watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                             StandardWatchEventKinds.ENTRY_DELETE,
+                                             StandardWatchEventKinds.ENTRY_MODIFY );
+            }
+            catch ( ClosedWatchServiceException e )
+            {
+                throw new IOException( "The watcher has been closed" );
+            }
+            catch ( IOException e )
+            {
+                if ( name.length() == 0 )
+                {
+                    throw e;
+                }
+                // vanished in the meantime
+                return;
+            }
+            directories.put( name, key );
+            keys.put( key, name );
+        }
+
+        final DirectoryListing listing = NioDirectoryLister.list( dir, followSymlinks );
+        final String prefix = prefix( name );
+        for ( int i = 0; i < listing.size(); i++ )
+        {
+            if ( listing.isSymbolicLink( i ) )
+            {
+                continue;
+            }
+            final String childName = prefix + listing.getName( i );
+            if ( listing.isDirectory( i ) )
+            {
+                if ( couldRecurseInto( childName ) )
+                {
+                    addDirectory( new File( dir, listing.getName( i ) ), childName );
+                }
+            }
+            else if ( listing.isFile( i ) )
+            {
+                addFile( childName );
+            }
+        }
+    }
+
+    /**
+     * Stops watching a directory and everything below it, and removes the files it held.
+     */
+    private void removeDirectory( String name )
+    {
+        if ( !directories.containsKey( name ) )
+        {
+            return;
+        }
+
+        final String prefix = prefix( name );
+        final SortedMap<String, WatchKey> subDirectories =
+            name.length() == 0 ? directories : directories.subMap( prefix, prefix + Character.MAX_VALUE );
+        for ( WatchKey key : subDirectories.values() )
+        {
+            key.cancel();
+            keys.remove( key );
+        }
+        subDirectories.clear();
+        final WatchKey key = directories.remove( name );
+        if ( key != null )
+        {
+            key.cancel();
+            keys.remove( key );
+        }
+
+        final SortedSet<String> subFiles =
+            name.length() == 0 ? files : files.subSet( prefix, prefix + Character.MAX_VALUE );
+        for ( String file : subFiles )
+        {
+            change( file, Change.REMOVED );
+        }
+        subFiles.clear();
+    }
+
+    private void addFile( String name )
+    {
+        if ( includesPatterns.matches( name, isCaseSensitive ) && !excludesPatterns.matches( name, isCaseSensitive )
+            && files.add( name ) )
+        {
+            change( name, Change.ADDED );
+        }
+    }
+
+    private void removeFile( String name )
+    {
+        if ( files.remove( name ) )
+        {
+            change( name, Change.REMOVED );
+        }
+    }
+
+    /**
+     * Reads the whole tree again after the watch service lost events, and reports the differences to the known files.
+     * Files which are still there are reported as modified if their modification date is too close to or after the
+     * last complete poll.
+     */
+    void resync()
+        throws IOException
+    {
+        final SortedSet<String> oldFiles = new TreeSet<String>( files );
+        final Map<String, Change> oldChanges = new LinkedHashMap<String, Change>( changes );
+        files.clear();
+        addDirectory( basedir, "" );
+        changes.clear();
+        changes.putAll( oldChanges );
+        final long unchangedBefore = lastSync - TIMESTAMP_RESOLUTION;
+        for ( String file : oldFiles )
+        {
+            if ( !files.contains( file ) )
+            {
+                change( file, Change.REMOVED );
+            }
+            else if ( new File( basedir, file ).lastModified() >= unchangedBefore )
+            {
+                change( file, Change.MODIFIED );
+            }
+        }
+        for ( String file : files )
+        {
+            if ( !oldFiles.contains( file ) )
+            {
+                change( file, Change.ADDED );
+            }
+        }
+    }
+
+    /**
+     * Merges a change with the changes since the last poll.
+     */
+    private void change( String name, Change change )
+    {
+        final Change previous = changes.get( name );
+        if ( previous == null )
+        {
+            changes.put( name, change );
+        }
+        else if ( change == Change.REMOVED )
+        {
+            if ( previous == Change.ADDED )
+            {
+                // came and went
+                changes.remove( name );
+            }
+            else
+            {
+                changes.put( name, Change.REMOVED );
+            }
+        }
+        else if ( previous == Change.REMOVED )
+        {
+            // gone and back again
+            changes.put( name, Change.MODIFIED );
+        }
+    }
+
+    private boolean couldRecurseInto( String name )
+    {
+        return ( includesPatterns.matches( name, isCaseSensitive )
+            && !excludesPatterns.matches( name, isCaseSensitive ) )
+            || includesPatterns.matchesPatternStart( name, isCaseSensitive );
+    }
+
+    private static String prefix( String dirName )
+    {
+        return dirName.length() == 0 ? "" : dirName + File.separator;
+    }
+}
@@ -0,0 +1,94 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Copies, moves and links files through <code>java.nio.file</code>.
+ * <p/>
+ * This class references Java 7 API directly and must only be used if {@link Java7Support#isJava7()} is true.
+ */
+final class NioFileCopy
+{
+    private NioFileCopy()
+    {
+    }
+
+    /**
+     * Copies a file, replacing the destination if it exists.
+     */
+    static void copy( @Nonnull File source, @Nonnull File destination )
+        throws IOException
+    {
+        Files.copy( source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Moves a file over the destination, atomically if the file system supports it, so that readers of the
+     * destination either see the old or the new content.
+     */
+    static void move( @Nonnull File source, @Nonnull File destination )
+        throws IOException
+    {
+        try
+        {
+            Files.move( source.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    /**
+     * Creates a hard link to a file, replacing the destination if it exists.
+     *
+     * @return <code>false</code> if the file system can't link the two files, for example as they are on different
+     *         file systems.
+     */
+    static boolean link( @Nonnull File source, @Nonnull File destination )
+        throws IOException
+    {
+        final Path link = destination.toPath();
+        Files.deleteIfExists( link );
+        try
+        {
+            Files.createLink( link, source.toPath() );
+            return true;
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            return false;
+        }
+        catch ( FileSystemException e )
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Copies a directory structure with a bounded pool of threads.
+ * <p/>
+ * The source tree is walked on the calling thread, which creates every destination directory before any file in it
+ * gets copied. The files are handed to the pool, with at most a few tasks per thread queued at any time so that huge
+ * trees don't pile up in memory. The first failure stops the copy and is rethrown once all running copies finished.
+ */
+final class ParallelDirectoryCopier
+{
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final boolean linkFiles;
+
+    private final ExecutorService executor;
+
+    private final Semaphore queued;
+
+    private volatile IOException failure;
+
+    private ParallelDirectoryCopier( int threads, boolean linkFiles )
+    {
+        this.linkFiles = linkFiles;
+        this.executor =
+            threads > 1 ? Executors.newFixedThreadPool( threads, new DaemonThreadFactory( "FileUtils-copy" ) ) : null;
+        this.queued = new Semaphore( threads * TASKS_PER_THREAD );
+    }
+
+    /**
+     * Copies the content of a directory into another one.
+     *
+     * @param sourceDirectory      the directory to copy
+     * @param destinationDirectory the directory to copy to, created if it does not exist
+     * @param threads              the number of threads to copy files with, <code>1</code> to copy on the calling
+     *                             thread
+     * @param linkFiles            whether files get hard linked instead of copied where possible
+     * @throws IOException if a directory could not be created or a file could not be copied
+     */
+    static void copy( @Nonnull File sourceDirectory, @Nonnull File destinationDirectory, int threads,
+                      boolean linkFiles )
+        throws IOException
+    {
+        final ParallelDirectoryCopier copier = new ParallelDirectoryCopier( threads, linkFiles );
+        try
+        {
+            if ( !destinationDirectory.isDirectory() && !destinationDirectory.mkdirs() )
+            {
+                throw new IOException( "Could not create destination directory '"
+                    + destinationDirectory.getAbsolutePath() + "'." );
+            }
+            copier.copyDirectory( sourceDirectory, destinationDirectory, destinationDirectory );
+        }
+        finally
+        {
+            copier.finish();
+        }
+        if ( copier.failure != null )
+        {
+            throw copier.failure;
+        }
+    }
+
+    private void copyDirectory( File sourceDirectory, File destinationDirectory, File rootDestinationDirectory )
+        throws IOException
+    {
+        final DirectoryListing listing = list( sourceDirectory );
+        for ( int i = 0; i < listing.size() && failure == null; i++ )
+        {
+            final File file = new File( sourceDirectory, listing.getName( i ) );
+            if ( file.equals( rootDestinationDirectory ) )
+            {
+                // We don't copy the destination directory in itself
+                continue;
+            }
+
+            final File destination = new File( destinationDirectory, listing.getName( i ) );
+            if ( listing.isFile( i ) )
+            {
+                copyFile( file, destination );
+            }
+            else if ( listing.isDirectory( i ) )
+            {
+                // the parent exists already
+                if ( !destination.mkdir() && !destination.isDirectory() )
+                {
+                    throw new IOException( "Could not create destination directory '" + destination.getAbsolutePath()
+                        + "'." );
+                }
+                copyDirectory( file, destination, rootDestinationDirectory );
+            }
+            else
+            {
+                throw new IOException( "Unknown file type: " + file.getAbsolutePath() );
+            }
+        }
+    }
+
+    private static DirectoryListing list( File directory )
+    {
+        if ( Java7Support.isJava7() )
+        {
+            return NioDirectoryLister.list( directory, true );
+        }
+
+        final File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return DirectoryListing.EMPTY;
+        }
+        final String[] names = new String[files.length];
+        final byte[] types = new byte[files.length];
+        for ( int i = 0; i < files.length; i++ )
+        {
+            names[i] = files[i].getName();
+            types[i] = files[i].isFile()
+                ? DirectoryListing.FILE
+                : files[i].isDirectory() ? DirectoryListing.DIRECTORY : DirectoryListing.OTHER;
+        }
+        return new DirectoryListing( names, types );
+    }
+
+    private void copyFile( final File source, final File destination )
+        throws IOException
+    {
+        if ( executor == null )
+        {
+            doCopyFile( source, destination );
+            return;
+        }
+
+        try
+        {
+            queued.acquire();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while copying " + source );
+        }
+        executor.execute( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    if ( failure == null )
+                    {
+                        doCopyFile( source, destination );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    fail( e );
+                }
+                catch ( RuntimeException e )
+                {
+                    fail( new IOException( "Failed to copy " + source + ": " + e ) );
+                }
+                finally
+                {
+                    queued.release();
+                }
+            }
+        } );
+    }
+
+    private synchronized void fail( IOException e )
+    {
+        if ( failure == null )
+        {
+            failure = e;
+        }
+    }
+
+    private void doCopyFile( File source, File destination )
+        throws IOException
+    {
+        if ( Java7Support.isJava7() )
+        {
+            if ( !linkFiles || !NioFileCopy.link( source, destination ) )
+            {
+                NioFileCopy.copy( source, destination );
+            }
+        }
+        else
+        {
+            FileUtils.copyFile( source, destination );
+        }
+    }
+
+    /**
+     * Waits for all copies which are still running.
+     */
+    private void finish()
+        throws IOException
+    {
+        if ( executor == null )
+        {
+            return;
+        }
+
+        executor.shutdown();
+        try
+        {
+            while ( !executor.awaitTermination( 1, TimeUnit.SECONDS ) )
+            {
+                // keep waiting
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while copying files" );
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Lists directories ahead of a running {@link DirectoryScanner} on a bounded thread pool.
+ * <p/>
+ * The file system access and the matching of the entries against the include and exclude patterns are done in
+ * parallel. Whenever a directory has been listed, all sub directories the scanner would descend into are queued for
+ * listing as well. The scanner itself still walks the tree on the calling thread in the very same order as a
+ * sequential scan, so the collected results, the {@link ScanConductor} callbacks and the effect of
+ * {@link ScanConductor.ScanAction#ABORT} are unchanged. Listings which are not needed anymore are simply dropped when
+ * the scan finishes.
+ * <p/>
+ * Only {@link #PENDING_PER_THREAD} listings per thread are queued or kept ahead of the scanner. Further sub directories
+ * are not prefetched but listed by the scanning thread once it gets there, which in turn prefetches their sub
+ * directories again.
+ * <p/>
+ * Worker threads never wait for other listings, so the pool cannot dead lock regardless of its size.
+ */
+final class ParallelDirectoryLister
+{
+    /**
+     * The number of listings per thread which may be queued, running or waiting for the scanner at the same time.
+     */
+    static final int PENDING_PER_THREAD = 16;
+
+    private final DirectoryScanner scanner;
+
+    private final ExecutorService executor;
+
+    /**
+     * The pending listings, keyed by the path relative to the base directory (including the trailing separator).
+     */
+    private final ConcurrentMap<String, Future<DirectoryListing>> pending =
+        new ConcurrentHashMap<String, Future<DirectoryListing>>();
+
+    /**
+     * Caps the number of {@link #pending} listings, a permit is returned once the scanner took the listing. Listings
+     * of directories the scanner skips keep their permit, which only means less is prefetched for the rest of the scan.
+     */
+    private final Semaphore capacity;
+
+    ParallelDirectoryLister( @Nonnull DirectoryScanner scanner, int threads )
+    {
+        this.scanner = scanner;
+        this.capacity = new Semaphore( threads * PENDING_PER_THREAD );
+        this.executor = Executors.newFixedThreadPool( threads, new DaemonThreadFactory( "DirectoryScanner" ) );
+    }
+
+    /**
+     * Returns the listing of the given directory, waiting for a pending listing if there is one.
+     *
+     * @param dir   the directory to list
+     * @param vpath the path of the directory relative to the base directory
+     * @return the listing of the directory
+     */
+    DirectoryListing list( @Nonnull File dir, @Nonnull String vpath )
+    {
+        Future<DirectoryListing> future = pending.remove( vpath );
+        if ( future != null )
+        {
+            capacity.release();
+            try
+            {
+                return future.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch ( ExecutionException e )
+            {
+                DaemonThreadFactory.rethrowUnchecked( e.getCause() );
+                throw new RuntimeException( e.getCause() );
+            }
+        }
+
+        DirectoryListing listing = scanner.listDirectory( dir );
+        prefetchSubdirectories( dir, vpath, listing );
+        return listing;
+    }
+
+    /**
+     * Stops all workers and drops the listings nobody asked for.
+     */
+    void close()
+    {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    private void prefetchSubdirectories( File dir, String vpath, DirectoryListing listing )
+    {
+        for ( int i = 0; i < listing.size(); i++ )
+        {
+            if ( listing.isDirectory( i ) && !listing.isSymbolicLink( i ) )
+            {
+                String name = listing.getPath( vpath, i );
+                if ( couldRecurseInto( listing, i, name ) )
+                {
+                    prefetch( new File( dir, listing.getName( i ) ), name + File.separator );
+                }
+            }
+        }
+    }
+
+    private boolean couldRecurseInto( DirectoryListing listing, int index, String name )
+    {
+        if ( listing.isMatched() )
+        {
+            return ( listing.isIncluded( index ) && !listing.isExcluded( index ) )
+                || listing.couldHoldIncluded( index );
+        }
+        return scanner.couldRecurseInto( name );
+    }
+
+    private void prefetch( final File dir, final String vpath )
+    {
+        if ( !capacity.tryAcquire() )
+        {
+            // enough listings ahead already, the scanning thread will list the directory itself
+            return;
+        }
+
+        FutureTask<DirectoryListing> task = new FutureTask<DirectoryListing>( new Callable<DirectoryListing>()
+        {
+            public DirectoryListing call()
+            {
+                DirectoryListing listing = scanner.listDirectory( dir ).match( vpath, scanner );
+                prefetchSubdirectories( dir, vpath, listing );
+                return listing;
+            }
+        } );
+
+        pending.put( vpath, task );
+        try
+        {
+            executor.execute( task );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // the scan is already finished, the scanning thread will list the directory itself if needed
+            if ( pending.remove( vpath ) != null )
+            {
+                capacity.release();
+            }
+        }
+    }
+}
@@ -20,9 +20,6 @@ package org.apache.maven.shared.utils.io;
  */
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.StringTokenizer;
 
 import javax.annotation.Nonnull;
 
@@ -130,31 +127,28 @@ public final class SelectorUtils
             return false;
         }
 
-        List<String> patDirs = tokenizePath( pattern, separator );
-        List<String> strDirs = tokenizePath( str, separator );
-
-        int patIdxStart = 0;
-        int patIdxEnd = patDirs.size() - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strDirs.size() - 1;
+        final char sep = separator.charAt( 0 );
+        int patIdx = skipSeparators( pattern, 0, sep );
+        int strIdx = skipSeparators( str, 0, sep );
 
         // up to first '**'
-        while ( patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd )
+        while ( patIdx < pattern.length() && strIdx < str.length() )
         {
-            String patDir = patDirs.get( patIdxStart );
-            if ( "**".equals( patDir ) )
+            int patEnd = segmentEnd( pattern, patIdx, pattern.length(), sep );
+            if ( isDoubleStar( pattern, patIdx, patEnd ) )
             {
                 break;
             }
-            if ( !match( patDir, strDirs.get( strIdxStart ), isCaseSensitive ) )
+            int strEnd = segmentEnd( str, strIdx, str.length(), sep );
+            if ( !match( pattern, patIdx, patEnd, str, strIdx, strEnd, isCaseSensitive ) )
             {
                 return false;
             }
-            patIdxStart++;
-            strIdxStart++;
+            patIdx = skipSeparators( pattern, patEnd, sep );
+            strIdx = skipSeparators( str, strEnd, sep );
         }
 
-        return strIdxStart > strIdxEnd || patIdxStart <= patIdxEnd;
+        return strIdx >= str.length() || patIdx < pattern.length();
     }
 
     /**
@@ -218,134 +212,78 @@ public final class SelectorUtils
             return false;
         }
 
-        List<String> patDirs = tokenizePath( pattern, File.separator );
-        List<String> strDirs = tokenizePath( str, File.separator );
+        final char sep = File.separatorChar;
+        int patIdx = skipSeparators( pattern, 0, sep );
+        int strIdx = skipSeparators( str, 0, sep );
+        int patEnd = trimSeparators( pattern, patIdx, pattern.length(), sep );
+        int strEnd = trimSeparators( str, strIdx, str.length(), sep );
 
-        int patIdxStart = 0;
-        int patIdxEnd = patDirs.size() - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strDirs.size() - 1;
-
-        // up to first '**'
-        while ( patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd )
+        // up to last '**'
+        while ( patEnd > patIdx )
         {
-            String patDir = patDirs.get( patIdxStart );
-            if ( "**".equals( patDir ) )
+            int patDirStart = segmentStart( pattern, patEnd, sep );
+            if ( isDoubleStar( pattern, patDirStart, patEnd ) )
             {
                 break;
             }
-            if ( !match( patDir, strDirs.get( strIdxStart ), isCaseSensitive ) )
+            if ( strEnd == strIdx )
             {
+                // String is exhausted
                 return false;
             }
-            patIdxStart++;
-            strIdxStart++;
-        }
-        if ( strIdxStart > strIdxEnd )
-        {
-            // String is exhausted
-            for ( int i = patIdxStart; i <= patIdxEnd; i++ )
+            int strDirStart = segmentStart( str, strEnd, sep );
+            if ( !match( pattern, patDirStart, patEnd, str, strDirStart, strEnd, isCaseSensitive ) )
             {
-                if ( !"**".equals( patDirs.get( i ) ) )
-                {
-                    return false;
-                }
-            }
-            return true;
-        }
-        else
-        {
-            if ( patIdxStart > patIdxEnd )
-            {
-                // String not exhausted, but pattern is. Failure.
                 return false;
             }
+            patEnd = trimSeparators( pattern, patIdx, patDirStart, sep );
+            strEnd = trimSeparators( str, strIdx, strDirStart, sep );
         }
 
-        // up to last '**'
-        while ( patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd )
-        {
-            String patDir = patDirs.get( patIdxEnd );
-            if ( "**".equals( patDir ) )
-            {
-                break;
-            }
-            if ( !match( patDir, strDirs.get( strIdxEnd ), isCaseSensitive ) )
-            {
-                return false;
-            }
-            patIdxEnd--;
-            strIdxEnd--;
-        }
-        if ( strIdxStart > strIdxEnd )
-        {
-            // String is exhausted
-            for ( int i = patIdxStart; i <= patIdxEnd; i++ )
-            {
-                if ( !"**".equals( patDirs.get( i ) ) )
-                {
-                    return false;
-                }
-            }
-            return true;
-        }
+        // where to go on if a segment does not match: behind the last '**' seen, with the segment after the one
+        // that '**' swallowed last
+        int starPatIdx = -1;
+        int starStrIdx = 0;
 
-        while ( patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd )
+        while ( strIdx < strEnd )
         {
-            int patIdxTmp = -1;
-            for ( int i = patIdxStart + 1; i <= patIdxEnd; i++ )
+            int patDirEnd = segmentEnd( pattern, patIdx, patEnd, sep );
+            if ( isDoubleStar( pattern, patIdx, patDirEnd ) )
             {
-                if ( "**".equals( patDirs.get( i ) ) )
-                {
-                    patIdxTmp = i;
-                    break;
-                }
+                patIdx = skipSeparators( pattern, patDirEnd, sep );
+                starPatIdx = patIdx;
+                starStrIdx = strIdx;
+                continue;
             }
-            if ( patIdxTmp == patIdxStart + 1 )
+            int strDirEnd = segmentEnd( str, strIdx, strEnd, sep );
+            if ( patIdx < patEnd && match( pattern, patIdx, patDirEnd, str, strIdx, strDirEnd, isCaseSensitive ) )
             {
-                // '**/**' situation, so skip one
-                patIdxStart++;
-                continue;
+                patIdx = skipSeparators( pattern, patDirEnd, sep );
+                strIdx = skipSeparators( str, strDirEnd, sep );
             }
-            // Find the pattern between padIdxStart & padIdxTmp in str between
-            // strIdxStart & strIdxEnd
-            int patLength = ( patIdxTmp - patIdxStart - 1 );
-            int strLength = ( strIdxEnd - strIdxStart + 1 );
-            int foundIdx = -1;
-            strLoop:
-            for ( int i = 0; i <= strLength - patLength; i++ )
+            else if ( starPatIdx >= 0 )
             {
-                for ( int j = 0; j < patLength; j++ )
-                {
-                    String subPat = patDirs.get( patIdxStart + j + 1 );
-                    String subStr = strDirs.get( strIdxStart + i + j );
-                    if ( !match( subPat, subStr, isCaseSensitive ) )
-                    {
-                        continue strLoop;
-                    }
-                }
-
-                foundIdx = strIdxStart + i;
-                break;
+                // let the last '**' swallow one more segment
+                patIdx = starPatIdx;
+                starStrIdx = skipSeparators( str, segmentEnd( str, starStrIdx, strEnd, sep ), sep );
+                strIdx = starStrIdx;
             }
-
-            if ( foundIdx == -1 )
+            else
             {
                 return false;
             }
-
-            patIdxStart = patIdxTmp;
-            strIdxStart = foundIdx + patLength;
         }
 
-        for ( int i = patIdxStart; i <= patIdxEnd; i++ )
+        // String is exhausted, only '**' may be left in the pattern
+        while ( patIdx < patEnd )
         {
-            if ( !"**".equals( patDirs.get( i ) ) )
+            int patDirEnd = segmentEnd( pattern, patIdx, patEnd, sep );
+            if ( !isDoubleStar( pattern, patIdx, patDirEnd ) )
             {
                 return false;
             }
+            patIdx = skipSeparators( pattern, patDirEnd, sep );
         }
-
         return true;
     }
 
@@ -384,18 +322,26 @@ public final class SelectorUtils
      */
     public static boolean match( String pattern, String str, boolean isCaseSensitive )
     {
-        char[] patArr = pattern.toCharArray();
-        char[] strArr = str.toCharArray();
-        int patIdxStart = 0;
-        int patIdxEnd = patArr.length - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strArr.length - 1;
+        return match( pattern, 0, pattern.length(), str, 0, str.length(), isCaseSensitive );
+    }
+
+    /**
+     * Same as {@link #match(String, String, boolean)}, but matches the region <code>[patStart, patEnd)</code> of
+     * the pattern against the region <code>[strStart, strEnd)</code> of the string, without copying any of them.
+     */
+    static boolean match( String pattern, int patStart, int patEnd, String str, int strStart, int strEnd,
+                          boolean isCaseSensitive )
+    {
+        int patIdxStart = patStart;
+        int patIdxEnd = patEnd - 1;
+        int strIdxStart = strStart;
+        int strIdxEnd = strEnd - 1;
         char ch;
 
         boolean containsStar = false;
-        for ( char aPatArr : patArr )
+        for ( int i = patStart; i < patEnd; i++ )
         {
-            if ( aPatArr == '*' )
+            if ( pattern.charAt( i ) == '*' )
             {
                 containsStar = true;
                 break;
@@ -405,14 +351,14 @@ public final class SelectorUtils
         if ( !containsStar )
         {
             // No '*'s, so we make a shortcut
-            if ( patIdxEnd != strIdxEnd )
+            if ( patEnd - patStart != strEnd - strStart )
             {
                 return false; // Pattern and string do not have the same size
             }
-            for ( int i = 0; i <= patIdxEnd; i++ )
+            for ( int i = 0; i < patEnd - patStart; i++ )
             {
-                ch = patArr[i];
-                if ( ch != '?' && !equals( ch, strArr[i], isCaseSensitive ) )
+                ch = pattern.charAt( patStart + i );
+                if ( ch != '?' && !equals( ch, str.charAt( strStart + i ), isCaseSensitive ) )
                 {
                     return false; // Character mismatch
                 }
@@ -420,15 +366,15 @@ public final class SelectorUtils
             return true; // String matches against pattern
         }
 
-        if ( patIdxEnd == 0 )
+        if ( patIdxEnd == patIdxStart )
         {
             return true; // Pattern contains only '*', which matches anything
         }
 
         // Process characters before first star
-        while ( ( ch = patArr[patIdxStart] ) != '*' && strIdxStart <= strIdxEnd )
+        while ( ( ch = pattern.charAt( patIdxStart ) ) != '*' && strIdxStart <= strIdxEnd )
         {
-            if ( ch != '?' && !equals( ch, strArr[strIdxStart], isCaseSensitive ) )
+            if ( ch != '?' && !equals( ch, str.charAt( strIdxStart ), isCaseSensitive ) )
             {
                 return false; // Character mismatch
             }
@@ -441,7 +387,7 @@ public final class SelectorUtils
             // left in the pattern. If so, we succeeded. Otherwise failure.
             for ( int i = patIdxStart; i <= patIdxEnd; i++ )
             {
-                if ( patArr[i] != '*' )
+                if ( pattern.charAt( i ) != '*' )
                 {
                     return false;
                 }
@@ -450,9 +396,9 @@ public final class SelectorUtils
         }
 
         // Process characters after last star
-        while ( ( ch = patArr[patIdxEnd] ) != '*' && strIdxStart <= strIdxEnd )
+        while ( ( ch = pattern.charAt( patIdxEnd ) ) != '*' && strIdxStart <= strIdxEnd )
         {
-            if ( ch != '?' && !equals( ch, strArr[strIdxEnd], isCaseSensitive ) )
+            if ( ch != '?' && !equals( ch, str.charAt( strIdxEnd ), isCaseSensitive ) )
             {
                 return false; // Character mismatch
             }
@@ -465,7 +411,7 @@ public final class SelectorUtils
             // left in the pattern. If so, we succeeded. Otherwise failure.
             for ( int i = patIdxStart; i <= patIdxEnd; i++ )
             {
-                if ( patArr[i] != '*' )
+                if ( pattern.charAt( i ) != '*' )
                 {
                     return false;
                 }
@@ -480,7 +426,7 @@ public final class SelectorUtils
             int patIdxTmp = -1;
             for ( int i = patIdxStart + 1; i <= patIdxEnd; i++ )
             {
-                if ( patArr[i] == '*' )
+                if ( pattern.charAt( i ) == '*' )
                 {
                     patIdxTmp = i;
                     break;
@@ -502,8 +448,8 @@ public final class SelectorUtils
             {
                 for ( int j = 0; j < patLength; j++ )
                 {
-                    ch = patArr[patIdxStart + j + 1];
-                    if ( ch != '?' && !equals( ch, strArr[strIdxStart + i + j], isCaseSensitive ) )
+                    ch = pattern.charAt( patIdxStart + j + 1 );
+                    if ( ch != '?' && !equals( ch, str.charAt( strIdxStart + i + j ), isCaseSensitive ) )
                     {
                         continue strLoop;
                     }
@@ -526,7 +472,7 @@ public final class SelectorUtils
         // in the pattern. If so, we succeeded. Otherwise failure.
         for ( int i = patIdxStart; i <= patIdxEnd; i++ )
         {
-            if ( patArr[i] != '*' )
+            if ( pattern.charAt( i ) != '*' )
             {
                 return false;
             }
@@ -555,25 +501,6 @@ public final class SelectorUtils
         return false;
     }
 
-    /**
-     * Breaks a path up into a List of path elements, tokenizing on
-     * <code>File.separator</code>.
-     *
-     * @param path Path to tokenize. Must not be <code>null</code>.
-     * @param separator The separator to use
-     * @return a List of path elements from the tokenized path
-     */
-    private static List<String> tokenizePath( String path, String separator )
-    {
-        List<String> ret = new ArrayList<String>();
-        StringTokenizer st = new StringTokenizer( path, separator );
-        while ( st.hasMoreTokens() )
-        {
-            ret.add( st.nextToken() );
-        }
-        return ret;
-    }
-
 
     static boolean matchAntPathPatternStart( @Nonnull MatchPattern pattern,
                                              @Nonnull String str,
@@ -584,53 +511,33 @@ public final class SelectorUtils
             && matchAntPathPatternStart( pattern.getTokenizedPathString(), str, separator, isCaseSensitive );
     }
 
-    private static String[] tokenizePathToString( @Nonnull String path, @Nonnull String separator )
-    {
-        List<String> ret = new ArrayList<String>();
-        StringTokenizer st = new StringTokenizer( path, separator );
-        while ( st.hasMoreTokens() )
-        {
-            ret.add( st.nextToken() );
-        }
-        return ret.toArray( new String[ret.size()] );
-    }
-
     private static boolean matchAntPathPatternStart( @Nonnull String[] patDirs,
                                                      @Nonnull String str,
-                                                     @Nonnull  String separator,
-                                                     boolean isCaseSensitive )
-    {
-        String[] strDirs = tokenizePathToString( str, separator );
-        return matchAntPathPatternStart( patDirs, strDirs, isCaseSensitive );
-    }
-
-    private static boolean matchAntPathPatternStart( @Nonnull String[] patDirs,
-                                                     @Nonnull String[] tokenizedFileName,
+                                                     @Nonnull String separator,
                                                      boolean isCaseSensitive )
     {
-
-        int patIdxStart = 0;
-        int patIdxEnd = patDirs.length - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = tokenizedFileName.length - 1;
+        final char sep = separator.charAt( 0 );
+        int patIdx = 0;
+        int strIdx = skipSeparators( str, 0, sep );
 
         // up to first '**'
-        while ( patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd )
+        while ( patIdx < patDirs.length && strIdx < str.length() )
         {
-            String patDir = patDirs[patIdxStart];
+            String patDir = patDirs[patIdx];
             if ( patDir.equals( "**" ) )
             {
                 break;
             }
-            if ( !match( patDir, tokenizedFileName[strIdxStart], isCaseSensitive ) )
+            int strEnd = segmentEnd( str, strIdx, str.length(), sep );
+            if ( !match( patDir, 0, patDir.length(), str, strIdx, strEnd, isCaseSensitive ) )
             {
                 return false;
             }
-            patIdxStart++;
-            strIdxStart++;
+            patIdx++;
+            strIdx = skipSeparators( str, strEnd, sep );
         }
 
-        return strIdxStart > strIdxEnd || patIdxStart <= patIdxEnd;
+        return strIdx >= str.length() || patIdx < patDirs.length;
     }
 
     private static boolean separatorPatternStartSlashMismatch( @Nonnull MatchPattern matchPattern, @Nonnull String str,
@@ -794,8 +701,129 @@ public final class SelectorUtils
         {
             return false;
         }
-        String[] patDirs = matchPattern.getTokenizedPathString();
-        String[] strDirs = tokenizePathToString( str, separator );
-        return matchAntPathPattern( patDirs, strDirs, isCaseSensitive );
+        return matchAntPathPattern( matchPattern.getTokenizedPathString(), str, separator, isCaseSensitive );
+    }
+
+    /**
+     * Same as {@link #matchAntPathPattern(String[], String[], boolean)}, but walks the segments of the path in place
+     * instead of tokenizing it first, so nothing gets allocated.
+     */
+    static boolean matchAntPathPattern( @Nonnull String[] patDirs, @Nonnull String str, @Nonnull String separator,
+                                        boolean isCaseSensitive )
+    {
+        final char sep = separator.charAt( 0 );
+        int patIdx = 0;
+        int patEnd = patDirs.length;
+        int strIdx = skipSeparators( str, 0, sep );
+        int strEnd = trimSeparators( str, strIdx, str.length(), sep );
+
+        // up to last '**'
+        while ( patEnd > 0 && !patDirs[patEnd - 1].equals( "**" ) )
+        {
+            if ( strEnd == strIdx )
+            {
+                // String is exhausted
+                return false;
+            }
+            int strDirStart = segmentStart( str, strEnd, sep );
+            String patDir = patDirs[patEnd - 1];
+            if ( !match( patDir, 0, patDir.length(), str, strDirStart, strEnd, isCaseSensitive ) )
+            {
+                return false;
+            }
+            patEnd--;
+            strEnd = trimSeparators( str, strIdx, strDirStart, sep );
+        }
+
+        // where to go on if a segment does not match: behind the last '**' seen, with the segment after the one
+        // that '**' swallowed last
+        int starPatIdx = -1;
+        int starStrIdx = 0;
+
+        while ( strIdx < strEnd )
+        {
+            if ( patIdx < patEnd && patDirs[patIdx].equals( "**" ) )
+            {
+                patIdx++;
+                starPatIdx = patIdx;
+                starStrIdx = strIdx;
+                continue;
+            }
+            int strDirEnd = segmentEnd( str, strIdx, strEnd, sep );
+            if ( patIdx < patEnd
+                && match( patDirs[patIdx], 0, patDirs[patIdx].length(), str, strIdx, strDirEnd, isCaseSensitive ) )
+            {
+                patIdx++;
+                strIdx = skipSeparators( str, strDirEnd, sep );
+            }
+            else if ( starPatIdx >= 0 )
+            {
+                // let the last '**' swallow one more segment
+                patIdx = starPatIdx;
+                starStrIdx = skipSeparators( str, segmentEnd( str, starStrIdx, strEnd, sep ), sep );
+                strIdx = starStrIdx;
+            }
+            else
+            {
+                return false;
+            }
+        }
+
+        // String is exhausted, only '**' may be left in the pattern
+        for ( int i = patIdx; i < patEnd; i++ )
+        {
+            if ( !patDirs[i].equals( "**" ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first character at or after <code>pos</code> which is not a separator.
+     */
+    private static int skipSeparators( String str, int pos, char separator )
+    {
+        while ( pos < str.length() && str.charAt( pos ) == separator )
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the index behind the last character before <code>end</code> which is not a separator, but not less
+     *         than <code>start</code>.
+     */
+    private static int trimSeparators( String str, int start, int end, char separator )
+    {
+        while ( end > start && str.charAt( end - 1 ) == separator )
+        {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return the end index (exclusive) of the path segment starting at <code>start</code>, at most <code>end</code>.
+     */
+    private static int segmentEnd( String str, int start, int end, char separator )
+    {
+        int segmentEnd = str.indexOf( separator, start );
+        return segmentEnd < 0 || segmentEnd > end ? end : segmentEnd;
+    }
+
+    /**
+     * @return the start index of the path segment ending at <code>end</code>.
+     */
+    private static int segmentStart( String str, int end, char separator )
+    {
+        return str.lastIndexOf( separator, end - 1 ) + 1;
+    }
+
+    private static boolean isDoubleStar( String pattern, int start, int end )
+    {
+        return end - start == 2 && pattern.charAt( start ) == '*' && pattern.charAt( start + 1 ) == '*';
     }
 }
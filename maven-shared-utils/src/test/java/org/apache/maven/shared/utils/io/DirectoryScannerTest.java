@@ -30,7 +30,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class DirectoryScannerTest
 {
@@ -142,6 +144,69 @@ public class DirectoryScannerTest
                 /* expExclDirs     */ NONE );
     }
 
+    @Test
+    public void testPrunedDirectories()
+        throws Exception
+    {
+        createTestData();
+        File folder3 = new File( tempFolder.getRoot(), "folder3/sub" );
+        folder3.mkdirs();
+        FileTestHelper.generateTestFile( new File( folder3, "file8.txt" ), 18 );
+
+        // folder3 can't hold any included file, still it has to show up in the not included results
+        fitScanTest( true, true, true,
+                /* includes        */ new String[]{ "folder1/**" },
+                /* excludes        */ null,
+                /* expInclFiles    */ new String[]{ "folder1/file4.txt", "folder1/file5.dat" },
+                /* expInclDirs     */ new String[]{ "folder1" },
+                /* expNotInclFiles */ new String[]{ "file1.txt", "file2.txt", "file3.dat", "folder3/sub/file8.txt" },
+                /* expNotInclDirs  */ new String[]{ "", "folder3", "folder3/sub" },
+                /* expExclFiles    */ NONE,
+                /* expExclDirs     */ NONE );
+    }
+
+    @Test
+    public void testSymlinks()
+        throws Exception
+    {
+        if ( !Java7Support.isJava7() )
+        {
+            return;
+        }
+        createTestData();
+
+        File rootDir = tempFolder.getRoot();
+        java.nio.file.Files.createSymbolicLink( new File( rootDir, "linkfolder" ).toPath(),
+                                                new File( rootDir, "folder1" ).toPath() );
+        java.nio.file.Files.createSymbolicLink( new File( rootDir, "link.txt" ).toPath(),
+                                                new File( rootDir, "file1.txt" ).toPath() );
+        java.nio.file.Files.createSymbolicLink( new File( rootDir, "dangling.txt" ).toPath(),
+                                                new File( rootDir, "missing.txt" ).toPath() );
+
+        fitScanTest( true, true, true,
+                /* includes        */ null,
+                /* excludes        */ null,
+                /* expInclFiles    */ new String[]{ "file1.txt", "file2.txt", "file3.dat", "link.txt",
+                                                    "folder1/file4.txt", "folder1/file5.dat",
+                                                    "linkfolder/file4.txt", "linkfolder/file5.dat" },
+                /* expInclDirs     */ new String[]{ "", "folder1", "linkfolder" },
+                /* expNotInclFiles */ NONE,
+                /* expNotInclDirs  */ NONE,
+                /* expExclFiles    */ NONE,
+                /* expExclDirs     */ NONE );
+
+        fitScanTest( true, false, true,
+                /* includes        */ null,
+                /* excludes        */ null,
+                /* expInclFiles    */ new String[]{ "file1.txt", "file2.txt", "file3.dat", "folder1/file4.txt",
+                                                    "folder1/file5.dat" },
+                /* expInclDirs     */ new String[]{ "", "folder1" },
+                /* expNotInclFiles */ NONE,
+                /* expNotInclDirs  */ NONE,
+                /* expExclFiles    */ new String[]{ "link.txt", "dangling.txt" },
+                /* expExclDirs     */ new String[]{ "linkfolder" } );
+    }
+
     public void testIsSymLin()
         throws IOException
     {
@@ -290,6 +355,380 @@ public class DirectoryScannerTest
         Assert.assertEquals( 2, removedFiles.length );
     }
 
+    @Test
+    public void testScanIncremental()
+        throws Exception
+    {
+        createTestData();
+        File rootDir = tempFolder.getRoot();
+        File snapshotFile = new File( tempFolder.newFolder( "snapshot" ), "scan.snapshot" );
+        // changes within the timestamp resolution of the file system are never trusted
+        long past = System.currentTimeMillis() - 60000;
+        setLastModified( rootDir, past );
+
+        DirectoryScanner dss = new DirectoryScanner();
+        dss.setBasedir( rootDir );
+        dss.setExcludes( "snapshot/**" );
+
+        DirectoryScanResult dsr = dss.scanIncremental( snapshotFile );
+        Assert.assertTrue( snapshotFile.isFile() );
+        Assert.assertEquals( 6, dsr.getFilesAdded().length );
+        Assert.assertArrayEquals( dss.getIncludedFiles(), dsr.getFilesAdded() );
+        Assert.assertEquals( 0, dsr.getFilesRemoved().length );
+        Assert.assertEquals( 0, dsr.getFilesModified().length );
+
+        dsr = dss.scanIncremental( snapshotFile );
+        Assert.assertEquals( 0, dsr.getFilesAdded().length );
+        Assert.assertEquals( 0, dsr.getFilesRemoved().length );
+        Assert.assertEquals( 0, dsr.getFilesModified().length );
+        Assert.assertEquals( 6, dss.getIncludedFiles().length );
+
+        removeAndAddSomeFiles();
+        File file4 = new File( rootDir, "folder1/file4.txt" );
+        FileTestHelper.generateTestFile( file4, 20 );
+        file4.setLastModified( past );
+
+        dsr = dss.scanIncremental( snapshotFile );
+        Assert.assertArrayEquals( new String[]{ "folder1" + File.separator + "file9.txt" }, dsr.getFilesAdded() );
+        Assert.assertEquals( 2, dsr.getFilesRemoved().length );
+        Assert.assertArrayEquals( new String[]{ "folder1" + File.separator + "file4.txt" }, dsr.getFilesModified() );
+    }
+
+    @Test
+    public void testScanIncrementalReusesUnmodifiedDirectories()
+        throws Exception
+    {
+        createTestData();
+        File rootDir = tempFolder.getRoot();
+        File snapshotFile = new File( tempFolder.newFolder( "snapshot" ), "scan.snapshot" );
+        long past = System.currentTimeMillis() - 60000;
+        setLastModified( rootDir, past );
+
+        DirectoryScanner dss = new DirectoryScanner();
+        dss.setBasedir( rootDir );
+        dss.setExcludes( "snapshot/**" );
+        dss.scanIncremental( snapshotFile );
+
+        // sneak a file in without changing the modification time of its directory
+        File folder1 = new File( rootDir, "folder1" );
+        FileTestHelper.generateTestFile( new File( folder1, "file8.txt" ), 18 );
+        folder1.setLastModified( past );
+
+        Assert.assertEquals( 0, dss.scanIncremental( snapshotFile ).getFilesAdded().length );
+
+        // without a snapshot the directory is read again
+        Assert.assertTrue( snapshotFile.delete() );
+        Assert.assertEquals( 7, dss.scanIncremental( snapshotFile ).getFilesAdded().length );
+    }
+
+    private static void setLastModified( File file, long lastModified )
+    {
+        File[] children = file.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                setLastModified( child, lastModified );
+            }
+        }
+        file.setLastModified( lastModified );
+    }
+
+    @Test( timeout = 60000 )
+    public void testWatch()
+        throws Exception
+    {
+        if ( !Java7Support.isJava7() )
+        {
+            return;
+        }
+        createTestData();
+        File rootDir = tempFolder.getRoot();
+
+        DirectoryScanner dss = new DirectoryScanner();
+        dss.setBasedir( rootDir );
+        dss.setExcludes( "**/ignorefolder/**" );
+        dss.scan();
+
+        DirectoryWatcher watcher = dss.watch();
+        try
+        {
+            String[] included = watcher.getIncludedFiles();
+            Arrays.sort( included );
+            String[] expected = dss.getIncludedFiles();
+            Arrays.sort( expected );
+            Assert.assertArrayEquals( expected, included );
+
+            FileTestHelper.generateTestFile( new File( rootDir, "folder1/file9.txt" ), 19 );
+            FileTestHelper.generateTestFile( new File( rootDir, "folder1/ignorefolder/file10.txt" ), 20 );
+            File sub = new File( rootDir, "folder3/sub" );
+            Assert.assertTrue( sub.mkdirs() );
+            FileTestHelper.generateTestFile( new File( sub, "file11.txt" ), 21 );
+            FileTestHelper.generateTestFile( new File( rootDir, "folder1/file4.txt" ), 24 );
+            Assert.assertTrue( new File( rootDir, "file2.txt" ).delete() );
+
+            String file9 = "folder1" + File.separator + "file9.txt";
+            String file11 = "folder3" + File.separator + "sub" + File.separator + "file11.txt";
+            List<String> added = new ArrayList<String>();
+            List<String> removed = new ArrayList<String>();
+            List<String> modified = new ArrayList<String>();
+            pollUntil( watcher, added, removed, modified, Arrays.asList( file9, file11 ), Arrays.asList( "file2.txt" ),
+                       Arrays.asList( "folder1" + File.separator + "file4.txt" ) );
+            Collections.sort( added );
+            Assert.assertEquals( Arrays.asList( file9, file11 ), added );
+            Assert.assertEquals( Arrays.asList( "file2.txt" ), removed );
+            Assert.assertEquals( Arrays.asList( "folder1" + File.separator + "file4.txt" ), modified );
+
+            FileUtils.deleteDirectory( new File( rootDir, "folder3" ) );
+            added.clear();
+            removed.clear();
+            modified.clear();
+            List<String> none = Collections.emptyList();
+            pollUntil( watcher, added, removed, modified, none, Arrays.asList( file11 ), none );
+            Assert.assertEquals( 0, added.size() );
+            Assert.assertEquals( Arrays.asList( file11 ), removed );
+            Assert.assertEquals( 5, watcher.getIncludedFiles().length );
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Polls the watcher until all expected changes showed up. Events for the same file may come in over several polls,
+     * so a file which got added is not reported as modified as well.
+     */
+    private static void pollUntil( DirectoryWatcher watcher, List<String> added, List<String> removed,
+                                   List<String> modified, List<String> expectedAdded, List<String> expectedRemoved,
+                                   List<String> expectedModified )
+        throws Exception
+    {
+        while ( !added.containsAll( expectedAdded ) || !removed.containsAll( expectedRemoved )
+            || !modified.containsAll( expectedModified ) )
+        {
+            DirectoryScanResult result = watcher.poll( 1, TimeUnit.SECONDS );
+            addAllNew( added, result.getFilesAdded() );
+            addAllNew( removed, result.getFilesRemoved() );
+            addAllNew( modified, result.getFilesModified() );
+            modified.removeAll( added );
+        }
+    }
+
+    private static void addAllNew( List<String> list, String[] names )
+    {
+        for ( String name : names )
+        {
+            if ( !list.contains( name ) )
+            {
+                list.add( name );
+            }
+        }
+    }
+
+    /**
+     * Creates a tree with <code>width</code> sub directories per level, <code>depth</code> levels and
+     * <code>filesPerDir</code> files in each directory.
+     */
+    private void createTreeTestData( File dir, int width, int depth, int filesPerDir )
+        throws IOException
+    {
+        for ( int i = 0; i < filesPerDir; i++ )
+        {
+            FileTestHelper.generateTestFile( new File( dir, "file" + i + ( i % 3 == 0 ? ".dat" : ".txt" ) ), 1 );
+        }
+        if ( depth > 0 )
+        {
+            for ( int i = 0; i < width; i++ )
+            {
+                File subDir = new File( dir, ( i % 4 == 0 ? "ignorefolder" : "folder" ) + i );
+                subDir.mkdirs();
+                createTreeTestData( subDir, width, depth - 1, filesPerDir );
+            }
+        }
+    }
+
+    private DirectoryScanner createTreeScanner( int parallelism, ScanConductor scanConductor )
+    {
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir( tempFolder.getRoot() );
+        ds.setIncludes( "**/*.dat", "folder1/**" );
+        ds.setExcludes( "**/folder2/**" );
+        ds.setParallelism( parallelism );
+        ds.setScanConductor( scanConductor );
+        return ds;
+    }
+
+    @Test
+    public void testParallelScan()
+        throws Exception
+    {
+        createTreeTestData( tempFolder.getRoot(), 5, 3, 4 );
+
+        TestScanConductor sequentialConductor = new TestScanConductor();
+        DirectoryScanner sequential = createTreeScanner( 1, sequentialConductor );
+        sequential.scan();
+
+        TestScanConductor parallelConductor = new TestScanConductor();
+        DirectoryScanner parallel = createTreeScanner( 4, parallelConductor );
+        parallel.scan();
+
+        Assert.assertTrue( sequential.getIncludedFiles().length > 0 );
+
+        // not only the same content but also the very same order
+        Assert.assertArrayEquals( sequential.getIncludedFiles(), parallel.getIncludedFiles() );
+        Assert.assertArrayEquals( sequential.getIncludedDirectories(), parallel.getIncludedDirectories() );
+        Assert.assertEquals( sequentialConductor.visitedFiles, parallelConductor.visitedFiles );
+        Assert.assertArrayEquals( sequential.getNotIncludedFiles(), parallel.getNotIncludedFiles() );
+        Assert.assertArrayEquals( sequential.getNotIncludedDirectories(), parallel.getNotIncludedDirectories() );
+        Assert.assertArrayEquals( sequential.getExcludedFiles(), parallel.getExcludedFiles() );
+        Assert.assertArrayEquals( sequential.getExcludedDirectories(), parallel.getExcludedDirectories() );
+    }
+
+    @Test
+    public void testParallelScanOfMoreDirectoriesThanPendingListings()
+        throws Exception
+    {
+        createTreeTestData( tempFolder.getRoot(), 6, 3, 1 );
+
+        DirectoryScanner sequential = createTreeScanner( 1, null );
+        sequential.scan();
+
+        DirectoryScanner parallel = createTreeScanner( 2, null );
+        parallel.scan();
+
+        int directories = sequential.getIncludedDirectories().length + sequential.getNotIncludedDirectories().length;
+        Assert.assertTrue( directories > 2 * ParallelDirectoryLister.PENDING_PER_THREAD );
+        Assert.assertArrayEquals( sequential.getIncludedFiles(), parallel.getIncludedFiles() );
+        Assert.assertArrayEquals( sequential.getNotIncludedFiles(), parallel.getNotIncludedFiles() );
+        Assert.assertArrayEquals( sequential.getIncludedDirectories(), parallel.getIncludedDirectories() );
+        Assert.assertArrayEquals( sequential.getNotIncludedDirectories(), parallel.getNotIncludedDirectories() );
+    }
+
+    @Test
+    public void testParallelScanAbort()
+        throws Exception
+    {
+        createTreeTestData( tempFolder.getRoot(), 5, 3, 4 );
+
+        AbortingScanConductor sequentialConductor = new AbortingScanConductor( 17 );
+        DirectoryScanner sequential = createTreeScanner( 1, sequentialConductor );
+        sequential.scan();
+
+        AbortingScanConductor parallelConductor = new AbortingScanConductor( 17 );
+        DirectoryScanner parallel = createTreeScanner( 4, parallelConductor );
+        parallel.scan();
+
+        Assert.assertEquals( 17, sequentialConductor.visitedFiles.size() );
+        Assert.assertEquals( sequentialConductor.visitedFiles, parallelConductor.visitedFiles );
+        Assert.assertArrayEquals( sequential.getIncludedFiles(), parallel.getIncludedFiles() );
+        Assert.assertArrayEquals( sequential.getIncludedDirectories(), parallel.getIncludedDirectories() );
+    }
+
+    @Test
+    public void testStreamingScan()
+        throws Exception
+    {
+        createTreeTestData( tempFolder.getRoot(), 5, 3, 4 );
+
+        TestScanConductor collectingConductor = new TestScanConductor();
+        DirectoryScanner collecting = createTreeScanner( 1, collectingConductor );
+        collecting.scan();
+
+        TestScanConductor unusedConductor = new TestScanConductor();
+        TestScanConductor streamingConductor = new TestScanConductor();
+        DirectoryScanner streaming = createTreeScanner( 1, unusedConductor );
+        streaming.scan( streamingConductor );
+
+        Assert.assertTrue( streamingConductor.visitedFiles.size() > 0 );
+        Assert.assertEquals( collectingConductor.visitedFiles, streamingConductor.visitedFiles );
+        Assert.assertEquals( Arrays.asList( collecting.getIncludedFiles() ), streamingConductor.visitedFiles );
+        Assert.assertTrue( unusedConductor.visitedFiles.isEmpty() );
+        Assert.assertEquals( 0, streaming.getIncludedFiles().length );
+
+        // a regular scan collects the results again
+        streaming.scan();
+        Assert.assertArrayEquals( collecting.getIncludedFiles(), streaming.getIncludedFiles() );
+        Assert.assertArrayEquals( collecting.getNotIncludedFiles(), streaming.getNotIncludedFiles() );
+    }
+
+    @Test
+    public void testStreamingScanHasNoResults()
+        throws Exception
+    {
+        createTestData();
+
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir( tempFolder.getRoot() );
+        ds.setExcludes( new String[]{ "**/*.dat" } );
+        ds.scan( new TestScanConductor() );
+
+        Assert.assertEquals( 0, ds.getIncludedFiles().length );
+        Assert.assertEquals( 0, ds.getNotIncludedFiles().length );
+        Assert.assertEquals( 0, ds.getExcludedFiles().length );
+        Assert.assertEquals( 0, ds.getIncludedDirectories().length );
+        Assert.assertEquals( 0, ds.getNotIncludedDirectories().length );
+        Assert.assertEquals( 0, ds.getExcludedDirectories().length );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidParallelism()
+    {
+        new DirectoryScanner().setParallelism( 0 );
+    }
+
+    private static class AbortingScanConductor
+        extends TestScanConductor
+    {
+        private final int maxFiles;
+
+        AbortingScanConductor( int maxFiles )
+        {
+            this.maxFiles = maxFiles;
+        }
+
+        public ScanConductor.ScanAction visitFile( String name, File file )
+        {
+            super.visitFile( name, file );
+            return visitedFiles.size() >= maxFiles ? ScanAction.ABORT : ScanAction.CONTINUE;
+        }
+    }
+
+    @Ignore("Enable this test to run performance checks")
+    @Test
+    public void parallelScanPerformanceTest()
+        throws Exception
+    {
+        File rootFolder = tempFolder.getRoot();
+        createTreeTestData( rootFolder, 8, 4, 20 );
+
+        int cycles = 20;
+        int[] parallelisms = { 1, 2, 4, 8 };
+
+        // warmup
+        for ( int parallelism : parallelisms )
+        {
+            createTreeScanner( parallelism, null ).scan();
+        }
+
+        for ( int parallelism : parallelisms )
+        {
+            long startTime = System.nanoTime();
+            int found = 0;
+            for ( int i = 0; i < cycles; i++ )
+            {
+                DirectoryScanner ds = new DirectoryScanner();
+                ds.setBasedir( rootFolder );
+                ds.setParallelism( parallelism );
+                ds.scan();
+                found = ds.getIncludedFiles().length;
+            }
+            long duration = System.nanoTime() - startTime;
+            System.out.println( "parallelism " + parallelism + ", " + found + " files [ns/scan]: "
+                                    + duration / cycles );
+        }
+    }
+
     @Ignore("Enable this test to run performance checks")
     @Test
     public void performanceTest()
@@ -303,6 +303,95 @@ public class FileUtilsTest
         assertThat( FileUtils.contentEquals( file, file2 ), is( true ) );
     }
 
+    @Test
+    public void contentEqualsLargeFiles()
+        throws Exception
+    {
+        byte[] content = new byte[3 * 256 * 1024 + 13];
+        for ( int i = 0; i < content.length; i++ )
+        {
+            content[i] = (byte) i;
+        }
+        File file = new File( tempFolder.getRoot(), "large1" );
+        File file2 = new File( tempFolder.getRoot(), "large2" );
+        writeBytes( file, content );
+        writeBytes( file2, content );
+        assertThat( FileUtils.contentEquals( file, file2 ), is( true ) );
+
+        for ( int index : new int[]{ 0, 7, 256 * 1024 - 1, 256 * 1024, 2 * 256 * 1024 + 5, content.length - 1 } )
+        {
+            content[index]++;
+            writeBytes( file2, content );
+            assertThat( "difference at " + index, FileUtils.contentEquals( file, file2 ), is( false ) );
+            content[index]--;
+        }
+
+        byte[] shorter = new byte[content.length - 1];
+        System.arraycopy( content, 0, shorter, 0, shorter.length );
+        writeBytes( file2, shorter );
+        assertThat( FileUtils.contentEquals( file, file2 ), is( false ) );
+    }
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void contentEqualsPerformanceTest()
+        throws Exception
+    {
+        for ( int size : new int[]{ 1, 16, 128 } )
+        {
+            File file = new File( tempFolder.getRoot(), "perf1" );
+            File file2 = new File( tempFolder.getRoot(), "perf2" );
+            createFile( file, size * 1024L * 1024L );
+            FileUtils.copyFile( file, file2 );
+
+            int runs = Math.max( 1, 256 / size );
+            for ( int round = 0; round < 3; round++ )
+            {
+                long startTime = System.nanoTime();
+                for ( int run = 0; run < runs; run++ )
+                {
+                    assertThat( FileUtils.contentEquals( file, file2 ), is( true ) );
+                }
+                long channelTime = System.nanoTime() - startTime;
+
+                startTime = System.nanoTime();
+                for ( int run = 0; run < runs; run++ )
+                {
+                    InputStream input1 = new FileInputStream( file );
+                    InputStream input2 = new FileInputStream( file2 );
+                    try
+                    {
+                        assertThat( IOUtil.contentEquals( input1, input2 ), is( true ) );
+                    }
+                    finally
+                    {
+                        IOUtil.close( input1 );
+                        IOUtil.close( input2 );
+                    }
+                }
+                long streamTime = System.nanoTime() - startTime;
+
+                long bytes = runs * size * 1024L * 1024L;
+                System.out.println( size + " MB: channels " + bytes * 1000 / channelTime + " MB/s, streams "
+                                        + bytes * 1000 / streamTime + " MB/s" );
+            }
+        }
+    }
+
+    private static void writeBytes( File file, byte[] content )
+        throws IOException
+    {
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            out.write( content );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
     // copyURLToFile
 
     @Test
@@ -583,6 +672,109 @@ public class FileUtilsTest
         assertThat( FileUtils.getFileAndDirectoryNames( dir, null, null, true, true, true, true ).size(), is( 1 ) );
     }
 
+    @Test
+    public void copyDirectoryStructureParallel()
+        throws Exception
+    {
+        File grandParentDir = new File( tempFolder.getRoot(), "grandparent" );
+        File parentDir = new File( grandParentDir, "parent" );
+        File childDir = new File( parentDir, "child" );
+        createFilesForTestCopyDirectory( grandParentDir, parentDir, childDir );
+        assertThat( new File( parentDir, "empty" ).mkdir(), is( true ) );
+
+        File sequential = new File( tempFolder.getRoot(), "sequential" );
+        FileUtils.copyDirectoryStructure( grandParentDir, sequential );
+        File parallel = new File( tempFolder.getRoot(), "parallel" );
+        FileUtils.copyDirectoryStructure( grandParentDir, parallel, 4, false );
+
+        List<String> expected = FileUtils.getFileAndDirectoryNames( sequential, null, null, false, true, true, true );
+        List<String> actual = FileUtils.getFileAndDirectoryNames( parallel, null, null, false, true, true, true );
+        assertThat( actual.size(), is( expected.size() ) );
+        assertThat( new HashSet<String>( actual ), is( new HashSet<String>( expected ) ) );
+        assertThat( FileUtils.fileRead( new File( parallel, "parent/child/grandChild/file5.txt" ), "UTF8" ),
+                    is( "File 5 in grandChild" ) );
+    }
+
+    @Test
+    public void copyDirectoryStructureParallelToChild()
+        throws Exception
+    {
+        File grandParentDir = new File( tempFolder.getRoot(), "grandparent" );
+        File parentDir = new File( grandParentDir, "parent" );
+        File childDir = new File( parentDir, "child" );
+        createFilesForTestCopyDirectory( grandParentDir, parentDir, childDir );
+
+        File copy = new File( parentDir, "copy" );
+        FileUtils.copyDirectoryStructure( grandParentDir, copy, 2, false );
+
+        assertThat( new File( copy, "file1.txt" ).isFile(), is( true ) );
+        assertThat( new File( copy, "parent/copy" ).exists(), is( false ) );
+    }
+
+    @Test
+    public void copyDirectoryStructureLinked()
+        throws Exception
+    {
+        File grandParentDir = new File( tempFolder.getRoot(), "grandparent" );
+        File parentDir = new File( grandParentDir, "parent" );
+        File childDir = new File( parentDir, "child" );
+        createFilesForTestCopyDirectory( grandParentDir, parentDir, childDir );
+
+        File linked = new File( tempFolder.getRoot(), "linked" );
+        FileUtils.copyDirectoryStructure( grandParentDir, linked, 2, true );
+
+        File source = new File( grandParentDir, "file1.txt" );
+        File copy = new File( linked, "file1.txt" );
+        assertThat( FileUtils.fileRead( copy, "UTF8" ), is( "File 1 in grandparent" ) );
+        if ( Java7Support.isJava7() )
+        {
+            assertThat( java.nio.file.Files.isSameFile( source.toPath(), copy.toPath() ), is( true ) );
+        }
+    }
+
+    @Test( expected = IOException.class )
+    public void copyDirectoryStructureParallelMissingSource()
+        throws Exception
+    {
+        FileUtils.copyDirectoryStructure( new File( tempFolder.getRoot(), "missing" ),
+                                          new File( tempFolder.getRoot(), "copy" ), 2, false );
+    }
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void copyDirectoryStructurePerformanceTest()
+        throws Exception
+    {
+        File source = tempFolder.newFolder( "source" );
+        for ( int i = 0; i < 20; i++ )
+        {
+            File dir = new File( source, "dir" + i );
+            dir.mkdirs();
+            for ( int j = 0; j < 100; j++ )
+            {
+                createFile( new File( dir, "file" + j ), 64 * 1024 );
+            }
+        }
+
+        for ( int run = 0; run < 3; run++ )
+        {
+            long startTime = System.currentTimeMillis();
+            FileUtils.copyDirectoryStructure( source, new File( tempFolder.getRoot(), "sequential" + run ) );
+            long sequential = System.currentTimeMillis() - startTime;
+
+            startTime = System.currentTimeMillis();
+            FileUtils.copyDirectoryStructure( source, new File( tempFolder.getRoot(), "parallel" + run ), 4, false );
+            long parallel = System.currentTimeMillis() - startTime;
+
+            startTime = System.currentTimeMillis();
+            FileUtils.copyDirectoryStructure( source, new File( tempFolder.getRoot(), "linked" + run ), 4, true );
+            long linked = System.currentTimeMillis() - startTime;
+
+            System.out.println( "sequential: " + sequential + "ms, 4 threads: " + parallel + "ms, linked: " + linked
+                                    + "ms" );
+        }
+    }
+
     private void createFilesForTestCopyDirectory( File grandParentDir, File parentDir, File childDir )
         throws Exception
     {
@@ -769,6 +961,86 @@ public class FileUtilsTest
             testFile1.lastModified() == destination.lastModified());*/
     }
 
+    private static final FileUtils.FilterWrapper[] UPPER_CASE = { new FileUtils.FilterWrapper()
+    {
+        public Reader getReader( Reader fileReader )
+        {
+            return new FilterReader( fileReader )
+            {
+                public int read( char[] cbuf, int off, int len )
+                    throws IOException
+                {
+                    int count = super.read( cbuf, off, len );
+                    for ( int i = off; i < off + count; i++ )
+                    {
+                        cbuf[i] = Character.toUpperCase( cbuf[i] );
+                    }
+                    return count;
+                }
+            };
+        }
+    } };
+
+    @Test
+    public void copyFileIfChangedKeepsUnchangedDestination()
+        throws Exception
+    {
+        File source = new File( tempFolder.getRoot(), "source.txt" );
+        FileUtils.fileWrite( source, "UTF8", "hello world" );
+        File destination = new File( tempFolder.getRoot(), "destination.txt" );
+
+        assertThat( FileUtils.copyFileIfChanged( source, destination, "UTF8", UPPER_CASE ), is( true ) );
+        assertThat( FileUtils.fileRead( destination, "UTF8" ), is( "HELLO WORLD" ) );
+
+        long lastModified = destination.lastModified() - 10000;
+        destination.setLastModified( lastModified );
+        assertThat( FileUtils.copyFileIfChanged( source, destination, "UTF8", UPPER_CASE ), is( false ) );
+        assertThat( destination.lastModified(), is( lastModified ) );
+
+        FileUtils.fileWrite( source, "UTF8", "hello maven" );
+        assertThat( FileUtils.copyFileIfChanged( source, destination, "UTF8", UPPER_CASE ), is( true ) );
+        assertThat( FileUtils.fileRead( destination, "UTF8" ), is( "HELLO MAVEN" ) );
+        assertThat( destination.lastModified(), not( lastModified ) );
+        // the destination is replaced by a temporary file, which is not left behind
+        assertThat( FileUtils.getFiles( tempFolder.getRoot(), "*.tmp", null ).size(), is( 0 ) );
+    }
+
+    @Test
+    public void copyFileIfChangedLargeFile()
+        throws Exception
+    {
+        File source = new File( tempFolder.getRoot(), "source.txt" );
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; i < 150000; i++ )
+        {
+            content.append( "line " ).append( i ).append( '\n' );
+        }
+        FileUtils.fileWrite( source, "UTF8", content.toString() );
+        assertThat( source.length() > 1024 * 1024, is( true ) );
+        File destination = new File( tempFolder.getRoot(), "destination.txt" );
+        FileUtils.fileWrite( destination, "UTF8", "outdated" );
+
+        assertThat( FileUtils.copyFileIfChanged( source, destination, "UTF8", UPPER_CASE ), is( true ) );
+        assertThat( FileUtils.fileRead( destination, "UTF8" ), is( content.toString().toUpperCase() ) );
+
+        long lastModified = destination.lastModified() - 10000;
+        destination.setLastModified( lastModified );
+        assertThat( FileUtils.copyFileIfChanged( source, destination, "UTF8", UPPER_CASE ), is( false ) );
+        assertThat( destination.lastModified(), is( lastModified ) );
+        // no temporary files are left behind
+        assertThat( FileUtils.getFiles( tempFolder.getRoot(), "*.tmp", null ).size(), is( 0 ) );
+    }
+
+    @Test
+    public void copyFileIfChangedWithoutWrappers()
+        throws Exception
+    {
+        File destination = new File( tempFolder.getRoot(), "destination.txt" );
+        assertThat( FileUtils.copyFileIfChanged( testFile1, destination, null ), is( true ) );
+        assertThat( FileUtils.contentEquals( testFile1, destination ), is( true ) );
+        assertThat( FileUtils.copyFileIfChanged( testFile1, destination, null ), is( false ) );
+    }
+
     // forceDelete
 
     @Test
@@ -19,6 +19,10 @@ package org.apache.maven.shared.utils.io;
  * under the License.
  */
 
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Ignore;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -37,4 +41,143 @@ public class MatchPatternsTest
         assertTrue( from.matches( "CDEF", true ) );
         assertFalse( from.matches( "XYZ", true ) );
     }
+
+    @Test
+    public void matchesLikeEveryPatternOnItsOwn()
+    {
+        String[] sources = { "**", "**/*.java", "src/**/*.java", "src/main/**", "**/test/**/XYZ*", "*.txt",
+            "a?c/**/**/d", "**/CVS/**", "/abs/**", "lit/eral", "LIT/**/x", "src/*/java/**/*.properties", "", "*",
+            "**/*.JAVA", "**/*.j\u00e4va", "\u212a/**" };
+        String[] names = { "", "a.java", "src/a.java", "src/main/java/A.java", "src/main", "src/test/java/XYZ1",
+            "abc/test/def/ghi/XYZ123", "x.txt", "dir/x.txt", "abc/d", "abc/x/y/d", "aXc/d", "CVS", "a/CVS/b",
+            "abs/x", "/abs/x", "lit/eral", "LIT/eral", "lit/x", "src/main/java/a/b.properties",
+            "src/x/java/b.properties", "src//main//a.java", "/src/main", "x.J\u00c4VA", "k/x", "K/x" };
+
+        for ( String source : sources )
+        {
+            assertSameMatches( new String[]{ source }, names );
+        }
+        assertSameMatches( sources, names );
+        assertSameMatches( new String[]{ "src/main/**", "src/test/**", "*.txt", "%regex[.*\\.java]" }, names );
+    }
+
+    private void assertSameMatches( String[] sources, String[] names )
+    {
+        MatchPatterns patterns = MatchPatterns.from( toFileSeparator( sources ) );
+        for ( String name : toFileSeparator( names ) )
+        {
+            for ( boolean caseSensitive : new boolean[]{ true, false } )
+            {
+                boolean expected = false;
+                for ( String source : toFileSeparator( sources ) )
+                {
+                    MatchPattern pattern = MatchPattern.fromString( source );
+                    expected |= pattern.isRegex()
+                        ? pattern.matchPath( name, caseSensitive )
+                        : SelectorUtils.matchAntPathPattern( pattern.getTokenizedPathString(),
+                                                             MatchPattern.tokenizePathToString( name, File.separator ),
+                                                             caseSensitive );
+                }
+                assertEquals( Arrays.toString( sources ) + " " + name + " " + caseSensitive, expected,
+                              patterns.matches( name, caseSensitive ) );
+            }
+        }
+    }
+
+    @Test
+    public void matchesPatternStart()
+    {
+        MatchPatterns from = MatchPatterns.from( toFileSeparator( "src/main/**", "src/*/resources/*.xml", "/abs/x" ) );
+        assertTrue( from.matchesPatternStart( "", true ) );
+        assertTrue( from.matchesPatternStart( "src", true ) );
+        assertTrue( from.matchesPatternStart( toFileSeparator( "src/main/java/org" )[0], true ) );
+        assertTrue( from.matchesPatternStart( toFileSeparator( "src/test/resources" )[0], true ) );
+        assertFalse( from.matchesPatternStart( toFileSeparator( "src/test/java" )[0], true ) );
+        assertFalse( from.matchesPatternStart( toFileSeparator( "src/test/resources/META-INF" )[0], true ) );
+        assertFalse( from.matchesPatternStart( "target", true ) );
+        assertFalse( from.matchesPatternStart( "SRC", true ) );
+        assertTrue( from.matchesPatternStart( "SRC", false ) );
+        assertFalse( from.matchesPatternStart( "abs", true ) );
+        assertTrue( from.matchesPatternStart( toFileSeparator( "/abs" )[0], true ) );
+
+        // regular expressions can't be matched partially
+        assertTrue( MatchPatterns.from( "%regex[src.*]" ).matchesPatternStart( "target", true ) );
+    }
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void performanceTest()
+    {
+        String[] sources = new String[60];
+        for ( int i = 0; i < sources.length; i++ )
+        {
+            sources[i] = i % 3 == 0 ? "**/*." + i : i % 3 == 1 ? "src/module" + i + "/**" : "**/generated" + i + "/**";
+        }
+        sources = toFileSeparator( sources );
+        String[] names = new String[1000];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            names[i] = toFileSeparator( "src/module" + ( i % 70 ) + "/main/java/org/apache/p" + i + "/File" + i + "."
+                                            + ( i % 100 ) )[0];
+        }
+
+        MatchPatterns compiled = MatchPatterns.from( sources );
+        MatchPattern[] single = new MatchPattern[sources.length];
+        for ( int i = 0; i < sources.length; i++ )
+        {
+            single[i] = MatchPattern.fromString( sources[i] );
+        }
+
+        int cycles = 500;
+        for ( int run = 0; run < 2; run++ )
+        {
+            int found = 0;
+            long startTime = System.nanoTime();
+            for ( int c = 0; c < cycles; c++ )
+            {
+                for ( String name : names )
+                {
+                    String[] tokenized = MatchPattern.tokenizePathToString( name, File.separator );
+                    for ( MatchPattern pattern : single )
+                    {
+                        if ( pattern.matchPath( name, tokenized, true ) )
+                        {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+            }
+            long durationSingle = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for ( int c = 0; c < cycles; c++ )
+            {
+                for ( String name : names )
+                {
+                    if ( compiled.matches( name, true ) )
+                    {
+                        found--;
+                    }
+                }
+            }
+            long durationCompiled = System.nanoTime() - startTime;
+            assertEquals( 0, found );
+
+            System.out.println( "pattern by pattern [ns/match]: " + durationSingle / ( cycles * names.length ) );
+            System.out.println( "compiled patterns  [ns/match]: " + durationCompiled / ( cycles * names.length ) );
+        }
+    }
+
+    private static String[] toFileSeparator( String... paths )
+    {
+        String[] result = new String[paths.length];
+        for ( int i = 0; i < paths.length; i++ )
+        {
+            result[i] = paths[i].startsWith( SelectorUtils.REGEX_HANDLER_PREFIX )
+                ? paths[i]
+                : paths[i].replace( '/', File.separatorChar );
+        }
+        return result;
+    }
 }
@@ -0,0 +1,86 @@
+package org.apache.maven.shared.utils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.shared.utils.testhelpers.FileTestHelper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link NioDirectoryWatcher}.
+ */
+public class NioDirectoryWatcherTest
+{
+    private static final long AN_HOUR_AGO = System.currentTimeMillis() - 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testResyncReportsOnlyDifferences()
+        throws Exception
+    {
+        if ( !Java7Support.isJava7() )
+        {
+            return;
+        }
+        File rootDir = tempFolder.getRoot();
+        createFile( new File( rootDir, "unchanged.txt" ) );
+        createFile( new File( rootDir, "folder/unchanged.txt" ) );
+        createFile( new File( rootDir, "folder/modified.txt" ) );
+        createFile( new File( rootDir, "removed.txt" ) );
+
+        NioDirectoryWatcher watcher =
+            new NioDirectoryWatcher( rootDir, MatchPatterns.from( "**" ), MatchPatterns.from(), true, false );
+        try
+        {
+            FileTestHelper.generateTestFile( new File( rootDir, "folder/modified.txt" ), 10 );
+            FileTestHelper.generateTestFile( new File( rootDir, "added.txt" ), 10 );
+            Assert.assertTrue( new File( rootDir, "removed.txt" ).delete() );
+
+            // as if the watch service lost the events
+            watcher.resync();
+            DirectoryScanResult result = watcher.poll( 0, TimeUnit.MILLISECONDS );
+
+            Assert.assertEquals( Arrays.asList( "added.txt" ), Arrays.asList( result.getFilesAdded() ) );
+            Assert.assertEquals( Arrays.asList( "removed.txt" ), Arrays.asList( result.getFilesRemoved() ) );
+            Assert.assertEquals( Arrays.asList( "folder" + File.separator + "modified.txt" ),
+                                 Arrays.asList( result.getFilesModified() ) );
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
+    private static void createFile( File file )
+        throws Exception
+    {
+        file.getParentFile().mkdirs();
+        FileTestHelper.generateTestFile( file, 5 );
+        file.setLastModified( AN_HOUR_AGO );
+    }
+}
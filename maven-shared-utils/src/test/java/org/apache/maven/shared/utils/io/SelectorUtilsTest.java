@@ -22,7 +22,10 @@ package org.apache.maven.shared.utils.io;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 
+import org.junit.Ignore;
 import org.junit.Test;
 
 /**
@@ -67,6 +70,147 @@ public class SelectorUtilsTest
         assertAntDoesNotMatch( "/aaa/", "\\aaa\\bbb" );
     }
 
+    @Test
+    public void testMatchRegion()
+    {
+        assertTrue( SelectorUtils.match( "xb*dx", 1, 4, "abcde", 1, 4, true ) );
+        assertTrue( SelectorUtils.match( "b?d", 0, 3, "abcde", 1, 4, true ) );
+        assertFalse( SelectorUtils.match( "b?d", 0, 3, "abcde", 1, 5, true ) );
+        assertTrue( SelectorUtils.match( "*", 0, 1, "abcde", 2, 2, true ) );
+        assertTrue( SelectorUtils.match( "B*", 0, 2, "abcde", 1, 3, false ) );
+        assertFalse( SelectorUtils.match( "B*", 0, 2, "abcde", 1, 3, true ) );
+        assertTrue( SelectorUtils.match( "*e", 0, 2, "abcde", 0, 5, true ) );
+        assertFalse( SelectorUtils.match( "*e", 0, 2, "abcde", 0, 4, true ) );
+    }
+
+    @Test
+    public void testMatchPathLikeTokenizedMatching()
+    {
+        String[] patterns =
+            { "**", "*", "a", "a/**", "**/a", "**/b/**", "a/*/c", "a/**/c", "**/a/**/c/**", "*/b", "a?/b*", "**/**/c",
+                "a/**/b/**/c", "/a/**", "/**", "A/B", "a/**/a", "**/a/*/**/c/**/a" };
+        String[] paths =
+            { "", "a", "a/b", "a/b/c", "/a/b/c", "a/x/b/y/c", "a//b///c/", "ab/bc", "c/a/b/c/d", "x/a/c", "A/b",
+                "a/b/b/c", "/a", "a/a", "a/b/a/c/c/a" };
+        for ( String pattern : patterns )
+        {
+            String[] patDirs = MatchPattern.tokenizePathToString( pattern, "/" );
+            for ( String path : paths )
+            {
+                for ( boolean isCaseSensitive : new boolean[]{ true, false } )
+                {
+                    String[] strDirs = MatchPattern.tokenizePathToString( path, "/" );
+                    boolean expected = SelectorUtils.matchAntPathPattern( patDirs, strDirs, isCaseSensitive );
+                    String message = pattern + " " + path + " " + isCaseSensitive;
+                    assertEquals( message, expected,
+                                  SelectorUtils.matchAntPathPattern( patDirs, path, "/", isCaseSensitive ) );
+                    if ( pattern.startsWith( "/" ) == path.startsWith( "/" ) )
+                    {
+                        assertEquals( message, expected,
+                                      SelectorUtils.matchPath( pattern.replace( '/', File.separatorChar ),
+                                                               path.replace( '/', File.separatorChar ),
+                                                               isCaseSensitive ) );
+                    }
+                }
+            }
+        }
+    }
+
+    @Ignore( "Enable this test to run performance checks" )
+    @Test
+    public void performanceTest()
+    {
+        MatchPattern[] patterns = new MatchPattern[20];
+        for ( int i = 0; i < patterns.length; i++ )
+        {
+            String pattern = i % 2 == 0 ? "**/*." + i : "src/module" + i + "/**/generated/**";
+            patterns[i] = MatchPattern.fromString( pattern.replace( '/', File.separatorChar ) );
+        }
+        MatchPatterns compiled = MatchPatterns.from( new String[]{ "**/*.java", "**/*.xml", "src/**/target/**" } );
+        String[] names = new String[1000];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            names[i] = ( "src/module" + ( i % 30 ) + "/main/java/org/apache/maven/p" + i + "/File" + i + "."
+                + ( i % 40 ) ).replace( '/', File.separatorChar );
+        }
+
+        int cycles = 200;
+        for ( int run = 0; run < 3; run++ )
+        {
+            int found = 0;
+            long startBytes = allocatedBytes();
+            long startTime = System.nanoTime();
+            for ( int c = 0; c < cycles; c++ )
+            {
+                for ( String name : names )
+                {
+                    String[] strDirs = MatchPattern.tokenizePathToString( name, File.separator );
+                    for ( MatchPattern pattern : patterns )
+                    {
+                        if ( SelectorUtils.matchAntPathPattern( pattern.getTokenizedPathString(), strDirs, true ) )
+                        {
+                            found++;
+                        }
+                    }
+                }
+            }
+            report( "tokenized", startTime, startBytes, cycles * names.length );
+
+            startBytes = allocatedBytes();
+            startTime = System.nanoTime();
+            for ( int c = 0; c < cycles; c++ )
+            {
+                for ( String name : names )
+                {
+                    for ( MatchPattern pattern : patterns )
+                    {
+                        if ( pattern.matchPath( name, true ) )
+                        {
+                            found--;
+                        }
+                    }
+                }
+            }
+            report( "offsets", startTime, startBytes, cycles * names.length );
+            assertEquals( 0, found );
+
+            startBytes = allocatedBytes();
+            startTime = System.nanoTime();
+            for ( int c = 0; c < cycles; c++ )
+            {
+                for ( String name : names )
+                {
+                    if ( compiled.matches( name, true ) )
+                    {
+                        found++;
+                    }
+                }
+            }
+            report( "MatchPatterns", startTime, startBytes, cycles * names.length );
+        }
+    }
+
+    private static void report( String name, long startTime, long startBytes, int count )
+    {
+        long duration = System.nanoTime() - startTime;
+        long bytes = allocatedBytes() - startBytes;
+        System.out.println( name + " [ns/path]: " + duration / count + ", [bytes/path]: "
+                                + ( startBytes < 0 ? "n/a" : String.valueOf( bytes / count ) ) );
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the JVM doesn't tell.
+     */
+    private static long allocatedBytes()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ( bean instanceof com.sun.management.ThreadMXBean )
+        {
+            return ( (com.sun.management.ThreadMXBean) bean ).getThreadAllocatedBytes(
+                Thread.currentThread().getId() );
+        }
+        return -1;
+    }
 
     private void assertAntDoesNotMatch( String pattern, String target )
     {